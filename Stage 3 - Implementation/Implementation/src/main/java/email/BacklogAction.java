@@ -1,25 +1,60 @@
 package email;
 
 import email.email.Email;
+import file.serializable.OutOfDateClassException;
 import file.serializable.SerializableFile;
 import gui.fxml.FXMLScreen;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class BacklogAction implements Serializable {
 
+    //CONSTANTS
+    private static final long serialVersionUID = 4581019381485748544L;
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 5 * 60 * 1000;
+    private static final int MAX_RETRY_SHIFT = 20;
+    private static final int MAX_FAILURES = 5;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long NO_RETRY = -1;
+    private static final ScheduledExecutorService BACKLOG_EXECUTOR
+        = Executors.newSingleThreadScheduledExecutor(
+            EmailExecutor.threadFactory("backlog-actions-"));
+
     //Static Attributes
-    private static HashSet<BacklogAction> backlogActions;
+    private static final ConcurrentLinkedQueue<BacklogAction> backlogActions
+        = new ConcurrentLinkedQueue<>();
+    private static final Set<BacklogAction> queuedActions
+        = ConcurrentHashMap.newKeySet();
+    private static final BacklogActionLog backlogLog
+        = new BacklogActionLog(EmailAccount.BACKLOG_LOG_PATH);
+    private static ScheduledFuture<?> scheduledRun;
+    private static int retryAttempts;
 
     //Attributes
     private Action action;
     private int emailAccountId;
     private EmailInbox.EmailInboxType emailInboxType;
-    private Email email;
+    private String messageId;
+    private transient long sequence;
+    private transient int failures;
 
     /**
      * Creates a backlog action.
@@ -48,6 +83,21 @@ public class BacklogAction implements Serializable {
         setBacklogAction(action, emailAccount, email);
     }
 
+    /**
+     * Creates a backlog action read back from the backlog action log.
+     * @param action Action being backlogged
+     * @param emailAccountId Id of the email account the action is for
+     * @param emailInboxType Email inbox type
+     * @param messageId Message id of the email the action is for
+     */
+    BacklogAction(Action action, int emailAccountId,
+        EmailInbox.EmailInboxType emailInboxType, String messageId) {
+        setAction(action);
+        this.emailAccountId = emailAccountId;
+        setEmailInboxType(emailInboxType);
+        setMessageId(messageId);
+    }
+
     /**
      * Possible actions.
      */
@@ -56,106 +106,341 @@ public class BacklogAction implements Serializable {
     }
 
     /**
-     * Gets the backlog actions.
+     * Gets the backlog actions in the order they are run.
      * @return Backlog actions
      */
-    private static HashSet<BacklogAction> getBacklogActions() {
+    private static ConcurrentLinkedQueue<BacklogAction> getBacklogActions() {
         return backlogActions;
     }
 
     /**
-     * Adds a backlog action.
+     * Gets the write-ahead log of the backlog actions.
+     * @return Backlog action log
+     */
+    private static BacklogActionLog getBacklogLog() {
+        return backlogLog;
+    }
+
+    /**
+     * Adds a backlog action, unless the same action is already waiting for
+     * the email or it cancels out a waiting action.
      * @param backlogAction Backlog action
      * @throws IOException Thrown if error with saving backlog actions
      */
     private static void addBacklogAction(BacklogAction backlogAction)
         throws IOException {
-        if (getBacklogActions().add(backlogAction)) {
-            new SerializableFile<HashSet<BacklogAction>>(
-                EmailAccount.BACKLOG_PATH).serialize(getBacklogActions());
+        synchronized (BacklogAction.class) {
+            if (!coalesce(backlogAction, false)) {
+                return;
+            }
+        }
+        scheduleRun(0);
+    }
+
+    /**
+     * Merges a new action with the actions waiting for the same email.
+     * Deleting an email makes a waiting read pointless, and marking an email
+     * as not spam cancels out marking it as spam. Actions being run are not
+     * waiting, so they are never cancelled out.
+     * @param backlogAction New backlog action
+     * @param isLogged True if the action is already in the log
+     * @return True if the backlog actions have changed
+     * @throws IOException Thrown if error writing to the log
+     */
+    private static boolean coalesce(@NotNull BacklogAction backlogAction,
+        boolean isLogged) throws IOException {
+        if (queuedActions.contains(backlogAction)) {
+            if (isLogged) {
+                getBacklogLog().acknowledge(backlogAction);
+            }
+            return false;
+        }
+        Action cancelledAction = backlogAction.getAction()
+            == Action.NOT_SPAM ? Action.SPAM : null;
+        Iterator<BacklogAction> iterator = getBacklogActions().iterator();
+        while (iterator.hasNext()) {
+            BacklogAction queued = iterator.next();
+            if (queued.isForSameEmail(backlogAction)) {
+                if (queued.getAction() == cancelledAction) {
+                    iterator.remove();
+                    queuedActions.remove(queued);
+                    getBacklogLog().acknowledge(queued);
+                    if (isLogged) {
+                        getBacklogLog().acknowledge(backlogAction);
+                    }
+                    return true;
+                }
+                if (queued.getAction() == Action.READ
+                    && backlogAction.getAction() == Action.DELETE) {
+                    iterator.remove();
+                    queuedActions.remove(queued);
+                    getBacklogLog().acknowledge(queued);
+                }
+            }
         }
-        if (getBacklogActions().size() > 0) {
-            runBacklogActions();
+        if (!isLogged) {
+            getBacklogLog().add(backlogAction);
         }
+        queuedActions.add(backlogAction);
+        getBacklogActions().add(backlogAction);
+        return true;
     }
 
     /**
-     * Loads the backlog actions.
+     * Acknowledges a backlog action in the log once it has been run or can
+     * not be run.
+     * @param backlogAction Backlog action
+     */
+    private static synchronized void removeBacklogAction(
+        @NotNull BacklogAction backlogAction) {
+        try {
+            getBacklogLog().acknowledge(backlogAction);
+        } catch (IOException ioException) {
+            //Run again after a restart, which the server ignores
+            ioException.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the backlog actions by replaying the log, and moves the actions
+     * of the backlog file from before the log into it.
      * @throws ClassNotFoundException Thrown if file is for a non-local class
      * @throws IOException Thrown if error deserializing the file
      */
     public static void loadBacklogActions()
         throws ClassNotFoundException, IOException {
-        SerializableFile<HashSet<BacklogAction>> backlogSer =
-            new SerializableFile<>(EmailAccount.BACKLOG_PATH);
-        if (backlogSer.exists()) {
-            backlogActions = backlogSer.deserialize();
-        } else {
-            backlogActions = new HashSet<>();
+        synchronized (BacklogAction.class) {
+            for (BacklogAction backlogAction : getBacklogLog().load()) {
+                coalesce(backlogAction, true);
+            }
+            SerializableFile<HashSet<BacklogAction>> backlogSer =
+                new SerializableFile<>(EmailAccount.BACKLOG_PATH);
+            if (backlogSer.exists()) {
+                try {
+                    for (BacklogAction backlogAction
+                        : backlogSer.deserialize()) {
+                        coalesce(backlogAction, false);
+                    }
+                } catch (OutOfDateClassException outOfDateClassException) {
+                    //Emails saved by an older version can't be read back
+                    outOfDateClassException.printStackTrace();
+                }
+                Files.delete(backlogSer.toPath());
+            }
         }
-        if (backlogActions.size() > 0) {
-            runBacklogActions();
+        scheduleRun(0);
+    }
+
+    /**
+     * Runs the backlog actions straight away after a connection to a host has
+     * been made, instead of waiting for the next retry.
+     */
+    public static synchronized void wake() {
+        if (retryAttempts > 0) {
+            retryAttempts = 0;
+            scheduleRun(0);
+        }
+    }
+
+    /**
+     * Schedules the backlog actions to be run, unless a run is already
+     * scheduled sooner.
+     * @param delayMillis Milliseconds to wait before running
+     */
+    private static synchronized void scheduleRun(long delayMillis) {
+        if (getBacklogActions().isEmpty()) {
+            return;
         }
+        if (scheduledRun != null) {
+            if (scheduledRun.getDelay(TimeUnit.MILLISECONDS) <= delayMillis
+                || !scheduledRun.cancel(false)) {
+                return;
+            }
+        }
+        scheduledRun = BACKLOG_EXECUTOR.schedule(
+            BacklogAction::runBacklogActions, delayMillis,
+            TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Runs the backlog actions.
+     * Runs the backlog actions in order until they are all done or the host
+     * can't be reached, in which case they are tried again after a backoff.
      */
     private static void runBacklogActions() {
-        new Thread(() -> {
-            Iterator<BacklogAction> iterator = getBacklogActions()
-                .iterator();
-            while (getBacklogActions().size() > 0) {
-                try {
-                    while (iterator.hasNext()) {
-                        if (FXMLScreen.getIsClosed()) {
-                            return;
-                        }
-                        BacklogAction backlogAction = iterator.next();
-                        switch (backlogAction.getAction()) {
-                            case READ:
-                                EmailAccount.readEmailAccount(backlogAction
-                                        .getEmailAccountId()).getInbox(
-                                        backlogAction.getEmailInboxType())
-                                    .readEmail(backlogAction.getEmail());
-                                break;
-                            case SPAM:
-                                EmailAccount.readEmailAccount(backlogAction
-                                    .getEmailAccountId()).spamEmail(
-                                    backlogAction.getEmail());
-                                break;
-                            case NOT_SPAM:
-                                EmailAccount.readEmailAccount(backlogAction
-                                    .getEmailAccountId()).notSpamEmail(
-                                    backlogAction.getEmail());
-                                break;
-                            case RESTORE:
-                                EmailAccount.readEmailAccount(backlogAction
-                                    .getEmailAccountId()).restoreEmail(
-                                    backlogAction.getEmail());
-                            case DELETE:
-                                EmailAccount.readEmailAccount(backlogAction
-                                        .getEmailAccountId()).deleteEmail(
-                                            backlogAction.getEmail(),
-                                            backlogAction.getEmailInboxType());
-                                break;
-                            default:
-                                throw new EnumConstantNotPresentException(
-                                    Action.class,
-                                    backlogAction.getAction().toString());
-                        }
-                        iterator.remove();
-                    }
-                } catch (ArrayIndexOutOfBoundsException aioobException) {
-                    //Email does not exist anymore
-                    iterator.remove();
-                } catch (HostConnectionFailureException hcfException) {
-                    //Just keep trying until host has been connected
-                } catch (Exception e) {
-                    e.printStackTrace();
+        long retryMillis = NO_RETRY;
+        List<BacklogAction> batch;
+        while (retryMillis == NO_RETRY && !(batch = nextBatch()).isEmpty()) {
+            if (FXMLScreen.getIsClosed()) {
+                requeue(batch);
+                return;
+            }
+            try {
+                run(batch);
+                batch.forEach(BacklogAction::removeBacklogAction);
+            } catch (HostConnectionFailureException hcfException) {
+                requeue(batch);
+                retryMillis = nextRetryMillis();
+            } catch (Exception exception) {
+                exception.printStackTrace();
+                if (++batch.get(0).failures >= MAX_FAILURES) {
+                    batch.forEach(BacklogAction::removeBacklogAction);
+                } else {
+                    requeue(batch);
+                    retryMillis = nextRetryMillis();
                 }
             }
-        }).start();
+        }
+        synchronized (BacklogAction.class) {
+            if (retryMillis == NO_RETRY) {
+                retryAttempts = 0;
+            }
+            scheduledRun = null;
+            scheduleRun(retryMillis == NO_RETRY ? 0 : retryMillis);
+        }
+    }
+
+    /**
+     * Takes the next actions to run together off the backlog, which are the
+     * first action and the actions straight after it that do the same thing
+     * in the same inbox. Later actions for the same emails are queued behind
+     * them instead of merging with them while they are being run.
+     * @return Next actions to run (empty if there are none)
+     */
+    private static synchronized @NotNull List<BacklogAction> nextBatch() {
+        ArrayList<BacklogAction> batch = new ArrayList<>();
+        BacklogAction backlogAction;
+        while (batch.size() < MAX_BATCH_SIZE
+            && (backlogAction = getBacklogActions().peek()) != null
+            && (batch.isEmpty()
+                || batch.get(0).isSameOperation(backlogAction))) {
+            batch.add(getBacklogActions().poll());
+            queuedActions.remove(backlogAction);
+        }
+        return batch;
+    }
+
+    /**
+     * Puts actions that could not be run back at the front of the backlog,
+     * ahead of the actions added while they were being run. An action that
+     * was added again while it was being run is only kept once.
+     * @param batch Actions that could not be run
+     */
+    private static synchronized void requeue(
+        @NotNull List<BacklogAction> batch) {
+        ArrayList<BacklogAction> waiting = new ArrayList<>(getBacklogActions());
+        getBacklogActions().clear();
+        for (BacklogAction backlogAction : batch) {
+            if (queuedActions.add(backlogAction)) {
+                getBacklogActions().add(backlogAction);
+            } else {
+                removeBacklogAction(backlogAction);
+            }
+        }
+        getBacklogActions().addAll(waiting);
+    }
+
+    /**
+     * Gets how long to wait before the next retry, doubling with each failed
+     * retry up to a limit, with a random jitter so retries don't line up.
+     * @return Milliseconds to wait before the next retry
+     */
+    private static synchronized long nextRetryMillis() {
+        long retryMillis = Math.min(MAX_RETRY_MILLIS,
+            MIN_RETRY_MILLIS << Math.min(retryAttempts, MAX_RETRY_SHIFT));
+        retryAttempts++;
+        return retryMillis / 2
+            + ThreadLocalRandom.current().nextLong(retryMillis / 2 + 1);
+    }
+
+    /**
+     * Runs actions that do the same thing in the same inbox against the email
+     * server with one bulk operation.
+     * @param batch Actions to run
+     * @throws Exception Thrown if the actions could not be run
+     */
+    private static void run(@NotNull List<BacklogAction> batch)
+        throws Exception {
+        BacklogAction first = batch.get(0);
+        EmailAccount emailAccount
+            = EmailAccount.readEmailAccount(first.getEmailAccountId());
+        if (emailAccount == null) {
+            //Account has not been logged in yet so it is tried again later
+            throw new HostConnectionFailureException();
+        }
+        ArrayList<String> messageIds = new ArrayList<>();
+        for (BacklogAction backlogAction : batch) {
+            messageIds.add(backlogAction.getMessageId());
+        }
+        switch (first.getAction()) {
+            case READ:
+                emailAccount.getInbox(first.getEmailInboxType())
+                    .readMessages(messageIds);
+                break;
+            case SPAM:
+                emailAccount.moveMessages(messageIds,
+                    EmailInbox.EmailInboxType.INBOX,
+                    EmailInbox.EmailInboxType.SPAM);
+                break;
+            case NOT_SPAM:
+                emailAccount.moveMessages(messageIds,
+                    EmailInbox.EmailInboxType.SPAM,
+                    EmailInbox.EmailInboxType.INBOX);
+                break;
+            case RESTORE:
+                emailAccount.moveMessages(messageIds,
+                    EmailInbox.EmailInboxType.BIN,
+                    EmailInbox.EmailInboxType.INBOX);
+                break;
+            case DELETE:
+                emailAccount.deleteMessages(messageIds,
+                    first.getEmailInboxType());
+                break;
+            default:
+                throw new EnumConstantNotPresentException(Action.class,
+                    first.getAction().toString());
+        }
+    }
+
+    /**
+     * Checks if the given backlog action does the same thing in the same
+     * inbox, so both can be run together.
+     * @param other Backlog action to compare with
+     * @return True if both actions can be run together
+     */
+    private boolean isSameOperation(@NotNull BacklogAction other) {
+        return getAction() == other.getAction()
+            && getEmailAccountId() == other.getEmailAccountId()
+            && getEmailInboxType() == other.getEmailInboxType();
+    }
+
+    /**
+     * Checks if the given backlog action is for the same email of the same
+     * account, as a message id is only unique within an account.
+     * @param other Backlog action to compare with
+     * @return True if both actions are for the same email
+     */
+    private boolean isForSameEmail(@NotNull BacklogAction other) {
+        return getEmailAccountId() == other.getEmailAccountId()
+            && getMessageId().equals(other.getMessageId());
+    }
+
+    /**
+     * Reads a backlog action from the backlog file from before the log, which
+     * held the whole email instead of its message id.
+     * @param input Input stream of the backlog file
+     * @throws ClassNotFoundException Thrown if the email class can't be found
+     * @throws IOException Thrown if error reading the backlog file
+     */
+    private void readObject(@NotNull ObjectInputStream input)
+        throws ClassNotFoundException, IOException {
+        ObjectInputStream.GetField fields = input.readFields();
+        setAction((Action) fields.get("action", null));
+        this.emailAccountId = fields.get("emailAccountId", 0);
+        setEmailInboxType((EmailInbox.EmailInboxType) fields.get(
+            "emailInboxType", null));
+        Email email = (Email) fields.get("email", null);
+        setMessageId(email != null ? email.getMessageId()
+            : (String) fields.get("messageId", null));
     }
 
     /**
@@ -169,7 +454,7 @@ public class BacklogAction implements Serializable {
         Email email) throws IOException {
         setAction(action);
         setEmailAccountId(emailAccount);
-        setEmail(email);
+        setMessageId(email.getMessageId());
         addBacklogAction(this);
     }
 
@@ -198,18 +483,26 @@ public class BacklogAction implements Serializable {
     }
 
     /**
-     * Sets the email.
-     * @param email Email
+     * Sets the message id of the email.
+     * @param messageId Message id of the email
+     */
+    private void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    /**
+     * Sets the position of the action in the backlog action log.
+     * @param sequence Sequence number of the action
      */
-    private void setEmail(Email email) {
-        this.email = email;
+    void setSequence(long sequence) {
+        this.sequence = sequence;
     }
 
     /**
      * Gets the action.
      * @return Action
      */
-    private Action getAction() {
+    Action getAction() {
         return action;
     }
 
@@ -217,7 +510,7 @@ public class BacklogAction implements Serializable {
      * Gets the email account id.
      * @return Email account id
      */
-    private int getEmailAccountId() {
+    int getEmailAccountId() {
         return emailAccountId;
     }
 
@@ -225,16 +518,24 @@ public class BacklogAction implements Serializable {
      * Gets the email inbox type.
      * @return Email inbox type
      */
-    private EmailInbox.EmailInboxType getEmailInboxType() {
+    EmailInbox.EmailInboxType getEmailInboxType() {
         return emailInboxType;
     }
 
     /**
-     * Gets the email.
-     * @return Email
+     * Gets the message id of the email.
+     * @return Message id of the email
+     */
+    String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Gets the position of the action in the backlog action log.
+     * @return Sequence number of the action
      */
-    private Email getEmail() {
-        return email;
+    long getSequence() {
+        return sequence;
     }
 
     /**
@@ -246,8 +547,8 @@ public class BacklogAction implements Serializable {
         if (obj instanceof BacklogAction) {
             BacklogAction objBa = (BacklogAction) obj;
             return getAction().equals(objBa.getAction())
-                && getEmail().getMessageId().equals(
-                    objBa.getEmail().getMessageId());
+                && getEmailAccountId() == objBa.getEmailAccountId()
+                && getMessageId().equals(objBa.getMessageId());
         }
         return false;
     }
@@ -258,7 +559,7 @@ public class BacklogAction implements Serializable {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(getAction(), getEmail().getMessageId());
+        return Objects.hash(getAction(), getEmailAccountId(), getMessageId());
     }
 
 }
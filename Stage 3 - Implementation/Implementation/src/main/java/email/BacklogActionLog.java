@@ -0,0 +1,302 @@
+package email;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the backlog actions waiting to be run on the server.
+ * Each action is one small record of its action, account id, inbox type and
+ * message id, and is acknowledged with a second record once the server has
+ * applied it. Replaying the log skips acknowledged actions, so replaying it
+ * more than once gives the same backlog.
+ * @author Jordan Jones
+ */
+public class BacklogActionLog {
+
+    //CONSTANTS
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MIN_COMPACTION_RECORDS = 256;
+    private static final byte ADD_RECORD = 1;
+    private static final byte ACKNOWLEDGE_RECORD = 2;
+    private static final String NO_INBOX_TYPE = "";
+
+    //Attributes
+    private final Path logPath;
+    private final LinkedHashMap<Long, BacklogAction> backlogActions
+        = new LinkedHashMap<>();
+    private long nextSequence = 1;
+    private long records;
+    private FileChannel log;
+
+    /**
+     * Creates the backlog action log.
+     * @param logPath Path of the log file
+     */
+    public BacklogActionLog(@NotNull String logPath) {
+        this.logPath = Paths.get(logPath);
+    }
+
+    /**
+     * Checks if the log file has been created.
+     * @return True if the log file exists
+     */
+    public boolean exists() {
+        return Files.exists(logPath);
+    }
+
+    /**
+     * Loads the actions that have not been acknowledged by replaying the log,
+     * cutting off a record that was only partly written.
+     * @return Actions waiting to be run in the order they were added
+     * @throws IOException Thrown if error reading the log file
+     */
+    public synchronized Collection<BacklogAction> load() throws IOException {
+        backlogActions.clear();
+        records = 0;
+        if (exists()) {
+            replay();
+        }
+        return new ArrayList<>(backlogActions.values());
+    }
+
+    /**
+     * Adds an action to the log and waits for it to reach the disk.
+     * @param backlogAction Action to add
+     * @throws IOException Thrown if error writing the log file
+     */
+    public synchronized void add(@NotNull BacklogAction backlogAction)
+        throws IOException {
+        backlogAction.setSequence(nextSequence++);
+        append(addRecord(backlogAction));
+        backlogActions.put(backlogAction.getSequence(), backlogAction);
+    }
+
+    /**
+     * Acknowledges that an action has been applied or is no longer needed,
+     * compacting the log once most of it is acknowledged actions.
+     * @param backlogAction Action to acknowledge
+     * @throws IOException Thrown if error writing the log file
+     */
+    public synchronized void acknowledge(@NotNull BacklogAction backlogAction)
+        throws IOException {
+        if (backlogActions.remove(backlogAction.getSequence()) == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(backlogAction.getSequence());
+        }
+        append(record(ACKNOWLEDGE_RECORD, bytes.toByteArray()));
+        if (records >= MIN_COMPACTION_RECORDS
+            && records > 2L * backlogActions.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Closes the log file.
+     */
+    public synchronized void close() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ioException) {
+                //Already closed
+            }
+            log = null;
+        }
+    }
+
+    /**
+     * Replays the records of the log file.
+     * @throws IOException Thrown if error reading the log file
+     */
+    private void replay() throws IOException {
+        long fileBytes = Files.size(logPath);
+        long validBytes = 0;
+        try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException endOfFile) {
+                    break;
+                }
+                byte[] data;
+                try {
+                    int checksum = input.readInt();
+                    if (length <= 0 || length > fileBytes) {
+                        break;
+                    }
+                    data = new byte[length];
+                    input.readFully(data);
+                    if (checksum != checksum(data, 0, data.length)) {
+                        break;
+                    }
+                } catch (EOFException tornRecord) {
+                    break;
+                }
+                apply(data);
+                records++;
+                validBytes += RECORD_HEADER_BYTES + length;
+            }
+        }
+        if (validBytes < fileBytes) {
+            try (FileChannel channel = FileChannel.open(logPath,
+                StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Applies a replayed record to the actions of the log.
+     * @param data Type and payload of the record
+     * @throws IOException Thrown if error reading the record
+     */
+    private void apply(byte @NotNull [] data) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+            new ByteArrayInputStream(data, 1, data.length - 1))) {
+            long sequence = input.readLong();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            switch (data[0]) {
+                case ADD_RECORD:
+                    BacklogAction.Action action
+                        = BacklogAction.Action.valueOf(input.readUTF());
+                    int emailAccountId = input.readInt();
+                    String inboxType = input.readUTF();
+                    String messageId = input.readUTF();
+                    BacklogAction backlogAction = new BacklogAction(action,
+                        emailAccountId, inboxType.equals(NO_INBOX_TYPE)
+                        ? null : EmailInbox.EmailInboxType.valueOf(inboxType),
+                        messageId);
+                    backlogAction.setSequence(sequence);
+                    backlogActions.put(sequence, backlogAction);
+                    break;
+                case ACKNOWLEDGE_RECORD:
+                    backlogActions.remove(sequence);
+                    break;
+                default:
+                    //Unknown record from a newer version so it is skipped
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the log file and waits for it to reach the disk.
+     * @param record Record to append
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void append(byte @NotNull [] record) throws IOException {
+        if (log == null) {
+            Files.createDirectories(logPath.getParent());
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        log.force(false);
+        records++;
+    }
+
+    /**
+     * Rewrites the log file with only the actions that are still waiting.
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void compact() throws IOException {
+        close();
+        Path tempPath = Paths.get(logPath + TEMP_EXTENSION);
+        try (FileChannel channel = FileChannel.open(tempPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (BacklogAction backlogAction : backlogActions.values()) {
+                ByteBuffer buffer = ByteBuffer.wrap(addRecord(backlogAction));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        records = backlogActions.size();
+    }
+
+    /**
+     * Creates the record that adds an action.
+     * @param backlogAction Action to add
+     * @return Record bytes
+     * @throws IOException Thrown if error writing the record
+     */
+    private static byte @NotNull [] addRecord(
+        @NotNull BacklogAction backlogAction) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(backlogAction.getSequence());
+            output.writeUTF(backlogAction.getAction().name());
+            output.writeInt(backlogAction.getEmailAccountId());
+            output.writeUTF(backlogAction.getEmailInboxType() == null
+                ? NO_INBOX_TYPE : backlogAction.getEmailInboxType().name());
+            output.writeUTF(backlogAction.getMessageId());
+        }
+        return record(ADD_RECORD, bytes.toByteArray());
+    }
+
+    /**
+     * Creates a record with a length and checksum so torn writes are found.
+     * @param type Type of the record
+     * @param payload Payload of the record
+     * @return Record bytes
+     */
+    private static byte @NotNull [] record(byte type,
+        byte @NotNull [] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            RECORD_HEADER_BYTES + 1 + payload.length);
+        buffer.putInt(1 + payload.length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.put(payload);
+        byte[] record = buffer.array();
+        ByteBuffer.wrap(record).putInt(Integer.BYTES, checksum(
+            record, RECORD_HEADER_BYTES, record.length - RECORD_HEADER_BYTES));
+        return record;
+    }
+
+    /**
+     * Gets the checksum of part of some data.
+     * @param data Data to get the checksum of
+     * @param offset Start of the part
+     * @param length Length of the part
+     * @return Checksum of the part of the data
+     */
+    private static int checksum(byte @NotNull [] data, int offset,
+        int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+}
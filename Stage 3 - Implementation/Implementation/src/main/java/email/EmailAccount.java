@@ -2,17 +2,21 @@ package email;
 
 import com.sun.mail.util.MailConnectException;
 import email.address.EmailAddress;
+import email.address.EmailAddressHistory;
+import email.address.EmailRecipientReader;
+import email.address.EmailTagValues;
 import email.address.EmptyTagValueException;
 import email.address.InvalidEmailAddressException;
+import email.address.InvalidRecipientFileException;
 import email.email.Email;
+import email.email.body.tag.EmailTag;
+import email.search.EmailSearchIndex;
 import email.service.EmailService;
 import email.service.MissingEmailServiceInboxName;
 import email.service.NonSupportedEmailService;
 import file.ExtendedFile;
 import file.FileCanNotDeleteException;
 import file.directory.Directory;
-import file.serializable.SerializableFile;
-import file.serializable.SerializableFileNotFoundException;
 import file.text.TextFile;
 import file.text.TextFileNotFoundException;
 import javafx.util.Pair;
@@ -41,34 +45,50 @@ public class EmailAccount implements Serializable {
     public static final String TEMP_PATH = ExtendedFile.SAVES_PATH + "/temp";
     public static final String HISTORY_PATH
         = ExtendedFile.SAVES_PATH + "/history.ser";
+    public static final String HISTORY_LOG_PATH
+        = ExtendedFile.SAVES_PATH + "/history.log";
     public static final String BACKLOG_PATH
         = ExtendedFile.SAVES_PATH + "/backlog.ser";
+    public static final String BACKLOG_LOG_PATH
+        = ExtendedFile.SAVES_PATH + "/backlog.log";
+    public static final String SEARCH_LOG_PATH
+        = ExtendedFile.SAVES_PATH + "/search.log";
 
     //Static Attributes
     private static HashMap<Integer, EmailAccount> emailAccounts
         = new HashMap<>();
-    private static HashMap<Character, TreeSet<String>> history
-        = new HashMap<>();
+    private static final EmailAddressHistory history
+        = new EmailAddressHistory(HISTORY_LOG_PATH);
+    private static final EmailSearchIndex searchIndex
+        = new EmailSearchIndex(SEARCH_LOG_PATH);
     static {
         try {
-            String[] strings = new SerializableFile<String[]>(
-                HISTORY_PATH).deserialize();
-            EmailAddress[] emailAddresses = new EmailAddress[strings.length];
-            for (int i = 0; i < strings.length; i++) {
-                emailAddresses[i] = new EmailAddress(strings[i]);
-            }
-            addToHistory(emailAddresses);
-        } catch (SerializableFileNotFoundException serializableFileException) {
-            //Adding history will create the file anyway
+            history.load(HISTORY_PATH);
         } catch (Exception exception) {
             exception.printStackTrace();
         }
-        Properties properties = System.getProperties();
-        properties.setProperty("mail.smtp.port", "587");
-        properties.setProperty("mail.smtp.starttls.enable", "true");
-        properties.setProperty("mail.smtp.auth", "true");
-        properties.setProperty("mail.store.protocol", "imaps");
-        properties.setProperty("mail.imaps.partialfetch", "false");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                history.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }, "history-shutdown"));
+        //Replayed now so the first search or inbox does not wait for it
+        EmailExecutor.getExecutor().execute(() -> {
+            try {
+                searchIndex.load();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                searchIndex.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }, "search-shutdown"));
     }
 
     //Attributes
@@ -76,8 +96,10 @@ public class EmailAccount implements Serializable {
     private EmailService emailService;
     private EmailAddress emailAddress;
     private String password;
-    private Session session;
+    private transient volatile Session session;
     private boolean rememberMe;
+    private transient EmailConnection connection;
+    private transient HashMap<EmailInbox.EmailInboxType, EmailInbox> inboxes;
 
     /**
      * Creates an email account.
@@ -104,10 +126,18 @@ public class EmailAccount implements Serializable {
      * Gets the history of email addresses used with the system.
      * @return History of email addresses used with the system
      */
-    public static HashMap<Character, TreeSet<String>> getHistory() {
+    public static EmailAddressHistory getHistory() {
         return history;
     }
 
+    /**
+     * Gets the search index of the emails of every account.
+     * @return Search index of the emails of every account
+     */
+    public static EmailSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
     /**
      * Gets the list of email accounts.
      * @return List of email account
@@ -162,60 +192,23 @@ public class EmailAccount implements Serializable {
     }
 
     /**
-     * Adds the given addresses to the system's history if not added already.
+     * Adds a use of each of the given addresses to the system's history.
      * @param emailAddresses Email addresses to add to the system's history
      * @throws IOException Thrown if error with saving the history
      */
     public static void addToHistory(EmailAddress @NotNull [] emailAddresses)
         throws IOException {
-        for (EmailAddress emailAddress : emailAddresses) {
-            char first = emailAddress.getAddress().toCharArray()[0];
-            getHistory().computeIfAbsent(first,
-                k -> new TreeSet<>(Comparator.naturalOrder()));
-            getHistory().get(first).add(emailAddress.getAddress());
-        }
-        saveHistory();
-    }
-
-    /**
-     * Saves the system's history details to the device.
-     * @throws IOException Thrown if error with the save file
-     */
-    private static void saveHistory() throws IOException {
-        ArrayList<String> emailAddresses = new ArrayList<>();
-        for (TreeSet<String> treeSet : getHistory().values()) {
-            emailAddresses.addAll(treeSet);
-        }
-        SerializableFile<String[]> serializableFile
-            = new SerializableFile<>(HISTORY_PATH);
-        serializableFile.serialize(
-            emailAddresses.toArray(String[]::new));
+        getHistory().add(emailAddresses);
     }
 
     /**
      * Finds similar address in the system's history based on the start string.
      * @param start Start of the email addresses to be found
-     * @return Email addresses that start with the given string (not equals)
+     * @return Best ranked email addresses that start with the given string
+     * (not equals)
      */
     public static String[] findSimilarHistory(@NotNull String start) {
-        ArrayList<String> emailAddresses = new ArrayList<>();
-        char first = start.toCharArray()[0];
-        if (getHistory().get(first) != null) {
-            boolean foundSet = false;
-            for (String emailAddress : getHistory().get(first)) {
-                if (emailAddress.startsWith(start)) {
-                    foundSet = true;
-                    if (!emailAddress.equals(start)) {
-                        emailAddresses.add(emailAddress);
-                    }
-                } else {
-                    if (foundSet) {
-                        break;
-                    }
-                }
-            }
-        }
-        return emailAddresses.toArray(String[]::new);
+        return getHistory().find(start);
     }
 
     /**
@@ -257,13 +250,13 @@ public class EmailAccount implements Serializable {
      * @throws MessagingException Thrown if error with java mail server
      * @throws MessagingException Thrown if error with java mail server
      */
-    public void setSession()
+    public synchronized void setSession()
         throws HostConnectionFailureException, MessagingException,
         MissingEmailServiceInboxName {
         Transport transport = null;
         try {
-            changeSMTPHost();
-            session = Session.getInstance(System.getProperties(),
+            Session session = Session.getInstance(
+                getEmailService().createProperties(),
                 new javax.mail.Authenticator() {
                     protected PasswordAuthentication
                     getPasswordAuthentication() {
@@ -274,6 +267,7 @@ public class EmailAccount implements Serializable {
                 });
             transport = session.getTransport();
             transport.connect(getEmailAddress().getAddress(), getPassword());
+            this.session = session;
             getEmailService().setInboxNames(this);
         } catch (AuthenticationFailedException authenticationFailedException) {
             session = null;
@@ -339,7 +333,11 @@ public class EmailAccount implements Serializable {
     public Session getSession() throws HostConnectionFailureException,
         MessagingException, MissingEmailServiceInboxName {
         if (session == null) {
-            setSession();
+            synchronized (this) {
+                if (session == null) {
+                    setSession();
+                }
+            }
         }
         return session;
     }
@@ -350,9 +348,25 @@ public class EmailAccount implements Serializable {
      * @return Inbox
      * @throws HostConnectionFailureException Thrown when can't connect to host
      */
-    public EmailInbox getInbox(EmailInbox.EmailInboxType emailInboxType)
+    public synchronized EmailInbox getInbox(
+        EmailInbox.EmailInboxType emailInboxType)
         throws HostConnectionFailureException {
-        return new EmailInbox(this, emailInboxType);
+        if (inboxes == null) {
+            inboxes = new HashMap<>();
+        }
+        return inboxes.computeIfAbsent(emailInboxType,
+            type -> new EmailInbox(this, type));
+    }
+
+    /**
+     * Gets the long-lived connection of the account to its IMAP server.
+     * @return Connection of the account to its IMAP server
+     */
+    public synchronized EmailConnection getConnection() {
+        if (connection == null) {
+            connection = new EmailConnection(this);
+        }
+        return connection;
     }
 
     /**
@@ -451,8 +465,9 @@ public class EmailAccount implements Serializable {
                 getInbox(EmailInbox.EmailInboxType.DRAFTS).deleteEmail(email);
             }
             if (email.getBody().getContents().getTags().length == 0) {
-                changeSMTPHost();
-                Transport.send(email.generateMessage(this));
+                try (EmailSender emailSender = new EmailSender(this, 1)) {
+                    emailSender.send(email.generateMessage(this));
+                }
             } else {
                 sendEmailWithTags(email);
             }
@@ -483,15 +498,17 @@ public class EmailAccount implements Serializable {
             email.getHeader().getRecipients(Message.RecipientType.CC)));
         allAddresses.addAll(Arrays.asList(
             email.getHeader().getRecipients(Message.RecipientType.BCC)));
+        HashMap<EmailAddress, EmailAddress> filledAddresses = new HashMap<>();
         for (EmailAddress emailAddress : allAddresses) {
-            for (EmailAddress otherAddress : allAddresses) {
-                if (emailAddress.equals(otherAddress)
-                    && emailAddress != otherAddress) {
-                    if (!emailAddress.getTagValues()[0][0].equals("")) {
-                        otherAddress.setTagValuesHashMap(
-                            emailAddress.getTagValuesHashMap());
-                    }
-                }
+            if (!emailAddress.getTagValues()[0][0].equals("")) {
+                filledAddresses.putIfAbsent(emailAddress, emailAddress);
+            }
+        }
+        for (EmailAddress emailAddress : allAddresses) {
+            EmailAddress filledAddress = filledAddresses.get(emailAddress);
+            if (filledAddress != null && filledAddress != emailAddress) {
+                emailAddress.setTagValuesHashMap(
+                    filledAddress.getTagValuesHashMap());
             }
         }
 
@@ -515,23 +532,68 @@ public class EmailAccount implements Serializable {
         }
 
         //Groups of email addresses with the same tag values
-        HashMap<Integer, ArrayList<Pair<EmailAddress, Message.RecipientType>>>
-            groups = new HashMap<>();
+        EmailTag[] emailTags = email.getBody().getContents().getTags();
+        LinkedHashMap<EmailTagValues,
+            ArrayList<Pair<EmailAddress, Message.RecipientType>>>
+            groups = new LinkedHashMap<>();
         for (Pair<EmailAddress, Message.RecipientType> emailAddress
             : emailAddresses) {
-            int hashValue = emailAddress.getKey().getTagValuesHashCode();
-            if (!groups.containsKey(hashValue)) {
-                groups.put(hashValue, new ArrayList<>());
+            groups.computeIfAbsent(
+                emailAddress.getKey().getTagValuesKey(emailTags),
+                tagValues -> new ArrayList<>()).add(emailAddress);
+        }
+
+        //Sends an email to each email address group over shared transports
+        try (EmailSender emailSender = new EmailSender(this,
+            Math.min(groups.size(), EmailSender.getParallelismSetting()))) {
+            for (ArrayList<Pair<EmailAddress, Message.RecipientType>>
+                group : groups.values()) {
+                emailSender.send(email.generateMessageWithTags(this, group));
             }
-            groups.get(hashValue).add(emailAddress);
         }
+    }
 
-        //Sends an email to each email address group
-        for (ArrayList<Pair<EmailAddress, Message.RecipientType>>
-            group : groups.values()) {
-            changeSMTPHost();
-            Transport.send(email.generateMessageWithTags(this, group));
+    /**
+     * Sends the email to each recipient of a CSV or TSV file with their own
+     * tag values, reading one recipient at a time. The whole file is checked
+     * before the first email is sent, and the draft is only deleted once
+     * every email has been sent.
+     * @param email Email to send
+     * @param recipientsPath Path of the file of recipients and tag values
+     * @return Number of recipients the email was sent to
+     * @throws EmptyTagValueException Thrown if an address' tag value is empty
+     * @throws HostConnectionFailureException Thrown if it can't connect to host
+     * @throws InvalidEmailAddressException Thrown if an address is invalid
+     * @throws InvalidRecipientFileException Thrown if the file is invalid
+     * @throws IOException Thrown if issue with attachment or recipient files
+     * @throws MessagingException Thrown if issue with generating message
+     * @throws MissingEmailServiceInboxName Thrown if error with inbox name
+     */
+    public long sendEmail(@NotNull Email email, @NotNull String recipientsPath)
+        throws EmptyTagValueException, HostConnectionFailureException,
+        InvalidEmailAddressException, InvalidRecipientFileException,
+        IOException, MessagingException, MissingEmailServiceInboxName {
+        EmailTag[] emailTags = email.getBody().getContents().getTags();
+        EmailRecipientReader.validate(recipientsPath, emailTags);
+        long sentCount = 0;
+        try (EmailRecipientReader recipientReader = new EmailRecipientReader(
+            recipientsPath, emailTags);
+             EmailSender emailSender = new EmailSender(this)) {
+            EmailAddress emailAddress;
+            while ((emailAddress = recipientReader.next()) != null) {
+                ArrayList<Pair<EmailAddress, Message.RecipientType>> group
+                    = new ArrayList<>();
+                group.add(new Pair<>(emailAddress, Message.RecipientType.TO));
+                emailSender.send(email.generateMessageWithTags(this, group));
+                sentCount++;
+            }
+        } catch (MailConnectException mailConnectException) {
+            throw new HostConnectionFailureException();
         }
+        if (email.getMessageId() != null) {
+            getInbox(EmailInbox.EmailInboxType.DRAFTS).deleteEmail(email);
+        }
+        return sentCount;
     }
 
     /**
@@ -542,9 +604,8 @@ public class EmailAccount implements Serializable {
      */
     public void spamEmail(Email email)
         throws HostConnectionFailureException, MessagingException, MissingEmailServiceInboxName, IOException {
-        getInbox(EmailInbox.EmailInboxType.INBOX).moveEmail(email,
-            getInbox(EmailInbox.EmailInboxType.SPAM));
-        getInbox(EmailInbox.EmailInboxType.INBOX).deleteEmail(email);
+        moveEmails(EmailInbox.EmailInboxType.INBOX,
+            EmailInbox.EmailInboxType.SPAM, email);
     }
 
     /**
@@ -555,9 +616,8 @@ public class EmailAccount implements Serializable {
      */
     public void notSpamEmail(Email email)
         throws HostConnectionFailureException, MessagingException, MissingEmailServiceInboxName, IOException {
-        getInbox(EmailInbox.EmailInboxType.SPAM).moveEmail(email,
-            getInbox(EmailInbox.EmailInboxType.INBOX));
-        getInbox(EmailInbox.EmailInboxType.SPAM).deleteEmail(email);
+        moveEmails(EmailInbox.EmailInboxType.SPAM,
+            EmailInbox.EmailInboxType.INBOX, email);
     }
 
     /**
@@ -568,9 +628,51 @@ public class EmailAccount implements Serializable {
      */
     public void restoreEmail(Email email)
         throws HostConnectionFailureException, MessagingException, MissingEmailServiceInboxName, IOException {
-        getInbox(EmailInbox.EmailInboxType.BIN).moveEmail(email,
-            getInbox(EmailInbox.EmailInboxType.INBOX));
-        getInbox(EmailInbox.EmailInboxType.BIN).deleteEmail(email);
+        moveEmails(EmailInbox.EmailInboxType.BIN,
+            EmailInbox.EmailInboxType.INBOX, email);
+    }
+
+    /**
+     * Moves emails between inboxes on the server and removes them from the
+     * inbox they were in.
+     * @param fromInboxType Inbox type the emails are in
+     * @param toInboxType Inbox type to move the emails to
+     * @param emails Emails to move
+     * @throws HostConnectionFailureException Thrown if you can't connect
+     * @throws IOException Thrown if error with the inbox store
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public void moveEmails(@NotNull EmailInbox.EmailInboxType fromInboxType,
+        @NotNull EmailInbox.EmailInboxType toInboxType,
+        Email @NotNull ... emails) throws HostConnectionFailureException,
+        IOException, MessagingException, MissingEmailServiceInboxName {
+        ArrayList<String> messageIds = new ArrayList<>();
+        for (Email email : emails) {
+            messageIds.add(email.getMessageId());
+        }
+        moveMessages(messageIds, fromInboxType, toInboxType);
+        for (Email email : emails) {
+            getInbox(fromInboxType).removeEmail(email);
+        }
+    }
+
+    /**
+     * Moves the messages with the given ids between inboxes on the server.
+     * @param messageIds Message ids of the emails
+     * @param fromInboxType Inbox type the emails are in
+     * @param toInboxType Inbox type to move the emails to
+     * @throws HostConnectionFailureException Thrown if you can't connect
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public void moveMessages(@NotNull Collection<String> messageIds,
+        @NotNull EmailInbox.EmailInboxType fromInboxType,
+        @NotNull EmailInbox.EmailInboxType toInboxType)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        getInbox(fromInboxType).moveMessages(messageIds,
+            getInbox(toInboxType));
     }
 
     /**
@@ -581,22 +683,49 @@ public class EmailAccount implements Serializable {
         @NotNull EmailInbox.EmailInboxType emailInboxType)
         throws HostConnectionFailureException, IOException,
         MessagingException, MissingEmailServiceInboxName {
+        deleteEmails(emailInboxType, email);
+    }
+
+    /**
+     * Deletes the given emails, moving them to the bin if they are in the
+     * inbox.
+     * @param emailInboxType Inbox type the emails are in
+     * @param emails Emails to delete
+     * @throws HostConnectionFailureException Thrown if you can't connect
+     * @throws IOException Thrown if error with the inbox store
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public void deleteEmails(@NotNull EmailInbox.EmailInboxType emailInboxType,
+        Email @NotNull ... emails) throws HostConnectionFailureException,
+        IOException, MessagingException, MissingEmailServiceInboxName {
         if (emailInboxType == EmailInbox.EmailInboxType.INBOX) {
-            getInbox(EmailInbox.EmailInboxType.INBOX).moveEmail(email,
-                getInbox(EmailInbox.EmailInboxType.BIN));
-            getInbox(EmailInbox.EmailInboxType.INBOX).deleteEmail(email);
+            moveEmails(EmailInbox.EmailInboxType.INBOX,
+                EmailInbox.EmailInboxType.BIN, emails);
         } else {
-            getInbox(emailInboxType).deleteEmail(email);
+            getInbox(emailInboxType).deleteEmails(emails);
         }
     }
 
     /**
-     * Changes the smtp host of the system properties.
+     * Deletes the messages with the given ids on the server, moving them to
+     * the bin if they are in the inbox.
+     * @param messageIds Message ids of the emails
+     * @param emailInboxType Inbox type the emails are in
+     * @throws HostConnectionFailureException Thrown if you can't connect
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
      */
-    private void changeSMTPHost() {
-        System.getProperties().remove("mail.smtp.host");
-        System.getProperties().setProperty("mail.smtp.host",
-            getEmailService().getSmtpHostName());
+    public void deleteMessages(@NotNull Collection<String> messageIds,
+        @NotNull EmailInbox.EmailInboxType emailInboxType)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        if (emailInboxType == EmailInbox.EmailInboxType.INBOX) {
+            moveMessages(messageIds, EmailInbox.EmailInboxType.INBOX,
+                EmailInbox.EmailInboxType.BIN);
+        } else {
+            getInbox(emailInboxType).deleteMessages(messageIds);
+        }
     }
 
 }
@@ -0,0 +1,177 @@
+package email;
+
+import email.email.body.EmailBody;
+import file.ExtendedFile;
+import file.attachment.AttachmentStore;
+import file.directory.DirectoryNotFoundException;
+import file.serializable.SerializableFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Local store of the full bodies of an inbox's emails, one file per email,
+ * so they are only read when an email is opened.
+ * @author Jordan Jones
+ */
+public class EmailBodyStore {
+
+    //CONSTANTS
+    public static final String DIRECTORY_NAME = "bodies";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String BODY_EXTENSION = ".ser";
+    private static final String BODY_PATH = "%s/%s" + BODY_EXTENSION;
+    private static final long RECLAIM_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    //Static Attributes
+    private static long lastReclaimMillis;
+
+    //Attributes
+    private final String directoryPath;
+
+    /**
+     * Creates the body store of an inbox.
+     * @param directoryPath Path of the directory of the body files
+     */
+    public EmailBodyStore(@NotNull String directoryPath) {
+        this.directoryPath = directoryPath;
+    }
+
+    /**
+     * Saves the full body of an email.
+     * @param messageId Message id of the email
+     * @param emailBody Full body of the email
+     * @throws IOException Thrown if error with the body file
+     */
+    public void save(@NotNull String messageId, @NotNull EmailBody emailBody)
+        throws IOException {
+        SerializableFile<EmailBody> serializableFile
+            = new SerializableFile<>(bodyPath(messageId));
+        try {
+            serializableFile.serialize(emailBody);
+        } catch (DirectoryNotFoundException directoryNotFoundException) {
+            Files.createDirectories(Paths.get(directoryPath));
+            serializableFile.serialize(emailBody);
+        }
+    }
+
+    /**
+     * Loads the full body of an email.
+     * @param messageId Message id of the email
+     * @return Full body of the email (null if it is not saved)
+     * @throws ClassNotFoundException Thrown if the body class can't be found
+     */
+    public EmailBody load(@NotNull String messageId)
+        throws ClassNotFoundException {
+        try {
+            return new SerializableFile<EmailBody>(bodyPath(messageId))
+                .deserialize();
+        } catch (IOException ioException) {
+            //Missing or only partly written so it is fetched again
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the full body of an email.
+     * @param messageId Message id of the email
+     * @throws IOException Thrown if error deleting the body file
+     */
+    public void delete(@NotNull String messageId) throws IOException {
+        Files.deleteIfExists(Paths.get(bodyPath(messageId)));
+    }
+
+    /**
+     * Deletes the stored attachment contents that no saved body of any
+     * account uses, at most once an hour. Contents used within the last hour
+     * are kept, as the body using them may not have been saved yet.
+     * @throws ClassNotFoundException Thrown if a body class can't be found
+     * @throws IOException Thrown if error reading bodies or contents
+     */
+    static void reclaimAttachments()
+        throws ClassNotFoundException, IOException {
+        long startMillis = System.currentTimeMillis();
+        synchronized (EmailBodyStore.class) {
+            if (startMillis - lastReclaimMillis < RECLAIM_INTERVAL_MILLIS) {
+                return;
+            }
+            lastReclaimMillis = startMillis;
+        }
+        AttachmentStore.sweep(findAttachmentHashes(EmailAccount.ACCOUNTS_PATH),
+            startMillis - RECLAIM_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Finds the hashes of the stored attachment contents used by the body
+     * files under a directory.
+     * @param rootPath Path of the directory to search
+     * @return Hashes of the contents used by the body files
+     * @throws ClassNotFoundException Thrown if a body class can't be found
+     * @throws IOException Thrown if error reading the directory
+     */
+    static @NotNull Set<String> findAttachmentHashes(@NotNull String rootPath)
+        throws ClassNotFoundException, IOException {
+        HashSet<String> hashes = new HashSet<>();
+        Path root = Paths.get(rootPath);
+        if (!Files.isDirectory(root)) {
+            return hashes;
+        }
+        List<Path> bodyPaths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            bodyPaths = walk.filter(path -> path.getParent() != null
+                && path.getParent().getFileName().toString()
+                    .equals(DIRECTORY_NAME)
+                && path.getFileName().toString().endsWith(BODY_EXTENSION))
+                .toList();
+        }
+        for (Path bodyPath : bodyPaths) {
+            EmailBody emailBody;
+            try {
+                emailBody = new SerializableFile<EmailBody>(
+                    bodyPath.toString()).deserialize();
+            } catch (IOException ioException) {
+                //Deleted or only partly written so it is fetched again
+                continue;
+            }
+            if (emailBody.getAttachments() != null) {
+                for (ExtendedFile attachment : emailBody.getAttachments()) {
+                    if (attachment.getAttachmentHash() != null) {
+                        hashes.add(attachment.getAttachmentHash());
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Gets the path of an email's body file named by the hash of its message
+     * id, as message ids contain characters that are not valid in file names.
+     * @param messageId Message id of the email
+     * @return Path of the email's body file
+     */
+    private @NotNull String bodyPath(@NotNull String messageId) {
+        try {
+            byte[] hash = MessageDigest.getInstance(HASH_ALGORITHM)
+                .digest(messageId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte hashByte : hash) {
+                name.append(String.format("%02x", hashByte));
+            }
+            return String.format(BODY_PATH, directoryPath, name);
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+
+}
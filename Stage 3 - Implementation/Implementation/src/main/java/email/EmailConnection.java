@@ -0,0 +1,219 @@
+package email;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.util.MailConnectException;
+import email.service.EmailService;
+import email.service.MissingEmailServiceInboxName;
+import org.jetbrains.annotations.NotNull;
+
+import javax.mail.Folder;
+import javax.mail.MessagingException;
+import javax.mail.Store;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived connection of an email account to its IMAP server, with one open
+ * folder per inbox type. Folders are never closed to make room for others as
+ * another thread may be in the middle of a command on them.
+ * @author Jordan Jones
+ */
+public class EmailConnection {
+
+    //CONSTANTS
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final String NOOP_COMMAND = "NOOP";
+    private static final ScheduledExecutorService KEEP_ALIVE_EXECUTOR
+        = Executors.newSingleThreadScheduledExecutor(
+            EmailExecutor.threadFactory("email-keep-alive-"));
+
+    //Attributes
+    private final EmailAccount emailAccount;
+    private Store store;
+    private final EnumMap<EmailInbox.EmailInboxType, Folder> folders
+        = new EnumMap<>(EmailInbox.EmailInboxType.class);
+    private ScheduledFuture<?> keepAlive;
+
+    /**
+     * Creates the connection of an email account.
+     * @param emailAccount Email account the connection is for
+     */
+    public EmailConnection(@NotNull EmailAccount emailAccount) {
+        this.emailAccount = emailAccount;
+    }
+
+    /**
+     * Gets the email account the connection is for.
+     * @return Email account the connection is for
+     */
+    private EmailAccount getEmailAccount() {
+        return emailAccount;
+    }
+
+    /**
+     * Gets the authenticated store, reconnecting it if it has dropped.
+     * @return Authenticated store
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    public synchronized Store getStore()
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        if (store == null || !store.isConnected()) {
+            folders.clear();
+            store = connectStore();
+            if (keepAlive == null) {
+                keepAlive = KEEP_ALIVE_EXECUTOR.scheduleWithFixedDelay(
+                    this::keepAlive, KEEP_ALIVE_MINUTES, KEEP_ALIVE_MINUTES,
+                    TimeUnit.MINUTES);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Gets the open folder of the given inbox, reopening it if it has closed.
+     * @param emailInboxType Inbox type
+     * @return Open folder of the given inbox
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    public synchronized Folder getFolder(
+        EmailInbox.EmailInboxType emailInboxType)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        Folder folder = folders.get(emailInboxType);
+        if (folder == null || !folder.isOpen()) {
+            folder = getStore().getFolder(getFolderName(emailInboxType));
+            try {
+                folder.open(Folder.READ_WRITE);
+            } catch (MailConnectException mailConnectException) {
+                throw new HostConnectionFailureException();
+            }
+            folders.put(emailInboxType, folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Connects a new store separate from the pooled one.
+     * @return Newly connected store
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    public Store connectStore() throws HostConnectionFailureException,
+        MessagingException, MissingEmailServiceInboxName {
+        Store store = getEmailAccount().getSession().getStore();
+        try {
+            store.connect(getEmailAccount().getEmailService()
+                    .getImapHostName(),
+                getEmailAccount().getEmailAddress().getAddress(),
+                getEmailAccount().getPassword());
+        } catch (MailConnectException mailConnectException) {
+            throw new HostConnectionFailureException();
+        }
+        BacklogAction.wake();
+        return store;
+    }
+
+    /**
+     * Gets the server folder name of the given inbox.
+     * @param emailInboxType Inbox type
+     * @return Server folder name of the given inbox
+     * @throws EnumConstantNotPresentException Thrown if no code for enum
+     */
+    public String getFolderName(
+        @NotNull EmailInbox.EmailInboxType emailInboxType) {
+        EmailService emailService = getEmailAccount().getEmailService();
+        switch (emailInboxType) {
+            case INBOX:
+                return emailService.getDefaultInboxName();
+            case DRAFTS:
+                return emailService.getDraftsInboxName();
+            case SENT:
+                return emailService.getSentInboxName();
+            case SPAM:
+                return emailService.getSpamInboxName();
+            case BIN:
+                return emailService.getBinInboxName();
+            default:
+                throw new EnumConstantNotPresentException(
+                    EmailInbox.EmailInboxType.class, emailInboxType.toString());
+        }
+    }
+
+    /**
+     * Sends a NOOP down every open connection so the server keeps them alive.
+     */
+    private synchronized void keepAlive() {
+        if (store == null) {
+            return;
+        }
+        Iterator<Folder> iterator = folders.values().iterator();
+        while (iterator.hasNext()) {
+            Folder folder = iterator.next();
+            try {
+                if (folder.isOpen()) {
+                    ((IMAPFolder) folder).doCommand(protocol -> {
+                        protocol.simpleCommand(NOOP_COMMAND, null);
+                        return null;
+                    });
+                } else {
+                    iterator.remove();
+                }
+            } catch (MessagingException messagingException) {
+                //Dropped so it is reopened the next time it is needed
+                iterator.remove();
+                closeFolder(folder);
+            }
+        }
+        if (!store.isConnected()) {
+            //Checking the store sends its own NOOP and drops dead connections
+            folders.clear();
+        }
+    }
+
+    /**
+     * Closes the given folder.
+     * @param folder Folder to close
+     */
+    private void closeFolder(@NotNull Folder folder) {
+        try {
+            if (folder.isOpen()) {
+                folder.close(false);
+            }
+        } catch (MessagingException messagingException) {
+            //Connection already closed
+        }
+    }
+
+    /**
+     * Closes the store and all of its open folders.
+     */
+    public synchronized void close() {
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+            keepAlive = null;
+        }
+        for (Folder folder : folders.values()) {
+            closeFolder(folder);
+        }
+        folders.clear();
+        if (store != null) {
+            try {
+                store.close();
+            } catch (MessagingException messagingException) {
+                //Connection already closed
+            }
+            store = null;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package email;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the blocking mail work of the system, one virtual thread per task, so
+ * waiting on a mail server never holds up the JavaFX thread or a platform
+ * thread.
+ * @author Jordan Jones
+ */
+public class EmailExecutor {
+
+    //CONSTANTS
+    private static final String MAIL_THREAD_PREFIX = "mail-io-";
+    private static final ExecutorService MAIL_EXECUTOR
+        = Executors.newThreadPerTaskExecutor(
+            threadFactory(MAIL_THREAD_PREFIX));
+
+    /**
+     * Runs a task on its own virtual thread.
+     * @param task Task to run
+     */
+    public static void execute(@NotNull Runnable task) {
+        MAIL_EXECUTOR.execute(task);
+    }
+
+    /**
+     * Gets the executor that runs each task on its own virtual thread.
+     * @return Executor that runs each task on its own virtual thread
+     */
+    public static @NotNull ExecutorService getExecutor() {
+        return MAIL_EXECUTOR;
+    }
+
+    /**
+     * Creates a factory of numbered virtual threads.
+     * @param prefix Prefix of the names of the threads
+     * @return Factory of numbered virtual threads
+     */
+    public static @NotNull ThreadFactory threadFactory(@NotNull String prefix) {
+        return Thread.ofVirtual().name(prefix, 0).factory();
+    }
+
+}
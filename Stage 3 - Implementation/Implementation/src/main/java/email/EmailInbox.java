@@ -1,7 +1,8 @@
 package email;
 
+import com.sun.mail.imap.IMAPFolder;
 import com.sun.mail.imap.IMAPMessage;
-import com.sun.mail.util.MailConnectException;
+import com.sun.mail.imap.IMAPStore;
 import email.address.EmailAddress;
 import email.address.InvalidEmailAddressException;
 import email.email.Email;
@@ -10,15 +11,16 @@ import email.email.body.EmailBody;
 import email.email.body.EmailContents;
 import email.email.body.tag.EmailListTag;
 import email.email.body.tag.EmailTag;
-import email.service.EmailService;
+import email.search.EmailSearchIndex;
+import email.search.EmailSearchQuery;
+import email.search.EmailSearchResult;
 import email.service.MissingEmailServiceInboxName;
 import file.ExtendedFile;
-import file.directory.DirectoryNotFoundException;
+import file.attachment.AttachmentStore;
 import file.serializable.SerializableFile;
 import file.serializable.SerializableFileNotFoundException;
 import gui.Main;
 import javafx.util.Pair;
-import org.jboss.resource.adapter.jdbc.remote.SerializableInputStream;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
@@ -28,7 +30,11 @@ import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.search.MessageIDTerm;
+import javax.mail.search.OrTerm;
+import javax.mail.search.SearchTerm;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -39,24 +45,22 @@ import java.util.regex.Pattern;
  */
 public class EmailInbox {
 
+    //CONSTANTS
+    private static final int FETCH_BATCH_SIZE = 250;
+    private static final String MESSAGE_ID_HEADER = "Message-ID";
+    private static final String MOVE_CAPABILITY = "MOVE";
+    private static final String UIDPLUS_CAPABILITY = "UIDPLUS";
+
     //Attributes
     private EmailAccount emailAccount;
     private EmailInboxType emailInboxType;
-    private Session session;
-    private Folder folder;
-    private final TreeMap<Pair<String, Date>, Email> emails
-        = new TreeMap<>((o1, o2) -> {
-        int index = o2.getValue().compareTo(o1.getValue());
-        if (index != 0) {
-            return index;
-        } else {
-            if (o2.getKey().equals(o1.getKey())) {
-                return 0;
-            } else {
-                return 1;
-            }
-        }
-    });
+    private EmailInboxSyncState syncState;
+    private EmailInboxStore store;
+    private EmailBodyStore bodyStore;
+    private volatile boolean isLoaded;
+    private volatile boolean isIndexed;
+    private final EmailInboxIndex emails = new EmailInboxIndex();
+    private final Object syncLock = new Object();
 
     /**
      * Email inbox containing multiple emails.
@@ -93,71 +97,24 @@ public class EmailInbox {
     }
 
     /**
-     * Sets the session of the inbox.
-     * @throws HostConnectionFailureException Thrown if error with details
-     * @throws MessagingException Thrown if error with server
-     * @throws MissingEmailServiceInboxName Thrown if email service error
-     */
-    private void setSession() throws HostConnectionFailureException,
-        MessagingException, MissingEmailServiceInboxName {
-        if (this.session == null) {
-            this.session = emailAccount.getSession();
-        }
-    }
-
-    /**
-     * Sets the folder of the inbox.
-     * @throws EnumConstantNotPresentException Thrown if no code for enum
+     * Connects a new handle to the server folder of the inbox.
+     * @return New handle to the server folder of the inbox
      * @throws HostConnectionFailureException Thrown if error with host account
      * @throws MessagingException Thrown if error with java mail
      * @throws MissingEmailServiceInboxName Thrown if email service error
      */
-    private void setFolder()
-        throws HostConnectionFailureException, MessagingException,
-        MissingEmailServiceInboxName {
-        if (this.folder == null) {
-            setSession();
-            Store store = getSession().getStore();
-            try {
-                store.connect(getEmailAccount().getEmailService()
-                        .getImapHostName(),
-                    getEmailAccount().getEmailAddress().getAddress(),
-                    getEmailAccount().getPassword());
-            } catch (MailConnectException mailConnectException) {
-                throw new HostConnectionFailureException();
-            }
-            EmailService emailService = getEmailAccount().getEmailService();
-            String inbox;
-            System.out.println(emailService);
-            switch (getEmailInboxType()) {
-                case INBOX:
-                    inbox = emailService.getDefaultInboxName();
-                    break;
-                case DRAFTS:
-                    inbox = emailService.getDraftsInboxName();
-                    break;
-                case SENT:
-                    inbox = emailService.getSentInboxName();
-                    break;
-                case SPAM:
-                    inbox = emailService.getSpamInboxName();
-                    break;
-                case BIN:
-                    inbox = emailService.getBinInboxName();
-                    break;
-                default:
-                    throw new EnumConstantNotPresentException(
-                        EmailInboxType.class, getEmailInboxType().toString());
-            }
-            this.folder = store.getFolder(inbox);
-        }
+    Folder newFolder() throws HostConnectionFailureException,
+        MessagingException, MissingEmailServiceInboxName {
+        EmailConnection connection = getEmailAccount().getConnection();
+        return connection.connectStore().getFolder(
+            connection.getFolderName(getEmailInboxType()));
     }
 
     /**
      * Gets the email account.
      * @return Email account
      */
-    private EmailAccount getEmailAccount() {
+    EmailAccount getEmailAccount() {
         return emailAccount;
     }
 
@@ -170,74 +127,267 @@ public class EmailInbox {
     }
 
     /**
-     * Gets the inbox session.
-     * @return Inbox session
-     */
-    private Session getSession() {
-        return session;
-    }
-
-    /**
-     * Gets the inbox folder.
+     * Gets the inbox folder from the account's connection (already open).
      * @return Inbox folder
      * @throws HostConnectionFailureException Thrown if error with host account
      * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
      */
     private Folder getFolder() throws HostConnectionFailureException,
         MessagingException, MissingEmailServiceInboxName {
-        if (folder == null) {
-            setFolder();
+        return getEmailAccount().getConnection().getFolder(
+            getEmailInboxType());
+    }
+
+    /**
+     * Gets the sync state of the inbox.
+     * @return Sync state of the inbox
+     * @throws ClassNotFoundException Thrown if error with the sync state file
+     * @throws IOException Thrown if error with the sync state file
+     */
+    private synchronized EmailInboxSyncState getSyncState()
+        throws ClassNotFoundException, IOException {
+        if (syncState == null) {
+            syncState = EmailInboxSyncState.load(getSyncStatePath());
         }
-        return folder;
+        return syncState;
+    }
+
+    /**
+     * Gets the path of the inbox's sync state file.
+     * @return Path of the inbox's sync state file
+     */
+    private @NotNull String getSyncStatePath() {
+        return getEmailAccount().getInboxesPath() + "/"
+            + getEmailInboxType().toString().toLowerCase() + "-sync.ser";
     }
 
     /**
-     * Gets the email map.
-     * @return Email map
+     * Gets the local store of the inbox's emails.
+     * @return Local store of the inbox's emails
      */
-    public TreeMap<Pair<String, Date>, Email> getEmails() {
+    private synchronized EmailInboxStore getStore() {
+        if (store == null) {
+            store = new EmailInboxStore(getEmailAccount().getInboxesPath()
+                + "/" + getEmailInboxType().toString().toLowerCase());
+        }
+        return store;
+    }
+
+    /**
+     * Gets the local store of the full bodies of the inbox's emails.
+     * @return Local store of the full bodies of the inbox's emails
+     */
+    private synchronized EmailBodyStore getBodyStore() {
+        if (bodyStore == null) {
+            bodyStore = new EmailBodyStore(getEmailAccount().getInboxesPath()
+                + "/" + getEmailInboxType().toString().toLowerCase()
+                + "/" + EmailBodyStore.DIRECTORY_NAME);
+        }
+        return bodyStore;
+    }
+
+    /**
+     * Gets the emails of the inbox indexed by message id and received date.
+     * @return Emails of the inbox
+     */
+    public EmailInboxIndex getEmails() {
         return emails;
     }
 
     /**
-     * Saves the emails locally.
-     * @throws IOException Thrown if error with serializable file
+     * Gets the saved email with the given message id.
+     * @param messageId Message id of the email
+     * @return Saved email (null if the email is not saved)
+     */
+    public synchronized Email getSavedEmail(String messageId) {
+        return getEmails().get(messageId);
+    }
+
+    /**
+     * Gets the saved emails between two positions in date order, newest
+     * first, stopping early at the last email.
+     * @param from Position of the first email
+     * @param to Position after the last email
+     * @return Saved emails between the positions
+     */
+    public synchronized @NotNull List<Email> getSavedEmails(int from, int to) {
+        int end = Math.min(to, getEmails().size());
+        return from >= end ? new ArrayList<>() : getEmails().range(from, end);
+    }
+
+    /**
+     * Gets the position of a saved email in date order.
+     * @param email Saved email
+     * @return Position of the email (-1 if the email is not saved)
+     */
+    public synchronized int getSavedEmailIndex(@NotNull Email email) {
+        return getEmails().indexOf(email);
+    }
+
+    /**
+     * Gets the number of saved emails.
+     * @return Number of saved emails
+     */
+    public synchronized int getSavedEmailCount() {
+        return getEmails().size();
+    }
+
+    /**
+     * Saves the read status of an email locally.
+     * @param email Email whose read status has changed
+     * @throws IOException Thrown if error with the inbox store
+     */
+    public void saveReadStatus(@NotNull Email email) throws IOException {
+        getStore().read(email);
+    }
+
+    /**
+     * Removes an email from the inbox locally.
+     * @param email Email to remove
+     * @throws IOException Thrown if error with the inbox store
      */
-    public void save() throws IOException {
-        Email[] emails = new Email[getEmails().size()];
-        int i = 0;
-        for (Email email : getEmails().values()) {
-            emails[i] = email;
-            i++;
+    public synchronized void removeEmail(@NotNull Email email)
+        throws IOException {
+        if (getEmails().remove(email.getMessageId()) != null) {
+            getStore().delete(email.getMessageId());
+            getBodyStore().delete(email.getMessageId());
+            EmailAccount.getSearchIndex().remove(getEmailAccount().getId(),
+                getEmailInboxType(), email.getMessageId());
         }
-        SerializableFile<Email[]> serializableFile = new SerializableFile<>(
-            getEmailAccount().getInboxesPath() + "/"
-                + getEmailInboxType().toString().toLowerCase() + ".ser");
-        try {
-            serializableFile.serialize(emails);
-        } catch (DirectoryNotFoundException directoryNotFoundException) {
-            serializableFile.getDirectory().create();
-            serializableFile.serialize(emails);
+    }
+
+    /**
+     * Loads the full body of an email that only has a summary of it, from the
+     * device if it is saved, otherwise from the server. The body is only
+     * saved if the email is, so opening a search result does not leave a body
+     * behind for an email the inbox does not have.
+     * @param email Email to load the full body of
+     * @throws ClassNotFoundException Thrown if the body class can't be found
+     * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws InvalidEmailAddressException Thrown if error with an address
+     * @throws IOException Thrown if error with the body or an attachment file
+     * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    public void loadBody(@NotNull Email email) throws ClassNotFoundException,
+        HostConnectionFailureException, InvalidEmailAddressException,
+        IOException, MessagingException, MissingEmailServiceInboxName {
+        if (!email.getBody().getIsSummary()) {
+            return;
+        }
+        EmailBody emailBody = getBodyStore().load(email.getMessageId());
+        if (emailBody == null) {
+            emailBody = email(email.getMessageId()).getBody();
+            if (getSavedEmail(email.getMessageId()) != null) {
+                getBodyStore().save(email.getMessageId(), emailBody);
+            }
         }
+        email.setEmail(email.getHeader(), emailBody);
     }
 
     /**
-     * Loads the emails locally.
+     * Loads the emails locally, unless they have already been loaded. Once
+     * loaded this returns without waiting for the inbox.
      * @throws ClassNotFoundException Thrown if an email class can't be found
-     * @throws IOException Thrown if error with an email box's fxml file
+     * @throws IOException Thrown if error with the inbox store
      */
-    public void load()
-        throws ClassNotFoundException, IOException  {
-        SerializableFile<Email[]> serializableFile = new SerializableFile<>(
-            getEmailAccount().getInboxesPath() + "/"
-                + getEmailInboxType().toString().toLowerCase() + ".ser");
+    public void load() throws ClassNotFoundException, IOException  {
+        if (!isLoaded) {
+            loadStore();
+        }
+    }
+
+    /**
+     * Loads the emails from the inbox store, unless another thread loaded them
+     * first.
+     * @throws ClassNotFoundException Thrown if an email class can't be found
+     * @throws IOException Thrown if error with the inbox store
+     */
+    private synchronized void loadStore()
+        throws ClassNotFoundException, IOException {
+        if (isLoaded) {
+            return;
+        }
+        Collection<Email> emails = getStore().load();
+        if (emails.isEmpty()) {
+            emails = loadLegacy();
+        }
+        for (Email email : emails) {
+            if (!email.getBody().getIsSummary()) {
+                //Saved before bodies were stored separately
+                getBodyStore().save(email.getMessageId(), email.getBody());
+                email.setEmail(email.getHeader(),
+                    email.getBody().getSummary(email.getHeader()));
+                getStore().put(email);
+            }
+            getEmails().put(email);
+        }
+        isLoaded = true;
+    }
+
+    /**
+     * Adds the loaded emails that were saved before the search index to it,
+     * unless that has already been done. The inbox is not locked while they
+     * are added, as that waits for the search index to be loaded.
+     * @throws ClassNotFoundException Thrown if the body class can't be found
+     * @throws IOException Thrown if error with the body store or search index
+     */
+    public void indexSavedEmails() throws ClassNotFoundException, IOException {
+        if (isIndexed) {
+            return;
+        }
+        List<Email> emails = getSavedEmails(0, Integer.MAX_VALUE);
+        for (Email email : emails) {
+            index(email);
+        }
+        EmailAccount.getSearchIndex().flush();
+        isIndexed = true;
+    }
+
+    /**
+     * Adds an email saved before the search index to it, with its full body
+     * if it is saved.
+     * @param email Email to add to the search index
+     * @throws ClassNotFoundException Thrown if the body class can't be found
+     * @throws IOException Thrown if error with the body store or search index
+     */
+    private void index(@NotNull Email email)
+        throws ClassNotFoundException, IOException {
+        EmailSearchIndex searchIndex = EmailAccount.getSearchIndex();
+        if (searchIndex.contains(getEmailAccount().getId(),
+            getEmailInboxType(), email.getMessageId())) {
+            return;
+        }
+        EmailBody emailBody = getBodyStore().load(email.getMessageId());
+        searchIndex.add(getEmailAccount().getId(), getEmailInboxType(),
+            emailBody == null ? email : new Email(email.getMessageId(),
+                email.getHeader(), emailBody, email.getIsRead()));
+    }
+
+    /**
+     * Moves the emails of an inbox file from before the inbox store into it.
+     * @return Emails of the old inbox file
+     * @throws ClassNotFoundException Thrown if an email class can't be found
+     * @throws IOException Thrown if error with the inbox file or store
+     */
+    private @NotNull Collection<Email> loadLegacy()
+        throws ClassNotFoundException, IOException {
+        String filePath = getEmailAccount().getInboxesPath() + "/"
+            + getEmailInboxType().toString().toLowerCase() + ".ser";
         try {
-            for (Email email : serializableFile.deserialize()) {
-                getEmails().put(new Pair<>(email.getMessageId(), email
-                    .getHeader().getReceivedDate()), email);
+            Email[] emails = new SerializableFile<Email[]>(filePath)
+                .deserialize();
+            for (Email email : emails) {
+                getBodyStore().save(email.getMessageId(), email.getBody());
+                email.setEmail(email.getHeader(),
+                    email.getBody().getSummary(email.getHeader()));
             }
+            getStore().put(emails);
+            Files.deleteIfExists(Paths.get(filePath));
+            return Arrays.asList(emails);
         } catch (SerializableFileNotFoundException fileNotFoundException) {
-            //No files to load;
+            return new ArrayList<>();
         }
     }
 
@@ -249,10 +399,9 @@ public class EmailInbox {
         Email[] add = new Email[0];
         String[] delete = new String[0];
         try {
-            HashSet<String> emailIds = new HashSet<>(Arrays.asList(emailIds()));
-            add = refreshAdd(emailIds);
-            delete = refreshDelete(emailIds);
-            save();
+            Pair<Email[], String[]> update = sync();
+            add = update.getKey();
+            delete = update.getValue();
         } catch (HostConnectionFailureException exception) {
             // No internet connection so try again
         } catch (Exception e) {
@@ -261,125 +410,343 @@ public class EmailInbox {
         return new Pair<>(add, delete);
     }
 
+    /**
+     * Syncs the inbox with the server folder using the folder's UIDs. Only one
+     * sync runs at a time, and the inbox itself is only locked while the
+     * fetched emails are stored, so it can still be read during a sync.
+     * @return Added emails and deleted email ids
+     * @throws ClassNotFoundException Thrown if error with the sync state file
+     * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws InvalidEmailAddressException Thrown if error with an address
+     * @throws IOException Thrown if error with an email's attachments
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    private Pair<Email[], String[]> sync()
+        throws ClassNotFoundException, HostConnectionFailureException,
+        InvalidEmailAddressException, IOException, MessagingException,
+        MissingEmailServiceInboxName {
+        synchronized (syncLock) {
+            boolean isSynced = false;
+            try {
+                Pair<Email[], String[]> update = syncFolder();
+                isSynced = true;
+                return update;
+            } finally {
+                if (!isSynced) {
+                    //Reloaded from the device so nothing half synced is saved
+                    synchronized (this) {
+                        this.syncState = null;
+                    }
+                }
+            }
+        }
+    }
 
     /**
-     * Adds emails if it needs to.
-     * @param emailIds Ids of emails to convert into messages
+     * Syncs the inbox with the server folder, saving the sync state only
+     * after the emails it records have been stored.
+     * @return Added emails and deleted email ids
+     * @throws ClassNotFoundException Thrown if error with the sync state file
      * @throws HostConnectionFailureException Thrown if error with host account
      * @throws InvalidEmailAddressException Thrown if error with an address
      * @throws IOException Thrown if error with an email's attachments
      * @throws MessagingException Thrown if error with email server
-     * @return Added ids
+     * @throws MissingEmailServiceInboxName Thrown if email service error
      */
-    private Email @NotNull [] refreshAdd(@NotNull HashSet<String> emailIds)
+    private Pair<Email[], String[]> syncFolder()
+        throws ClassNotFoundException, HostConnectionFailureException,
+        InvalidEmailAddressException, IOException, MessagingException,
+        MissingEmailServiceInboxName {
+        Folder folder = getFolder();
+        UIDFolder uidFolder = (UIDFolder) folder;
+        EmailInboxSyncState syncState = getSyncState();
+        boolean isResync = !syncState.isValid(uidFolder.getUIDValidity());
+        if (isResync) {
+            syncState.reset(uidFolder.getUIDValidity());
+        }
+        int syncedCount = syncState.size();
+        Message[] newMessages = refreshMessages(uidFolder,
+            syncState.getHighestUid());
+        Email[] add = refreshAdd(uidFolder, newMessages, syncState);
+        String[] delete = new String[0];
+        boolean isDelete = folder.getMessageCount()
+            - newMessages.length != syncedCount;
+        if (isResync || isDelete) {
+            delete = refreshDelete(folder, syncState);
+        }
+        synchronized (this) {
+            getStore().delete(delete);
+            for (String messageId : delete) {
+                getBodyStore().delete(messageId);
+                EmailAccount.getSearchIndex().remove(
+                    getEmailAccount().getId(), getEmailInboxType(), messageId);
+            }
+        }
+        EmailAccount.getSearchIndex().flush();
+        if (isResync || isDelete || newMessages.length > 0) {
+            syncState.save(getSyncStatePath());
+        }
+        return new Pair<>(add, delete);
+    }
+
+    /**
+     * Gets the messages that have arrived since the last sync.
+     * @param uidFolder Open server folder
+     * @param highestUid Highest UID that has already been synced
+     * @return Messages that have arrived since the last sync
+     * @throws MessagingException Thrown if error with email server
+     */
+    private Message @NotNull [] refreshMessages(@NotNull UIDFolder uidFolder,
+        long highestUid) throws MessagingException {
+        ArrayList<Message> messages = new ArrayList<>();
+        for (Message message : uidFolder.getMessagesByUID(
+            highestUid + 1, UIDFolder.LASTUID)) {
+            //UID n:* always returns the last message even if it is older
+            if (message != null && uidFolder.getUID(message) > highestUid) {
+                messages.add(message);
+            }
+        }
+        return messages.toArray(new Message[0]);
+    }
+
+    /**
+     * Adds the new messages to the inbox, storing them in batches and only
+     * then recording their UIDs as synced, so a failed sync fetches them
+     * again.
+     * @param uidFolder Open server folder
+     * @param messages Messages that have arrived since the last sync
+     * @param syncState Sync state of the inbox
+     * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws InvalidEmailAddressException Thrown if error with an address
+     * @throws IOException Thrown if error with an email's attachments
+     * @throws MessagingException Thrown if error with email server
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     * @return Added emails
+     */
+    private Email @NotNull [] refreshAdd(@NotNull UIDFolder uidFolder,
+        Message @NotNull [] messages, @NotNull EmailInboxSyncState syncState)
         throws HostConnectionFailureException, InvalidEmailAddressException,
         IOException, MessagingException, MissingEmailServiceInboxName {
-        HashSet<String> addIds = new HashSet<>();
-        for (String emailId : emailIds) {
-            boolean isNew = true;
-            for (Pair<String, Date> pair : getEmails().keySet()) {
-                if (pair.getKey().equals(emailId)) {
-                    isNew = false;
-                    break;
+        ArrayList<Email> emails = new ArrayList<>();
+        ArrayList<Email> batchEmails = new ArrayList<>();
+        LinkedHashMap<Long, String> batchIds = new LinkedHashMap<>();
+        HashSet<String> fetchedIds = new HashSet<>();
+        prefetch(messages);
+        for (Message message : messages) {
+            if (batchIds.size() == FETCH_BATCH_SIZE) {
+                storeAdded(batchEmails, batchIds, syncState);
+            }
+            String messageId = null;
+            try {
+                messageId = ((IMAPMessage) message).getMessageID();
+            } catch (MessageRemovedException messageRemovedException) {
+                continue;
+            } catch (MessagingException messagingException) {
+                if (messagingException.getMessage() == null
+                    || !messagingException.getMessage().equals(
+                    "Failed to load IMAP envelope")) {
+                    throw messagingException;
                 }
+                //Not an email but still synced so it is not fetched again
             }
-            if (isNew) {
-                addIds.add(emailId);
+            batchIds.put(uidFolder.getUID(message), messageId);
+            if (messageId != null && getSavedEmail(messageId) == null
+                && fetchedIds.add(messageId)) {
+                Email email = email((IMAPMessage) message);
+                getBodyStore().save(messageId, email.getBody());
+                EmailAccount.getSearchIndex().add(getEmailAccount().getId(),
+                    getEmailInboxType(), email);
+                email.setEmail(email.getHeader(),
+                    email.getBody().getSummary(email.getHeader()));
+                EmailAccount.addToHistory(email.getHeader().getAllAddresses());
+                batchEmails.add(email);
+                emails.add(email);
             }
         }
-        Email[] emails = emails(addIds.toArray(new String[0]));
+        storeAdded(batchEmails, batchIds, syncState);
+        return emails.toArray(new Email[0]);
+    }
+
+    /**
+     * Stores a batch of added emails and then records their messages as
+     * synced.
+     * @param emails Added emails of the batch, cleared once stored
+     * @param messageIds Message id of each UID of the batch, cleared once
+     * recorded
+     * @param syncState Sync state of the inbox
+     * @throws IOException Thrown if error with the inbox store
+     */
+    private synchronized void storeAdded(@NotNull List<Email> emails,
+        @NotNull Map<Long, String> messageIds,
+        @NotNull EmailInboxSyncState syncState) throws IOException {
+        getStore().put(emails.toArray(new Email[0]));
         for (Email email : emails) {
-            EmailAccount.addToHistory(email.getHeader().getAllAddresses());
-            Pair<String, Date> pair = new Pair<>(email
-                .getMessageId(), email.getHeader()
-                .getReceivedDate());
-            getEmails().put(pair, email);
+            getEmails().put(email);
         }
-        return emails;
+        for (Map.Entry<Long, String> entry : messageIds.entrySet()) {
+            syncState.addMessage(entry.getKey(), entry.getValue());
+        }
+        emails.clear();
+        messageIds.clear();
     }
 
     /**
-     * Deletes emails if it needs to.
-     * @param emailIds Ids of emails to convert into messages
+     * Deletes the emails that have been expunged from the server folder.
+     * @param folder Open server folder
+     * @param syncState Sync state of the inbox
      * @return Deleted email ids
+     * @throws MessagingException Thrown if error with email server
      */
-    private String @NotNull [] refreshDelete(
-        @NotNull HashSet<String> emailIds) {
-        HashSet<String> deleteIds = new HashSet<>();
-        for (Pair<String, Date> pair : getEmails().keySet()) {
-            if (!emailIds.contains(pair.getKey())) {
-                deleteIds.add(pair.getKey());
+    private String @NotNull [] refreshDelete(@NotNull Folder folder,
+        @NotNull EmailInboxSyncState syncState) throws MessagingException {
+        UIDFolder uidFolder = (UIDFolder) folder;
+        Message[] messages = folder.getMessages();
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+        folder.fetch(messages, fetchProfile);
+        HashSet<Long> serverUids = new HashSet<>();
+        for (Message message : messages) {
+            serverUids.add(uidFolder.getUID(message));
+        }
+        for (Long uid : syncState.getUids()) {
+            if (!serverUids.contains(uid)) {
+                syncState.removeMessage(uid);
             }
         }
-        for (String deleteId : deleteIds) {
-            for (Pair<String, Date> pair : getEmails().keySet()) {
-                if (pair.getKey().equals(deleteId)) {
-                    getEmails().remove(pair);
-                    break;
+        HashSet<String> serverIds = new HashSet<>(syncState.getMessageIds());
+        ArrayList<String> deleteIds = new ArrayList<>();
+        synchronized (this) {
+            for (String messageId : getEmails().ids()) {
+                if (!serverIds.contains(messageId)) {
+                    deleteIds.add(messageId);
                 }
             }
+            for (String messageId : deleteIds) {
+                getEmails().remove(messageId);
+            }
         }
         return deleteIds.toArray(new String[0]);
     }
 
     /**
-     * Gets the emails ids of the inbox.
-     * @return Email ids of the inbox
+     * Gets all emails based on the corresponding message ids.
+     * @param messageIds Message ids to get emails from
+     * @return Emails based on the corresponding message ids
      * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws InvalidEmailAddressException Thrown if error with an address
+     * @throws IOException Thrown if error with an attachment file
      * @throws MessagingException Thrown if error with java mail
      */
-    public synchronized String[] emailIds()
-        throws HostConnectionFailureException, MessagingException,
-        MissingEmailServiceInboxName {
-        getFolder().open(Folder.READ_ONLY);
-        ArrayList<String> emailIds = new ArrayList<>();
-        try {
-            int i = 1;
-            while (true) {
-                try {
-                    emailIds.add(((IMAPMessage) getFolder().getMessage(i))
-                        .getMessageID());
-                    i++;
-                } catch (MessagingException messagingException) {
-                    if (messagingException.getMessage() != null
-                        && messagingException.getMessage().equals(
-                        "Failed to load IMAP envelope")) {
-                        //Not an email
-                    } else if (messagingException instanceof
-                        MessageRemovedException) {
-                        System.out.println("Message Removed Exception");
-                        i++;
-                    } else {
-                        throw messagingException;
-                    }
+    public Email[] emails(String @NotNull [] messageIds)
+        throws HostConnectionFailureException, IOException,
+        InvalidEmailAddressException, MessagingException, MissingEmailServiceInboxName {
+        Folder folder = getFolder();
+        ArrayList<Email> emails = new ArrayList<>();
+        for (int from = 0; from < messageIds.length;
+            from += FETCH_BATCH_SIZE) {
+            String[] batchIds = Arrays.copyOfRange(messageIds, from,
+                Math.min(from + FETCH_BATCH_SIZE, messageIds.length));
+            SearchTerm[] searchTerms = new SearchTerm[batchIds.length];
+            for (int i = 0; i < batchIds.length; i++) {
+                searchTerms[i] = new MessageIDTerm(batchIds[i]);
+            }
+            Message[] messages = folder.search(searchTerms.length == 1
+                ? searchTerms[0] : new OrTerm(searchTerms));
+            prefetch(messages);
+            HashMap<String, IMAPMessage> idMessages = new HashMap<>();
+            for (Message message : messages) {
+                idMessages.put(((IMAPMessage) message).getMessageID(),
+                    (IMAPMessage) message);
+            }
+            for (String messageId : batchIds) {
+                IMAPMessage message = idMessages.get(messageId);
+                if (message != null) {
+                    emails.add(email(message));
                 }
             }
-        } catch (IndexOutOfBoundsException indexOutOfBoundsException) {
-            //No more email ids
         }
-        getFolder().close();
-        return emailIds.toArray(new String[0]);
+        return emails.toArray(new Email[0]);
     }
 
     /**
-     * Gets all emails based on the corresponding message ids.
-     * @param messageIds Message ids to get emails from
-     * @return Emails based on the corresponding message ids
+     * Searches the server folder for the emails that are not saved yet,
+     * fetching only the envelopes of the newest matching messages.
+     * @param query Search query
+     * @param maxResults Most emails to return
+     * @return Matching emails that are only on the server, newest first
+     * @throws ClassNotFoundException Thrown if error with the sync state file
      * @throws HostConnectionFailureException Thrown if error with host account
      * @throws InvalidEmailAddressException Thrown if error with an address
-     * @throws IOException Thrown if error with an attachment file
+     * @throws IOException Thrown if error with the sync state file
      * @throws MessagingException Thrown if error with java mail
+     * @throws MissingEmailServiceInboxName Thrown if email service error
      */
-    public synchronized Email[] emails(String @NotNull [] messageIds)
-        throws HostConnectionFailureException, IOException,
-        InvalidEmailAddressException, MessagingException, MissingEmailServiceInboxName {
-        getFolder().open(Folder.READ_ONLY);
-        Email[] emails = new Email[messageIds.length];
-        for (int i = 0; i < emails.length; i++) {
-            emails[i] = email(messageIds[i]);
+    public @NotNull List<EmailSearchResult> search(
+        @NotNull EmailSearchQuery query, int maxResults)
+        throws ClassNotFoundException, HostConnectionFailureException,
+        InvalidEmailAddressException, IOException, MessagingException,
+        MissingEmailServiceInboxName {
+        Folder folder = getFolder();
+        UIDFolder uidFolder = (UIDFolder) folder;
+        Message[] messages = folder.search(query.toSearchTerm());
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+        folder.fetch(messages, fetchProfile);
+        EmailInboxSyncState syncState = getSyncState();
+        Set<Long> savedUids = syncState.isValid(uidFolder.getUIDValidity())
+            ? syncState.getUids() : new HashSet<>();
+        ArrayList<Message> serverMessages = new ArrayList<>();
+        for (Message message : messages) {
+            if (!savedUids.contains(uidFolder.getUID(message))) {
+                serverMessages.add(message);
+            }
+        }
+        serverMessages.sort(Comparator.comparingLong((Message message) -> {
+            try {
+                return uidFolder.getUID(message);
+            } catch (MessagingException messagingException) {
+                return 0;
+            }
+        }).reversed());
+        Message[] newestMessages = serverMessages.subList(0,
+            Math.min(maxResults, serverMessages.size()))
+            .toArray(new Message[0]);
+        prefetch(newestMessages);
+        ArrayList<EmailSearchResult> results = new ArrayList<>();
+        for (Message message : newestMessages) {
+            String messageId = ((IMAPMessage) message).getMessageID();
+            if (messageId != null && getSavedEmail(messageId) == null) {
+                results.add(new EmailSearchResult(getEmailAccount().getId(),
+                    getEmailInboxType(), messageId,
+                    emailHeader((IMAPMessage) message),
+                    message.isSet(Flags.Flag.SEEN)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Fetches the envelope, flags and structure of messages in bulk.
+     * @param messages Messages (from the same folder) to fetch the details of
+     * @throws MessagingException Thrown if error with java mail
+     */
+    private void prefetch(Message @NotNull [] messages)
+        throws MessagingException {
+        if (messages.length == 0) {
+            return;
+        }
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(FetchProfile.Item.ENVELOPE);
+        fetchProfile.add(FetchProfile.Item.FLAGS);
+        fetchProfile.add(FetchProfile.Item.CONTENT_INFO);
+        fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+        fetchProfile.add(MESSAGE_ID_HEADER);
+        for (int from = 0; from < messages.length; from += FETCH_BATCH_SIZE) {
+            messages[0].getFolder().fetch(Arrays.copyOfRange(messages, from,
+                Math.min(from + FETCH_BATCH_SIZE, messages.length)),
+                fetchProfile);
         }
-        getFolder().close();
-        return emails;
     }
 
     /**
@@ -395,21 +762,25 @@ public class EmailInbox {
     public @NotNull Email email(String messageId)
         throws HostConnectionFailureException, IOException,
         InvalidEmailAddressException, MessagingException, MissingEmailServiceInboxName {
-        boolean isClosed = false;
-        if (!getFolder().isOpen()) {
-            isClosed = true;
-            getFolder().open(Folder.READ_ONLY);
-        }
-        IMAPMessage message = (IMAPMessage) getFolder()
-            .search(new MessageIDTerm(messageId))[0];
+        return email((IMAPMessage) getFolder()
+            .search(new MessageIDTerm(messageId))[0]);
+    }
+
+    /**
+     * Gets the email of the given message.
+     * @param message Message of the email
+     * @return Email of the given message
+     * @throws InvalidEmailAddressException Thrown if error with an address
+     * @throws IOException Thrown if error with an attachment file
+     * @throws MessagingException Thrown if error with java mail
+     */
+    @Contract("_ -> new")
+    private @NotNull Email email(@NotNull IMAPMessage message)
+        throws IOException, InvalidEmailAddressException, MessagingException {
         EmailHeader emailHeader = emailHeader(message);
-        Email email = new Email(message.getMessageID(), emailHeader,
+        return new Email(message.getMessageID(), emailHeader,
             emailBody(message, emailHeader),
             message.getFlags().contains(Flags.Flag.SEEN));
-        if (isClosed) {
-            getFolder().close();
-        }
-        return email;
     }
 
     /**
@@ -583,10 +954,9 @@ public class EmailInbox {
                     messageMultipart.getBodyPart(j + 1);
             }
             if (attachment.getFileName() != null) {
-                ExtendedFile file = new ExtendedFile(
+                files.add(AttachmentStore.save(
                     EmailAccount.TEMP_PATH + "/" + attachment.getFileName(),
-                    new SerializableInputStream(attachment.getInputStream()));
-                files.add(file);
+                    attachment.getInputStream()));
             }
         }
         return files.toArray(new ExtendedFile[0]);
@@ -603,12 +973,9 @@ public class EmailInbox {
     public synchronized void addEmail(@NotNull Email email)
         throws MessagingException, IOException, HostConnectionFailureException,
         MissingEmailServiceInboxName {
-        getFolder().open(Folder.READ_WRITE);
-        setSession();
         MimeMessage message = email.generateMessage(getEmailAccount());
         message.setFlag(Flags.Flag.DRAFT, true);
         getFolder().appendMessages(new MimeMessage[]{message});
-        getFolder().close();
     }
 
     /**
@@ -620,10 +987,26 @@ public class EmailInbox {
     public synchronized void readEmail(@NotNull Email email)
         throws HostConnectionFailureException, MessagingException, MissingEmailServiceInboxName {
         email.setIsRead(true);
-        getFolder().open(Folder.READ_WRITE);
-        getFolder().search(new MessageIDTerm(email.getMessageId()))[0]
-            .setFlag(Flags.Flag.SEEN, true);
-        getFolder().close();
+        readMessages(Collections.singletonList(email.getMessageId()));
+    }
+
+    /**
+     * Marks the messages with the given ids as read on the server with one
+     * store command. Messages that are no longer in the folder are skipped.
+     * @param messageIds Message ids of the emails
+     * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws MessagingException Thrown if error with the server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public synchronized void readMessages(
+        @NotNull Collection<String> messageIds)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        Folder folder = getFolder();
+        Message[] messages = findMessages(folder, messageIds);
+        if (messages.length > 0) {
+            folder.setFlags(messages, new Flags(Flags.Flag.SEEN), true);
+        }
     }
 
     /**
@@ -648,52 +1031,169 @@ public class EmailInbox {
      * @throws MissingEmailServiceInboxName Thrown if missing inbox name
      */
     public synchronized void deleteEmail(@NotNull Email email)
+        throws HostConnectionFailureException, IOException, MessagingException,
+        MissingEmailServiceInboxName {
+        deleteEmails(email);
+    }
+
+    /**
+     * Deletes the given emails from the inbox, backlogging them if the host
+     * can't be reached.
+     * @param emails Emails to be deleted
+     * @throws HostConnectionFailureException Thrown if error with a folder
+     * @throws IOException Thrown if error with the backlog
+     * @throws MessagingException Thrown if error with the server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public synchronized void deleteEmails(Email @NotNull ... emails)
         throws HostConnectionFailureException, IOException, MessagingException,
         MissingEmailServiceInboxName {
         try {
-            getFolder().open(Folder.READ_WRITE);
-            getFolder().search(new MessageIDTerm(email.getMessageId()))[0]
-                .setFlag(Flags.Flag.DELETED, true);
-        } catch (ArrayIndexOutOfBoundsException arrayIndexOobException) {
-            //Email already deleted from inbox so can continue as normal
+            deleteMessages(messageIds(emails));
         } catch (HostConnectionFailureException hostConnectionException) {
-            new BacklogAction(BacklogAction.Action.DELETE,
-                getEmailAccount(), getEmailInboxType(), email);
+            for (Email email : emails) {
+                new BacklogAction(BacklogAction.Action.DELETE,
+                    getEmailAccount(), getEmailInboxType(), email);
+            }
+        }
+        for (Email email : emails) {
+            removeEmail(email);
         }
-        if (getFolder().isOpen()) {
-            getFolder().close();
+    }
+
+    /**
+     * Deletes the messages with the given ids from the server folder with one
+     * store command, and one expunge of just those messages if the server
+     * supports it. Messages that are no longer in the folder are skipped.
+     * @param messageIds Message ids of the emails
+     * @throws HostConnectionFailureException Thrown if error with a folder
+     * @throws MessagingException Thrown if error with the server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
+     */
+    public synchronized void deleteMessages(
+        @NotNull Collection<String> messageIds)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        Folder folder = getFolder();
+        Message[] messages = findMessages(folder, messageIds);
+        if (messages.length > 0) {
+            folder.setFlags(messages, new Flags(Flags.Flag.DELETED), true);
+            expunge((IMAPFolder) folder, messages);
         }
-        getEmails().remove(new Pair<>(email.getMessageId(),
-            email.getHeader().getReceivedDate()));
-        save();
     }
 
     /**
-     * Moves an email from the inbox to a given inbox.
-     * @param email Email to move
-     * @param toInbox Inbox to move email to
+     * Moves the messages with the given ids to a given inbox on the server,
+     * with one move command if the server supports it, otherwise with one
+     * copy followed by a delete. Messages that are no longer in the folder are
+     * skipped.
+     * @param messageIds Message ids of the emails
+     * @param toInbox Inbox to move the emails to
      * @throws HostConnectionFailureException Thrown if error with host account
      * @throws MessagingException Thrown if error with the server
+     * @throws MissingEmailServiceInboxName Thrown if missing inbox name
      */
-    public synchronized void moveEmail(@NotNull Email email,
-        @NotNull EmailInbox toInbox) throws HostConnectionFailureException,
-        MessagingException, MissingEmailServiceInboxName {
-        getFolder().open(Folder.READ_WRITE);
+    public synchronized void moveMessages(
+        @NotNull Collection<String> messageIds, @NotNull EmailInbox toInbox)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        IMAPFolder folder = (IMAPFolder) getFolder();
+        Message[] messages = findMessages(folder, messageIds);
+        if (messages.length == 0) {
+            return;
+        }
+        if (((IMAPStore) folder.getStore()).hasCapability(MOVE_CAPABILITY)) {
+            folder.moveMessages(messages, toInbox.getFolder());
+            return;
+        }
         try {
-            getFolder().copyMessages(getFolder().search(
-                new MessageIDTerm(email.getMessageId())), toInbox.getFolder());
+            folder.copyMessages(messages, toInbox.getFolder());
         } catch (MessagingException exception) {
-            if (!exception.getMessage().contains("APPEND")) {
-                exception.printStackTrace();
+            if (exception.getMessage() == null
+                || !exception.getMessage().contains("APPEND")) {
+                throw exception;
+            }
+        }
+        folder.setFlags(messages, new Flags(Flags.Flag.DELETED), true);
+        expunge(folder, messages);
+    }
+
+    /**
+     * Expunges just the given deleted messages if the server supports it.
+     * Otherwise they are only marked as deleted, as expunging the folder
+     * would also remove messages other clients have marked as deleted.
+     * @param folder Open server folder
+     * @param messages Messages marked as deleted
+     * @throws MessagingException Thrown if error with the server
+     */
+    private static void expunge(@NotNull IMAPFolder folder,
+        Message @NotNull [] messages) throws MessagingException {
+        if (((IMAPStore) folder.getStore()).hasCapability(
+            UIDPLUS_CAPABILITY)) {
+            folder.expunge(messages);
+        }
+    }
+
+    /**
+     * Finds the server messages with the given message ids, by their UIDs if
+     * the inbox has synced them, otherwise with one search.
+     * @param folder Open server folder
+     * @param messageIds Message ids of the emails
+     * @return Messages that are still in the folder
+     * @throws MessagingException Thrown if error with the server
+     */
+    private Message @NotNull [] findMessages(@NotNull Folder folder,
+        @NotNull Collection<String> messageIds) throws MessagingException {
+        HashSet<String> searchIds = new HashSet<>(messageIds);
+        ArrayList<Message> messages = new ArrayList<>();
+        UIDFolder uidFolder = (UIDFolder) folder;
+        try {
+            EmailInboxSyncState syncState = getSyncState();
+            if (syncState.isValid(uidFolder.getUIDValidity())) {
+                Map<String, Long> foundUids = syncState.findUids(searchIds);
+                searchIds.removeAll(foundUids.keySet());
+                long[] uids = new long[foundUids.size()];
+                int i = 0;
+                for (long uid : foundUids.values()) {
+                    uids[i++] = uid;
+                }
+                if (uids.length > 0) {
+                    for (Message message : uidFolder.getMessagesByUID(uids)) {
+                        if (message != null) {
+                            messages.add(message);
+                        }
+                    }
+                }
+            }
+        } catch (ClassNotFoundException | IOException exception) {
+            //Sync state can't be read so every message is searched for
+            searchIds = new HashSet<>(messageIds);
+            messages.clear();
+        }
+        if (!searchIds.isEmpty()) {
+            SearchTerm[] terms = new SearchTerm[searchIds.size()];
+            int i = 0;
+            for (String messageId : searchIds) {
+                terms[i++] = new MessageIDTerm(messageId);
             }
+            messages.addAll(Arrays.asList(folder.search(
+                terms.length == 1 ? terms[0] : new OrTerm(terms))));
         }
-        getFolder().close();
+        return messages.toArray(new Message[0]);
     }
 
-    public void closeFolder() throws MessagingException {
-        if (folder != null && folder.isOpen()) {
-            folder.close();
+    /**
+     * Gets the message ids of the given emails.
+     * @param emails Emails to get the message ids of
+     * @return Message ids of the emails
+     */
+    private static @NotNull List<String> messageIds(
+        Email @NotNull ... emails) {
+        ArrayList<String> messageIds = new ArrayList<>();
+        for (Email email : emails) {
+            messageIds.add(email.getMessageId());
         }
+        return messageIds;
     }
 
 }
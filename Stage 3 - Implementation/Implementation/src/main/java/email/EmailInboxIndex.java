@@ -0,0 +1,403 @@
+package email;
+
+import email.email.Email;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emails of an inbox indexed both by message id and by received date, newest
+ * first. The two indexes are always changed together so an email can be found
+ * by its id without scanning the inbox while still being listed in order. The
+ * date index counts its emails so a page of emails, or the position of an
+ * email, is found without going through the emails before it.
+ * The index is not thread-safe, so it must only be used while holding the
+ * lock of its inbox.
+ * @author Jordan Jones
+ */
+public class EmailInboxIndex {
+
+    //CONSTANTS
+    private static final Comparator<DateKey> DATE_ORDER = Comparator
+        .comparing((DateKey key) -> key.receivedDate,
+            Comparator.nullsLast(Comparator.reverseOrder()))
+        .thenComparing(key -> key.messageId);
+
+    //Attributes
+    private final HashMap<String, DateKey> idIndex = new HashMap<>();
+    private Node root;
+    private int modifications;
+
+    /**
+     * Key of an email in the date index, ordered by received date and then by
+     * message id so emails received at the same time keep a fixed order.
+     */
+    private static class DateKey {
+
+        //Attributes
+        private final Date receivedDate;
+        private final String messageId;
+
+        /**
+         * Creates the date index key of an email.
+         * @param receivedDate Received date of the email
+         * @param messageId Message id of the email
+         */
+        private DateKey(Date receivedDate, @NotNull String messageId) {
+            this.receivedDate = receivedDate;
+            this.messageId = messageId;
+        }
+
+    }
+
+    /**
+     * Node of the date index, a treap where each node also counts the emails
+     * below it so the email at a position and the position of an email are
+     * found in logarithmic time.
+     */
+    private static class Node {
+
+        //Attributes
+        private final DateKey key;
+        private final Email email;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        /**
+         * Creates a node of the date index.
+         * @param key Date index key of the email
+         * @param email Email of the node
+         */
+        private Node(@NotNull DateKey key, @NotNull Email email) {
+            this.key = key;
+            this.email = email;
+        }
+
+        /**
+         * Recounts the emails below the node after its children change.
+         * @return Node
+         */
+        private @NotNull Node update() {
+            size = 1 + size(left) + size(right);
+            return this;
+        }
+
+    }
+
+    /**
+     * Adds an email, replacing the email with the same message id.
+     * @param email Email to add
+     * @return Replaced email (null if there was no email with the same id)
+     */
+    public Email put(@NotNull Email email) {
+        DateKey dateKey = new DateKey(email.getHeader().getReceivedDate(),
+            email.getMessageId());
+        DateKey oldKey = idIndex.put(email.getMessageId(), dateKey);
+        Email oldEmail = oldKey == null ? null : removeNode(oldKey);
+        Node[] parts = split(root, dateKey);
+        root = merge(merge(parts[0], new Node(dateKey, email)), parts[1]);
+        modifications++;
+        return oldEmail;
+    }
+
+    /**
+     * Gets the email with the given message id.
+     * @param messageId Message id of the email
+     * @return Email with the message id (null if there is none)
+     */
+    public Email get(String messageId) {
+        DateKey dateKey = idIndex.get(messageId);
+        Node node = root;
+        while (dateKey != null && node != null) {
+            int compare = DATE_ORDER.compare(dateKey, node.key);
+            if (compare == 0) {
+                return node.email;
+            }
+            node = compare < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if there is an email with the given message id.
+     * @param messageId Message id of the email
+     * @return True if there is an email with the message id
+     */
+    public boolean containsId(String messageId) {
+        return idIndex.containsKey(messageId);
+    }
+
+    /**
+     * Removes the email with the given message id.
+     * @param messageId Message id of the email
+     * @return Removed email (null if there was no email with the id)
+     */
+    public Email remove(String messageId) {
+        DateKey dateKey = idIndex.remove(messageId);
+        if (dateKey == null) {
+            return null;
+        }
+        modifications++;
+        return removeNode(dateKey);
+    }
+
+    /**
+     * Gets the position of an email in date order.
+     * @param email Email to find
+     * @return Position of the email (-1 if it is not in the index)
+     */
+    public int indexOf(@NotNull Email email) {
+        DateKey dateKey = idIndex.get(email.getMessageId());
+        int index = 0;
+        Node node = root;
+        while (dateKey != null && node != null) {
+            int compare = DATE_ORDER.compare(dateKey, node.key);
+            if (compare == 0) {
+                return index + size(node.left);
+            } else if (compare < 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the email at a position in date order.
+     * @param index Position of the email
+     * @return Email at the position
+     * @throws IndexOutOfBoundsException Thrown if there is no such position
+     */
+    public @NotNull Email get(int index) {
+        Objects.checkIndex(index, size());
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index == leftSize) {
+                return node.email;
+            } else if (index < leftSize) {
+                node = node.left;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Gets the emails between two positions in date order without going
+     * through the emails before them.
+     * @param from Position of the first email
+     * @param to Position after the last email
+     * @return Emails between the positions
+     * @throws IndexOutOfBoundsException Thrown if the positions are invalid
+     */
+    public @NotNull List<Email> range(int from, int to) {
+        Objects.checkFromToIndex(from, to, size());
+        ArrayList<Email> emails = new ArrayList<>(to - from);
+        Iterator<Email> iterator = iterator(from);
+        while (emails.size() < to - from) {
+            emails.add(iterator.next());
+        }
+        return emails;
+    }
+
+    /**
+     * Gets the number of emails.
+     * @return Number of emails
+     */
+    public int size() {
+        return idIndex.size();
+    }
+
+    /**
+     * Checks if there are no emails.
+     * @return True if there are no emails
+     */
+    public boolean isEmpty() {
+        return idIndex.isEmpty();
+    }
+
+    /**
+     * Gets the message ids of the emails.
+     * @return Unmodifiable view of the message ids
+     */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(idIndex.keySet());
+    }
+
+    /**
+     * Gets the emails in date order, newest first.
+     * @return Unmodifiable view of the emails in date order
+     */
+    public Collection<Email> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<Email> iterator() {
+                return EmailInboxIndex.this.iterator(0);
+            }
+
+            @Override
+            public int size() {
+                return EmailInboxIndex.this.size();
+            }
+        };
+    }
+
+    /**
+     * Removes all the emails.
+     */
+    public void clear() {
+        idIndex.clear();
+        root = null;
+        modifications++;
+    }
+
+    /**
+     * Creates an iterator over the emails in date order from a position.
+     * @param from Position of the first email
+     * @return Iterator over the emails from the position
+     */
+    private @NotNull Iterator<Email> iterator(int from) {
+        ArrayDeque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (from <= leftSize) {
+                path.push(node);
+                if (from == leftSize) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                from -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        int expectedModifications = modifications;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Email next() {
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node next = path.pop();
+                for (Node node = next.right; node != null; node = node.left) {
+                    path.push(node);
+                }
+                return next.email;
+            }
+        };
+    }
+
+    /**
+     * Removes the node with the given key from the date index.
+     * @param dateKey Date index key of the email
+     * @return Email of the removed node (null if there was none)
+     */
+    private Email removeNode(@NotNull DateKey dateKey) {
+        Node[] lower = split(root, dateKey);
+        Node[] upper = splitFirst(lower[1]);
+        root = merge(lower[0], upper[1]);
+        return upper[0] == null ? null : upper[0].email;
+    }
+
+    /**
+     * Splits a treap into the nodes before a key and the nodes from it on.
+     * @param node Root of the treap
+     * @param dateKey Key to split at
+     * @return Roots of the nodes before the key and from the key on
+     */
+    private static Node @NotNull [] split(Node node, @NotNull DateKey dateKey) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (DATE_ORDER.compare(node.key, dateKey) < 0) {
+            Node[] parts = split(node.right, dateKey);
+            node.right = parts[0];
+            parts[0] = node.update();
+            return parts;
+        } else {
+            Node[] parts = split(node.left, dateKey);
+            node.left = parts[1];
+            parts[1] = node.update();
+            return parts;
+        }
+    }
+
+    /**
+     * Splits the first node off a treap.
+     * @param node Root of the treap
+     * @return First node and the root of the rest of the treap
+     */
+    private static Node @NotNull [] splitFirst(Node node) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (node.left == null) {
+            Node rest = node.right;
+            node.right = null;
+            return new Node[]{node.update(), rest};
+        }
+        Node[] parts = splitFirst(node.left);
+        node.left = parts[1];
+        parts[1] = node.update();
+        return parts;
+    }
+
+    /**
+     * Joins two treaps where every node of the first comes before the second.
+     * @param first Root of the first treap
+     * @param second Root of the second treap
+     * @return Root of the joined treap
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        } else if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return first.update();
+        } else {
+            second.left = merge(first, second.left);
+            return second.update();
+        }
+    }
+
+    /**
+     * Gets the number of emails of a treap.
+     * @param node Root of the treap
+     * @return Number of emails of the treap
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+}
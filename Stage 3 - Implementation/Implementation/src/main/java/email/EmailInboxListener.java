@@ -0,0 +1,29 @@
+package email;
+
+import email.email.Email;
+
+/**
+ * Listens for changes to an inbox pushed from the email server.
+ * @author Jordan Jones
+ */
+public interface EmailInboxListener {
+
+    /**
+     * Runs when emails have been added to the inbox.
+     * @param emails Added emails
+     */
+    void emailsAdded(Email[] emails);
+
+    /**
+     * Runs when emails have been deleted from the inbox.
+     * @param messageIds Message ids of the deleted emails
+     */
+    void emailsDeleted(String[] messageIds);
+
+    /**
+     * Runs when the flags of an email in the inbox have changed.
+     * @param email Changed email
+     */
+    void emailChanged(Email email);
+
+}
@@ -0,0 +1,513 @@
+package email;
+
+import email.email.Email;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Local store of an inbox's emails kept as an append-only journal of segment
+ * files. Every change is one record: an email's header and body summary when
+ * it is added, or a small delta when its read status changes or it is deleted.
+ * @author Jordan Jones
+ */
+public class EmailInboxStore {
+
+    //CONSTANTS
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String SEGMENT_NAME = "%010d" + SEGMENT_EXTENSION;
+    private static final long MAX_SEGMENT_BYTES = 4L * 1024 * 1024;
+    private static final long MIN_COMPACTION_BYTES = 1024L * 1024;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final byte PUT_RECORD = 1;
+    private static final byte READ_RECORD = 2;
+    private static final byte DELETE_RECORD = 3;
+    private static final ExecutorService COMPACTION_EXECUTOR
+        = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inbox-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    //Attributes
+    private final Path directory;
+    private final LinkedHashMap<String, Email> emails = new LinkedHashMap<>();
+    private final HashMap<String, Integer> recordSizes = new HashMap<>();
+    private long liveBytes;
+    private long totalBytes;
+    private long segmentId;
+    private FileChannel segment;
+    private boolean isCompacting;
+
+    /**
+     * Creates the store of an inbox.
+     * @param directoryPath Path of the directory of the segment files
+     */
+    public EmailInboxStore(@NotNull String directoryPath) {
+        this.directory = Paths.get(directoryPath);
+    }
+
+    /**
+     * Loads the emails by replaying the segment files in order, cutting off a
+     * record that was only partly written when the app last stopped.
+     * @return Emails in the store
+     * @throws ClassNotFoundException Thrown if an email class can't be found
+     * @throws IOException Thrown if error reading a segment file
+     */
+    public synchronized Collection<Email> load()
+        throws ClassNotFoundException, IOException {
+        closeSegment();
+        emails.clear();
+        recordSizes.clear();
+        liveBytes = 0;
+        totalBytes = 0;
+        segmentId = 0;
+        if (Files.isDirectory(directory)) {
+            deleteTempFiles();
+            List<Long> segmentIds = segmentIds();
+            for (int i = 0; i < segmentIds.size(); i++) {
+                replay(segmentIds.get(i), i == segmentIds.size() - 1);
+                segmentId = segmentIds.get(i);
+            }
+        }
+        return new ArrayList<>(emails.values());
+    }
+
+    /**
+     * Adds or replaces emails in the store with one write.
+     * @param emails Emails to add
+     * @throws IOException Thrown if error writing the segment file
+     */
+    public synchronized void put(Email @NotNull ... emails)
+        throws IOException {
+        if (emails.length == 0) {
+            return;
+        }
+        byte[][] records = new byte[emails.length][];
+        for (int i = 0; i < emails.length; i++) {
+            records[i] = record(PUT_RECORD, serialize(emails[i]));
+        }
+        append(records);
+        for (int i = 0; i < emails.length; i++) {
+            this.emails.put(emails[i].getMessageId(), emails[i]);
+            setRecordSize(emails[i].getMessageId(), records[i].length);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Records the current read status of an email.
+     * @param email Email whose read status has changed
+     * @throws IOException Thrown if error writing the segment file
+     */
+    public synchronized void read(@NotNull Email email) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(email.getMessageId());
+            output.writeBoolean(email.getIsRead());
+        }
+        append(record(READ_RECORD, bytes.toByteArray()));
+        compactIfNeeded();
+    }
+
+    /**
+     * Deletes emails from the store with one write.
+     * @param messageIds Message ids of the emails to delete
+     * @throws IOException Thrown if error writing the segment file
+     */
+    public synchronized void delete(String @NotNull ... messageIds)
+        throws IOException {
+        if (messageIds.length == 0) {
+            return;
+        }
+        byte[][] records = new byte[messageIds.length][];
+        for (int i = 0; i < messageIds.length; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                output.writeUTF(messageIds[i]);
+            }
+            records[i] = record(DELETE_RECORD, bytes.toByteArray());
+        }
+        append(records);
+        for (String messageId : messageIds) {
+            emails.remove(messageId);
+            setRecordSize(messageId, 0);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Closes the segment file being written to.
+     */
+    public synchronized void close() {
+        closeSegment();
+    }
+
+    /**
+     * Replays the records of a segment file.
+     * @param id Id of the segment file
+     * @param isLast True if it is the segment file written to most recently
+     * @throws ClassNotFoundException Thrown if an email class can't be found
+     * @throws IOException Thrown if error reading the segment file
+     */
+    private void replay(long id, boolean isLast)
+        throws ClassNotFoundException, IOException {
+        Path path = segmentPath(id);
+        long fileBytes = Files.size(path);
+        long validBytes = 0;
+        try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException endOfFile) {
+                    break;
+                }
+                byte[] data;
+                try {
+                    int checksum = input.readInt();
+                    if (length <= 0 || length > fileBytes) {
+                        break;
+                    }
+                    data = new byte[length];
+                    input.readFully(data);
+                    if (checksum != checksum(data)) {
+                        break;
+                    }
+                } catch (EOFException tornRecord) {
+                    break;
+                }
+                int recordSize = RECORD_HEADER_BYTES + length;
+                apply(data, recordSize);
+                validBytes += recordSize;
+                totalBytes += recordSize;
+            }
+        }
+        if (isLast && validBytes < fileBytes) {
+            try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Applies a replayed record to the emails of the store.
+     * @param data Type and payload of the record
+     * @param recordSize Size of the whole record in bytes
+     * @throws ClassNotFoundException Thrown if an email class can't be found
+     * @throws IOException Thrown if error reading the record
+     */
+    private void apply(byte @NotNull [] data, int recordSize)
+        throws ClassNotFoundException, IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data, 1,
+            data.length - 1);
+        switch (data[0]) {
+            case PUT_RECORD:
+                try (ObjectInputStream input = new ObjectInputStream(bytes)) {
+                    Email email = (Email) input.readObject();
+                    emails.put(email.getMessageId(), email);
+                    setRecordSize(email.getMessageId(), recordSize);
+                }
+                break;
+            case READ_RECORD:
+                try (DataInputStream input = new DataInputStream(bytes)) {
+                    Email email = emails.get(input.readUTF());
+                    if (email != null) {
+                        email.setIsRead(input.readBoolean());
+                    }
+                }
+                break;
+            case DELETE_RECORD:
+                try (DataInputStream input = new DataInputStream(bytes)) {
+                    String messageId = input.readUTF();
+                    emails.remove(messageId);
+                    setRecordSize(messageId, 0);
+                }
+                break;
+            default:
+                //Unknown record from a newer version so it is skipped
+        }
+    }
+
+    /**
+     * Appends records to the current segment file and waits for them to reach
+     * the disk.
+     * @param records Records to append
+     * @throws IOException Thrown if error writing the segment file
+     */
+    private void append(byte @NotNull [] ... records) throws IOException {
+        if (segment == null || segment.size() >= MAX_SEGMENT_BYTES) {
+            openSegment();
+        }
+        int length = 0;
+        for (byte[] record : records) {
+            length += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] record : records) {
+            buffer.put(record);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+        totalBytes += length;
+    }
+
+    /**
+     * Opens the segment file to append to, starting a new one if it is full.
+     * @throws IOException Thrown if error opening the segment file
+     */
+    private void openSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        if (segmentId == 0 || (Files.exists(segmentPath(segmentId))
+            && Files.size(segmentPath(segmentId)) >= MAX_SEGMENT_BYTES)) {
+            segmentId++;
+        }
+        boolean isNew = !Files.exists(segmentPath(segmentId));
+        segment = FileChannel.open(segmentPath(segmentId),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        if (isNew) {
+            forceDirectory();
+        }
+    }
+
+    /**
+     * Closes the segment file being written to.
+     */
+    private void closeSegment() {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException ioException) {
+                //Already closed
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Starts a background compaction when most of the journal is records
+     * that have been replaced or deleted.
+     */
+    private void compactIfNeeded() {
+        if (isCompacting || totalBytes < MIN_COMPACTION_BYTES
+            || totalBytes - liveBytes < liveBytes) {
+            return;
+        }
+        isCompacting = true;
+        closeSegment();
+        long compactedId = segmentId + 1;
+        segmentId = compactedId + 1;
+        ArrayList<Email> snapshot = new ArrayList<>(emails.values());
+        COMPACTION_EXECUTOR.execute(() -> compact(compactedId, snapshot));
+    }
+
+    /**
+     * Writes the live emails into one segment file then deletes the segment
+     * files before it. New records are written to a later segment file in the
+     * meantime, so they are replayed after the compacted one. Attachment
+     * contents left behind by deleted emails are reclaimed afterwards.
+     * @param compactedId Id of the compacted segment file
+     * @param snapshot Emails in the store when the compaction started
+     */
+    private void compact(long compactedId, @NotNull List<Email> snapshot) {
+        Path path = segmentPath(compactedId);
+        Path tempPath = Paths.get(path + TEMP_EXTENSION);
+        try {
+            try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Email email : snapshot) {
+                    ByteBuffer buffer = ByteBuffer.wrap(
+                        record(PUT_RECORD, serialize(email)));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+            for (long id : segmentIds()) {
+                if (id < compactedId) {
+                    Files.deleteIfExists(segmentPath(id));
+                }
+            }
+            EmailBodyStore.reclaimAttachments();
+        } catch (ClassNotFoundException | IOException exception) {
+            exception.printStackTrace();
+        } finally {
+            synchronized (this) {
+                totalBytes = 0;
+                try {
+                    for (long id : segmentIds()) {
+                        totalBytes += Files.size(segmentPath(id));
+                    }
+                } catch (IOException ioException) {
+                    ioException.printStackTrace();
+                }
+                isCompacting = false;
+            }
+        }
+    }
+
+    /**
+     * Updates the size of the latest record of an email.
+     * @param messageId Message id of the email
+     * @param recordSize Size of the record (0 if the email is deleted)
+     */
+    private void setRecordSize(String messageId, int recordSize) {
+        Integer oldSize = recordSize == 0
+            ? recordSizes.remove(messageId)
+            : recordSizes.put(messageId, recordSize);
+        liveBytes += recordSize - (oldSize == null ? 0 : oldSize);
+    }
+
+    /**
+     * Gets the ids of the segment files in order.
+     * @return Ids of the segment files in order
+     * @throws IOException Thrown if error reading the directory
+     */
+    private @NotNull List<Long> segmentIds() throws IOException {
+        ArrayList<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(
+            directory, "*" + SEGMENT_EXTENSION)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                try {
+                    ids.add(Long.parseLong(name.substring(0,
+                        name.length() - SEGMENT_EXTENSION.length())));
+                } catch (NumberFormatException numberFormatException) {
+                    //Not a segment file
+                }
+            }
+        }
+        ids.sort(Long::compare);
+        return ids;
+    }
+
+    /**
+     * Deletes compacted segment files that were not finished being written.
+     * @throws IOException Thrown if error deleting a file
+     */
+    private void deleteTempFiles() throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(
+            directory, "*" + TEMP_EXTENSION)) {
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Waits for the directory's list of files to reach the disk.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory,
+            StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ioException) {
+            //Not supported on every platform
+        }
+    }
+
+    /**
+     * Gets the path of a segment file.
+     * @param id Id of the segment file
+     * @return Path of the segment file
+     */
+    private @NotNull Path segmentPath(long id) {
+        return directory.resolve(String.format(SEGMENT_NAME, id));
+    }
+
+    /**
+     * Creates a record with a length and checksum so torn writes are found.
+     * @param type Type of the record
+     * @param payload Payload of the record
+     * @return Record bytes
+     */
+    private static byte @NotNull [] record(byte type,
+        byte @NotNull [] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            RECORD_HEADER_BYTES + 1 + payload.length);
+        buffer.putInt(1 + payload.length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.put(payload);
+        byte[] record = buffer.array();
+        ByteBuffer.wrap(record).putInt(Integer.BYTES, checksum(
+            record, RECORD_HEADER_BYTES, record.length - RECORD_HEADER_BYTES));
+        return record;
+    }
+
+    /**
+     * Gets the checksum of some data.
+     * @param data Data to get the checksum of
+     * @return Checksum of the data
+     */
+    private static int checksum(byte @NotNull [] data) {
+        return checksum(data, 0, data.length);
+    }
+
+    /**
+     * Gets the checksum of part of some data.
+     * @param data Data to get the checksum of
+     * @param offset Start of the part
+     * @param length Length of the part
+     * @return Checksum of the part of the data
+     */
+    private static int checksum(byte @NotNull [] data, int offset,
+        int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Serializes an email into bytes with only a summary of its body.
+     * @param email Email to serialize
+     * @return Serialized email
+     * @throws IOException Thrown if error serializing the email
+     */
+    private static byte @NotNull [] serialize(@NotNull Email email)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(email.getSummary());
+        }
+        return bytes.toByteArray();
+    }
+
+}
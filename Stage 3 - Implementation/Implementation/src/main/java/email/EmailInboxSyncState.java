@@ -0,0 +1,184 @@
+package email;
+
+import file.directory.DirectoryNotFoundException;
+import file.serializable.SerializableFile;
+import file.serializable.SerializableFileNotFoundException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents how far an inbox has been synced with its server folder. It is
+ * safe to read while a sync is updating it.
+ * @author Jordan Jones
+ */
+public class EmailInboxSyncState implements Serializable {
+
+    //CONSTANTS
+    public static final long NO_UID_VALIDITY = -1;
+
+    //Attributes
+    private long uidValidity = NO_UID_VALIDITY;
+    private long highestUid = 0;
+    private final HashMap<Long, String> messageIds = new HashMap<>();
+    private transient HashMap<String, Long> uids = new HashMap<>();
+
+    /**
+     * Loads the sync state from the device.
+     * @param filePath Path of the sync state file
+     * @return Saved sync state, otherwise an empty sync state
+     * @throws ClassNotFoundException Thrown if file is for a non-local class
+     * @throws IOException Thrown if error deserializing the file
+     */
+    public static @NotNull EmailInboxSyncState load(String filePath)
+        throws ClassNotFoundException, IOException {
+        try {
+            return new SerializableFile<EmailInboxSyncState>(filePath)
+                .deserialize();
+        } catch (SerializableFileNotFoundException fileNotFoundException) {
+            return new EmailInboxSyncState();
+        }
+    }
+
+    /**
+     * Saves the sync state to the device.
+     * @param filePath Path of the sync state file
+     * @throws IOException Thrown if error with serializable file
+     */
+    public synchronized void save(String filePath) throws IOException {
+        SerializableFile<EmailInboxSyncState> serializableFile
+            = new SerializableFile<>(filePath);
+        try {
+            serializableFile.serialize(this);
+        } catch (DirectoryNotFoundException directoryNotFoundException) {
+            serializableFile.getDirectory().create();
+            serializableFile.serialize(this);
+        }
+    }
+
+    /**
+     * Clears the sync state so the folder is synced from the beginning.
+     * @param uidValidity UIDVALIDITY of the server folder
+     */
+    public synchronized void reset(long uidValidity) {
+        this.uidValidity = uidValidity;
+        this.highestUid = 0;
+        messageIds.clear();
+        uids.clear();
+    }
+
+    /**
+     * Records a message that has been synced.
+     * @param uid UID of the message
+     * @param messageId Message id of the message
+     */
+    public synchronized void addMessage(long uid, String messageId) {
+        String oldMessageId = messageIds.put(uid, messageId);
+        if (oldMessageId != null) {
+            uids.remove(oldMessageId, uid);
+        }
+        if (messageId != null) {
+            uids.put(messageId, uid);
+        }
+        highestUid = Math.max(highestUid, uid);
+    }
+
+    /**
+     * Forgets a message that has been expunged from the server folder.
+     * @param uid UID of the message
+     * @return Message id of the message (null if it was not synced)
+     */
+    public synchronized String removeMessage(long uid) {
+        String messageId = messageIds.remove(uid);
+        if (messageId != null) {
+            uids.remove(messageId, uid);
+        }
+        return messageId;
+    }
+
+    /**
+     * Checks if the sync state is still valid for the server folder.
+     * @param uidValidity UIDVALIDITY of the server folder
+     * @return True if the stored UIDs can still be trusted
+     */
+    public synchronized boolean isValid(long uidValidity) {
+        return this.uidValidity != NO_UID_VALIDITY
+            && this.uidValidity == uidValidity;
+    }
+
+    /**
+     * Gets the highest UID that has been synced.
+     * @return Highest UID that has been synced
+     */
+    public synchronized long getHighestUid() {
+        return highestUid;
+    }
+
+    /**
+     * Gets the UIDs that have been synced.
+     * @return Copy of the UIDs that have been synced
+     */
+    public synchronized Set<Long> getUids() {
+        return new HashSet<>(messageIds.keySet());
+    }
+
+    /**
+     * Gets the message ids that have been synced.
+     * @return Copy of the message ids that have been synced
+     */
+    public synchronized Collection<String> getMessageIds() {
+        return new ArrayList<>(messageIds.values());
+    }
+
+    /**
+     * Finds the UIDs of the synced messages with the given message ids.
+     * @param searchIds Message ids to find
+     * @return UIDs of the messages that have been found by their message ids
+     */
+    public synchronized @NotNull Map<String, Long> findUids(
+        @NotNull Collection<String> searchIds) {
+        HashMap<String, Long> foundUids = new HashMap<>();
+        for (String messageId : searchIds) {
+            Long uid = uids.get(messageId);
+            if (uid != null) {
+                foundUids.put(messageId, uid);
+            }
+        }
+        return foundUids;
+    }
+
+    /**
+     * Gets the number of messages that have been synced.
+     * @return Number of messages that have been synced
+     */
+    public synchronized int size() {
+        return messageIds.size();
+    }
+
+    /**
+     * Reads the sync state from a sync state file, rebuilding the UIDs of the
+     * message ids which are not saved.
+     * @param input Input stream of the sync state file
+     * @throws ClassNotFoundException Thrown if file is for a non-local class
+     * @throws IOException Thrown if error reading the sync state file
+     */
+    private void readObject(@NotNull ObjectInputStream input)
+        throws ClassNotFoundException, IOException {
+        input.defaultReadObject();
+        uids = new HashMap<>();
+        for (Map.Entry<Long, String> entry : messageIds.entrySet()) {
+            if (entry.getValue() != null) {
+                uids.put(entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
+}
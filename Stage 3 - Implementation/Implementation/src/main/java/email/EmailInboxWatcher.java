@@ -0,0 +1,237 @@
+package email;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPMessage;
+import com.sun.mail.imap.IMAPStore;
+import email.email.Email;
+import email.service.MissingEmailServiceInboxName;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import javax.mail.Flags;
+import javax.mail.Folder;
+import javax.mail.FolderClosedException;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.StoreClosedException;
+import javax.mail.event.MessageChangedEvent;
+import javax.mail.event.MessageCountAdapter;
+import javax.mail.event.MessageCountEvent;
+import java.io.IOException;
+
+/**
+ * Watches an inbox for changes using IMAP IDLE, otherwise by polling.
+ * @author Jordan Jones
+ */
+public class EmailInboxWatcher {
+
+    //CONSTANTS
+    private static final String IDLE_CAPABILITY = "IDLE";
+    private static final long MIN_POLL_DELAY_MILLISECONDS = 1000;
+    private static final long MAX_POLL_DELAY_MILLISECONDS = 60000;
+
+    //Attributes
+    private final EmailInbox emailInbox;
+    private final EmailInboxListener emailInboxListener;
+    private Folder folder;
+    private boolean isIdleSupported = true;
+    private long pollDelay = MIN_POLL_DELAY_MILLISECONDS;
+    private volatile boolean isStopped = false;
+
+    /**
+     * Creates a watcher for the given inbox.
+     * @param emailInbox Inbox to watch
+     * @param emailInboxListener Listener to push the inbox changes to
+     */
+    public EmailInboxWatcher(@NotNull EmailInbox emailInbox,
+        @NotNull EmailInboxListener emailInboxListener) {
+        this.emailInbox = emailInbox;
+        this.emailInboxListener = emailInboxListener;
+    }
+
+    /**
+     * Gets the inbox being watched.
+     * @return Inbox being watched
+     */
+    public EmailInbox getEmailInbox() {
+        return emailInbox;
+    }
+
+    /**
+     * Gets the listener the inbox changes are pushed to.
+     * @return Listener the inbox changes are pushed to
+     */
+    private EmailInboxListener getEmailInboxListener() {
+        return emailInboxListener;
+    }
+
+    /**
+     * Gets if the watcher has been stopped.
+     * @return True if the watcher has been stopped
+     */
+    public boolean getIsStopped() {
+        return isStopped;
+    }
+
+    /**
+     * Watches the inbox until the watcher is stopped (blocks the thread).
+     */
+    public void watch() {
+        while (!getIsStopped()) {
+            try {
+                if (isIdleSupported) {
+                    idle();
+                } else {
+                    poll();
+                }
+            } catch (InterruptedException interruptedException) {
+                break;
+            } catch (HostConnectionFailureException | FolderClosedException
+                | StoreClosedException connectionException) {
+                //Connection dropped so try again after a delay
+                closeFolder();
+                if (!backOff()) {
+                    break;
+                }
+            } catch (Exception exception) {
+                if (!getIsStopped()) {
+                    exception.printStackTrace();
+                }
+                closeFolder();
+                if (!backOff()) {
+                    break;
+                }
+            }
+        }
+        closeFolder();
+    }
+
+    /**
+     * Stops watching the inbox.
+     */
+    public void stop() {
+        isStopped = true;
+        EmailExecutor.execute(this::closeFolder);
+    }
+
+    /**
+     * Waits for the server to push a change to the inbox.
+     * @throws HostConnectionFailureException Thrown if error with host account
+     * @throws MessagingException Thrown if error with the server
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    private void idle() throws HostConnectionFailureException,
+        MessagingException, MissingEmailServiceInboxName {
+        Folder folder = this.folder;
+        if (folder == null || !folder.isOpen()) {
+            folder = getEmailInbox().newFolder();
+            this.folder = folder;
+            if (!((IMAPStore) folder.getStore())
+                .hasCapability(IDLE_CAPABILITY)) {
+                isIdleSupported = false;
+                closeFolder();
+                return;
+            }
+            folder.addMessageCountListener(new MessageCountAdapter() {
+                @Override
+                public void messagesAdded(MessageCountEvent event) {
+                    refresh();
+                }
+
+                @Override
+                public void messagesRemoved(MessageCountEvent event) {
+                    refresh();
+                }
+            });
+            folder.addMessageChangedListener(this::changed);
+            folder.open(Folder.READ_ONLY);
+            refresh();
+            pollDelay = MIN_POLL_DELAY_MILLISECONDS;
+        }
+        ((IMAPFolder) folder).idle();
+    }
+
+    /**
+     * Refreshes the inbox after an adaptive delay.
+     * @throws InterruptedException Thrown if the thread is interrupted
+     */
+    private void poll() throws InterruptedException {
+        if (refresh()) {
+            pollDelay = MIN_POLL_DELAY_MILLISECONDS;
+        } else {
+            pollDelay = Math.min(pollDelay * 2, MAX_POLL_DELAY_MILLISECONDS);
+        }
+        Thread.sleep(pollDelay);
+    }
+
+    /**
+     * Waits before trying again and increases the delay for the next time.
+     * @return False if the watcher has been interrupted
+     */
+    private boolean backOff() {
+        try {
+            Thread.sleep(pollDelay);
+        } catch (InterruptedException interruptedException) {
+            return false;
+        }
+        pollDelay = Math.min(pollDelay * 2, MAX_POLL_DELAY_MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Syncs the inbox and pushes any changes to the listener.
+     * @return True if the inbox changed
+     */
+    private boolean refresh() {
+        Pair<Email[], String[]> update = getEmailInbox().refresh();
+        if (update.getKey().length > 0) {
+            getEmailInboxListener().emailsAdded(update.getKey());
+        }
+        if (update.getValue().length > 0) {
+            getEmailInboxListener().emailsDeleted(update.getValue());
+        }
+        return update.getKey().length > 0 || update.getValue().length > 0;
+    }
+
+    /**
+     * Pushes a change to the read status of an email to the listener.
+     * @param event Event of the message that has changed
+     */
+    private void changed(@NotNull MessageChangedEvent event) {
+        if (event.getMessageChangeType()
+            != MessageChangedEvent.FLAGS_CHANGED) {
+            return;
+        }
+        try {
+            Message message = event.getMessage();
+            Email email = getEmailInbox().getSavedEmail(
+                ((IMAPMessage) message).getMessageID());
+            boolean isRead = message.isSet(Flags.Flag.SEEN);
+            if (email != null && email.getIsRead() != isRead) {
+                email.setIsRead(isRead);
+                getEmailInbox().saveReadStatus(email);
+                getEmailInboxListener().emailChanged(email);
+            }
+        } catch (IOException | MessagingException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the watcher's handle to the server folder.
+     */
+    private synchronized void closeFolder() {
+        if (folder != null) {
+            try {
+                if (folder.isOpen()) {
+                    folder.close(false);
+                }
+                folder.getStore().close();
+            } catch (MessagingException messagingException) {
+                //Connection already closed
+            }
+            folder = null;
+        }
+    }
+
+}
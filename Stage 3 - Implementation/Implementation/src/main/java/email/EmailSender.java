@@ -0,0 +1,258 @@
+package email;
+
+import com.sun.mail.util.MailConnectException;
+import email.service.MissingEmailServiceInboxName;
+import org.jetbrains.annotations.NotNull;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends messages over a small pool of long-lived SMTP transports, each sending
+ * on its own virtual thread.
+ * @author Jordan Jones
+ */
+public class EmailSender implements AutoCloseable {
+
+    //CONSTANTS
+    public static final int DEFAULT_PARALLELISM = 2;
+    private static final int MAX_CONNECT_ATTEMPTS = 3;
+    private static final int QUEUED_MESSAGES_PER_TRANSPORT = 8;
+    private static final MimeMessage END_OF_MESSAGES
+        = new MimeMessage((Session) null);
+
+    //Static Attributes
+    private static int parallelismSetting = DEFAULT_PARALLELISM;
+
+    //Attributes
+    private final EmailAccount emailAccount;
+    private final int parallelism;
+    private Transport transport;
+    private BlockingQueue<MimeMessage> messages;
+    private ExecutorService executorService;
+    private volatile Exception failure;
+
+    /**
+     * Creates a sender that uses the set number of transports.
+     * @param emailAccount Email account to send the messages from
+     */
+    public EmailSender(@NotNull EmailAccount emailAccount) {
+        this(emailAccount, getParallelismSetting());
+    }
+
+    /**
+     * Creates a sender with a given number of transports.
+     * @param emailAccount Email account to send the messages from
+     * @param parallelism Number of transports to send the messages over
+     */
+    public EmailSender(@NotNull EmailAccount emailAccount, int parallelism) {
+        this.emailAccount = emailAccount;
+        this.parallelism = Math.max(1, parallelism);
+        if (this.parallelism > 1) {
+            messages = new ArrayBlockingQueue<>(
+                this.parallelism * QUEUED_MESSAGES_PER_TRANSPORT);
+            executorService = Executors.newThreadPerTaskExecutor(
+                EmailExecutor.threadFactory("email-sender-"));
+            for (int i = 0; i < this.parallelism; i++) {
+                executorService.execute(this::sendQueuedMessages);
+            }
+        }
+    }
+
+    /**
+     * Sets the number of transports new senders send their messages over.
+     * @param parallelism Number of transports (1 sends on the calling thread)
+     */
+    public static void setParallelismSetting(int parallelism) {
+        parallelismSetting = Math.max(1, parallelism);
+    }
+
+    /**
+     * Gets the number of transports new senders send their messages over.
+     * @return Number of transports new senders send their messages over
+     */
+    public static int getParallelismSetting() {
+        return parallelismSetting;
+    }
+
+    /**
+     * Gets the email account the messages are sent from.
+     * @return Email account the messages are sent from
+     */
+    private EmailAccount getEmailAccount() {
+        return emailAccount;
+    }
+
+    /**
+     * Sends the given message (queued if there are multiple transports).
+     * @param message Message to send
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error sending a message
+     * @throws MissingEmailServiceInboxName Thrown if email service error
+     */
+    public void send(@NotNull MimeMessage message)
+        throws HostConnectionFailureException, MessagingException,
+        MissingEmailServiceInboxName {
+        throwFailure();
+        if (parallelism == 1) {
+            if (transport == null) {
+                transport = getEmailAccount().getSession().getTransport();
+            }
+            send(transport, message);
+        } else {
+            try {
+                messages.put(message);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException(
+                    interruptedException.getMessage(), interruptedException);
+            }
+        }
+    }
+
+    /**
+     * Sends messages from the queue over a transport of this worker thread.
+     */
+    private void sendQueuedMessages() {
+        Transport transport = null;
+        try {
+            MimeMessage message;
+            while ((message = messages.take()) != END_OF_MESSAGES) {
+                if (failure != null) {
+                    continue;
+                }
+                try {
+                    if (transport == null) {
+                        transport = getEmailAccount().getSession()
+                            .getTransport();
+                    }
+                    send(transport, message);
+                } catch (Exception exception) {
+                    failure = exception;
+                }
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeTransport(transport);
+        }
+    }
+
+    /**
+     * Sends a message over the given transport, reconnecting if it dropped.
+     * Only connecting is tried again, as the server may have accepted a
+     * message whose sending failed part way through, so sending it again
+     * could deliver it twice.
+     * @param transport Transport to send the message over
+     * @param message Message to send
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error sending a message
+     */
+    private void send(@NotNull Transport transport,
+        @NotNull MimeMessage message)
+        throws HostConnectionFailureException, MessagingException {
+        message.saveChanges();
+        connect(transport);
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException sendFailedException) {
+            throw sendFailedException;
+        } catch (MessagingException messagingException) {
+            closeTransport(transport);
+            throw messagingException;
+        }
+    }
+
+    /**
+     * Connects the given transport to the host if it is not connected, trying
+     * again if the connection or the host's greeting fails.
+     * @param transport Transport to connect
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error logging in to the host
+     */
+    private void connect(@NotNull Transport transport)
+        throws HostConnectionFailureException, MessagingException {
+        for (int attempt = 1; !transport.isConnected(); attempt++) {
+            try {
+                transport.connect(
+                    getEmailAccount().getEmailService().getSmtpHostName(),
+                    getEmailAccount().getEmailAddress().getAddress(),
+                    getEmailAccount().getPassword());
+            } catch (AuthenticationFailedException authenticationException) {
+                throw authenticationException;
+            } catch (MailConnectException mailConnectException) {
+                if (attempt >= MAX_CONNECT_ATTEMPTS) {
+                    throw new HostConnectionFailureException();
+                }
+            } catch (MessagingException messagingException) {
+                if (attempt >= MAX_CONNECT_ATTEMPTS) {
+                    throw messagingException;
+                }
+                closeTransport(transport);
+            }
+        }
+    }
+
+    /**
+     * Throws the first failure of the worker threads.
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error sending a message
+     */
+    private void throwFailure()
+        throws HostConnectionFailureException, MessagingException {
+        Exception failure = this.failure;
+        if (failure instanceof HostConnectionFailureException) {
+            throw (HostConnectionFailureException) failure;
+        } else if (failure instanceof MessagingException) {
+            throw (MessagingException) failure;
+        } else if (failure != null) {
+            throw new MessagingException(failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Closes the given transport.
+     * @param transport Transport to close
+     */
+    private void closeTransport(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException messagingException) {
+                //Connection already closed
+            }
+        }
+    }
+
+    /**
+     * Waits for the queued messages to be sent and closes the transports.
+     * @throws HostConnectionFailureException Thrown if error connecting to host
+     * @throws MessagingException Thrown if error sending a message
+     */
+    @Override
+    public void close()
+        throws HostConnectionFailureException, MessagingException {
+        if (executorService != null) {
+            try {
+                for (int i = 0; i < parallelism; i++) {
+                    messages.put(END_OF_MESSAGES);
+                }
+            } catch (InterruptedException interruptedException) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executorService.close();
+        }
+        closeTransport(transport);
+        throwFailure();
+    }
+
+}
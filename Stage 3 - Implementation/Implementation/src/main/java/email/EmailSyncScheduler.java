@@ -0,0 +1,277 @@
+package email;
+
+import email.email.Email;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syncs every inbox of every account in the background, with a bounded
+ * number of syncs running at once. Accounts take turns so one account can't
+ * hold up the others, the inbox on screen is synced before the rest and each
+ * IMAP server only has a few syncs running at once.
+ * @author Jordan Jones
+ */
+public class EmailSyncScheduler {
+
+    //CONSTANTS
+    private static final int MAX_RUNNING_SYNCS = 32;
+    private static final int MAX_HOST_SYNCS = 2;
+    private static final long SYNC_INTERVAL_SECONDS = 60;
+    private static final ExecutorService SYNC_EXECUTOR
+        = Executors.newThreadPerTaskExecutor(
+            EmailExecutor.threadFactory("inbox-sync-"));
+    private static final ScheduledExecutorService SYNC_TIMER
+        = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inbox-sync-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    //Static Attributes
+    private static final HashMap<Integer, EmailAccount> emailAccounts
+        = new HashMap<>();
+    private static final ArrayDeque<Integer> accountTurns
+        = new ArrayDeque<>();
+    private static final HashMap<Integer, LinkedHashSet<EmailInbox>>
+        dueInboxes = new HashMap<>();
+    private static final Set<Integer> syncingAccounts = new HashSet<>();
+    private static final HashMap<String, Integer> hostSyncs
+        = new HashMap<>();
+    private static final HashMap<EmailInbox, List<EmailInboxListener>>
+        listeners = new HashMap<>();
+    private static final HashMap<EmailInbox, CompletableFuture<Void>>
+        waitingSyncs = new HashMap<>();
+    private static EmailInbox visibleInbox;
+    private static ScheduledFuture<?> syncTimer;
+    private static int runningSyncs;
+
+    /**
+     * Adds an account to be synced in the background, syncing all of its
+     * inboxes straight away.
+     * @param emailAccount Email account to sync
+     */
+    public static synchronized void addEmailAccount(
+        @NotNull EmailAccount emailAccount) {
+        if (emailAccounts.put(emailAccount.getId(), emailAccount) == null) {
+            accountTurns.addLast(emailAccount.getId());
+        }
+        if (syncTimer == null) {
+            syncTimer = SYNC_TIMER.scheduleAtFixedRate(
+                EmailSyncScheduler::syncAll, SYNC_INTERVAL_SECONDS,
+                SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        queueAccount(emailAccount);
+        dispatch();
+    }
+
+    /**
+     * Stops syncing an account in the background.
+     * @param emailAccount Email account to stop syncing
+     */
+    public static synchronized void removeEmailAccount(
+        @NotNull EmailAccount emailAccount) {
+        emailAccounts.remove(emailAccount.getId());
+        accountTurns.remove(emailAccount.getId());
+        dueInboxes.remove(emailAccount.getId());
+    }
+
+    /**
+     * Syncs an inbox before any other inbox as it is being viewed, pushing its
+     * later background syncs to the given listener.
+     * @param emailInbox Inbox being viewed
+     * @param emailInboxListener Listener to push the inbox changes to
+     * @return Completes once the inbox has been synced
+     */
+    public static synchronized @NotNull CompletableFuture<Void> show(
+        @NotNull EmailInbox emailInbox,
+        @NotNull EmailInboxListener emailInboxListener) {
+        visibleInbox = emailInbox;
+        List<EmailInboxListener> inboxListeners = listeners.computeIfAbsent(
+            emailInbox, inbox -> new ArrayList<>());
+        if (!inboxListeners.contains(emailInboxListener)) {
+            inboxListeners.add(emailInboxListener);
+        }
+        CompletableFuture<Void> waitingSync = waitingSyncs.computeIfAbsent(
+            emailInbox, inbox -> new CompletableFuture<>());
+        dueInboxes.computeIfAbsent(emailInbox.getEmailAccount().getId(),
+            id -> new LinkedHashSet<>()).add(emailInbox);
+        dispatch();
+        return waitingSync;
+    }
+
+    /**
+     * Stops pushing the changes of an inbox that is no longer being viewed.
+     * @param emailInbox Inbox no longer being viewed
+     * @param emailInboxListener Listener the inbox changes were pushed to
+     */
+    public static synchronized void hide(@NotNull EmailInbox emailInbox,
+        @NotNull EmailInboxListener emailInboxListener) {
+        List<EmailInboxListener> inboxListeners = listeners.get(emailInbox);
+        if (inboxListeners != null) {
+            inboxListeners.remove(emailInboxListener);
+            if (inboxListeners.isEmpty()) {
+                listeners.remove(emailInbox);
+            }
+        }
+        if (visibleInbox == emailInbox) {
+            visibleInbox = null;
+        }
+    }
+
+    /**
+     * Queues every inbox of every account to be synced.
+     */
+    private static synchronized void syncAll() {
+        for (EmailAccount emailAccount : emailAccounts.values()) {
+            queueAccount(emailAccount);
+        }
+        dispatch();
+    }
+
+    /**
+     * Queues every inbox of an account to be synced.
+     * @param emailAccount Email account to queue the inboxes of
+     */
+    private static void queueAccount(@NotNull EmailAccount emailAccount) {
+        LinkedHashSet<EmailInbox> accountInboxes = dueInboxes.computeIfAbsent(
+            emailAccount.getId(), id -> new LinkedHashSet<>());
+        for (EmailInbox.EmailInboxType emailInboxType
+            : EmailInbox.EmailInboxType.values()) {
+            try {
+                accountInboxes.add(emailAccount.getInbox(emailInboxType));
+            } catch (HostConnectionFailureException connectionException) {
+                //Queued again on the next sync
+            }
+        }
+    }
+
+    /**
+     * Starts syncing the next inboxes, each on its own virtual thread, until
+     * the limit of running syncs is reached.
+     */
+    private static void dispatch() {
+        while (runningSyncs < MAX_RUNNING_SYNCS) {
+            EmailInbox emailInbox = nextInbox();
+            if (emailInbox == null) {
+                return;
+            }
+            EmailAccount emailAccount = emailInbox.getEmailAccount();
+            syncingAccounts.add(emailAccount.getId());
+            hostSyncs.merge(hostName(emailAccount), 1, Integer::sum);
+            runningSyncs++;
+            SYNC_EXECUTOR.execute(() -> sync(emailInbox));
+        }
+    }
+
+    /**
+     * Takes the next inbox to sync, starting with the inbox being viewed and
+     * then taking one inbox from each account in turn. An account only syncs
+     * one inbox at a time as its inboxes share one connection.
+     * @return Next inbox to sync (null if none can be started)
+     */
+    private static EmailInbox nextInbox() {
+        if (visibleInbox != null) {
+            int id = visibleInbox.getEmailAccount().getId();
+            LinkedHashSet<EmailInbox> accountInboxes = dueInboxes.get(id);
+            if (accountInboxes != null && accountInboxes.contains(visibleInbox)
+                && canSync(visibleInbox.getEmailAccount())) {
+                accountInboxes.remove(visibleInbox);
+                return visibleInbox;
+            }
+        }
+        Iterator<Integer> turns = accountTurns.iterator();
+        while (turns.hasNext()) {
+            int id = turns.next();
+            LinkedHashSet<EmailInbox> accountInboxes = dueInboxes.get(id);
+            EmailAccount emailAccount = emailAccounts.get(id);
+            if (accountInboxes != null && !accountInboxes.isEmpty()
+                && emailAccount != null && canSync(emailAccount)) {
+                Iterator<EmailInbox> inboxes = accountInboxes.iterator();
+                EmailInbox emailInbox = inboxes.next();
+                inboxes.remove();
+                turns.remove();
+                accountTurns.addLast(id);
+                return emailInbox;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an account can start a sync without going over the limits of
+     * its account and server.
+     * @param emailAccount Email account to check
+     * @return True if the account can start a sync
+     */
+    private static boolean canSync(@NotNull EmailAccount emailAccount) {
+        return !syncingAccounts.contains(emailAccount.getId())
+            && hostSyncs.getOrDefault(hostName(emailAccount), 0)
+            < MAX_HOST_SYNCS;
+    }
+
+    /**
+     * Syncs an inbox and pushes the changes to its listeners.
+     * @param emailInbox Inbox to sync
+     */
+    private static void sync(@NotNull EmailInbox emailInbox) {
+        Pair<Email[], String[]> update = null;
+        try {
+            emailInbox.load();
+            emailInbox.indexSavedEmails();
+            update = emailInbox.refresh();
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+        List<EmailInboxListener> inboxListeners;
+        CompletableFuture<Void> waitingSync;
+        synchronized (EmailSyncScheduler.class) {
+            EmailAccount emailAccount = emailInbox.getEmailAccount();
+            syncingAccounts.remove(emailAccount.getId());
+            hostSyncs.computeIfPresent(hostName(emailAccount),
+                (hostName, syncs) -> syncs > 1 ? syncs - 1 : null);
+            runningSyncs--;
+            inboxListeners = new ArrayList<>(listeners.getOrDefault(
+                emailInbox, new ArrayList<>()));
+            waitingSync = waitingSyncs.remove(emailInbox);
+            dispatch();
+        }
+        if (update != null) {
+            for (EmailInboxListener emailInboxListener : inboxListeners) {
+                if (update.getKey().length > 0) {
+                    emailInboxListener.emailsAdded(update.getKey());
+                }
+                if (update.getValue().length > 0) {
+                    emailInboxListener.emailsDeleted(update.getValue());
+                }
+            }
+        }
+        if (waitingSync != null) {
+            waitingSync.complete(null);
+        }
+    }
+
+    /**
+     * Gets the name of the IMAP server of an account.
+     * @param emailAccount Email account
+     * @return Name of the IMAP server
+     */
+    private static String hostName(@NotNull EmailAccount emailAccount) {
+        return emailAccount.getEmailService().getImapHostName();
+    }
+
+}
@@ -162,19 +162,16 @@ public class EmailAddress implements Serializable {
     }
 
     /**
-     * Gets the hash code of all of its tag values.
-     * @return Hash code of all of its tag values
-     */
-    public int getTagValuesHashCode() {
-        StringBuilder stringBuilder = new StringBuilder();
-        for (Map.Entry<EmailTag, String[]> set : tagValues.entrySet()) {
-            stringBuilder.append(set.getKey().getName()).append(":");
-            for (String value : set.getValue()) {
-                stringBuilder.append(value).append(",");
-            }
-            stringBuilder.append(" ");
+     * Gets its tag values in the given tag order for grouping addresses.
+     * @param emailTags Tags in the order to get the values of
+     * @return Tag values in the given tag order
+     */
+    public EmailTagValues getTagValuesKey(EmailTag @NotNull [] emailTags) {
+        String[][] values = new String[emailTags.length][];
+        for (int i = 0; i < emailTags.length; i++) {
+            values[i] = getTagValue(emailTags[i]);
         }
-        return Objects.hashCode(stringBuilder.toString());
+        return new EmailTagValues(values);
     }
 
     /**
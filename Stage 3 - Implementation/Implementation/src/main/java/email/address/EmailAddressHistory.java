@@ -0,0 +1,577 @@
+package email.address;
+
+import file.serializable.SerializableFile;
+import file.serializable.SerializableFileNotFoundException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History of the email addresses used with the system, kept in a compact
+ * prefix trie where every node caches the best ranked addresses below it, so
+ * finding the addresses that start with a string does not scan the history.
+ * Addresses are ranked by how often and how recently they have been used.
+ * Each use is appended to a log file as soon as it happens, while forcing
+ * the log to the device is batched on a timer or once enough uses are
+ * waiting, and the log is rewritten whenever it is mostly made up of older
+ * records.
+ * @author Jordan Jones
+ */
+public class EmailAddressHistory {
+
+    //CONSTANTS
+    public static final int MAX_RESULTS = 10;
+    private static final int CACHED_RESULTS = MAX_RESULTS + 1;
+    private static final double HALF_LIFE_MILLIS = 30.0 * 24 * 60 * 60 * 1000;
+    private static final double DECAY_RATE = Math.log(2) / HALF_LIFE_MILLIS;
+    private static final int COMPACTION_FACTOR = 4;
+    private static final long FLUSH_DELAY_SECONDS = 2;
+    private static final int MAX_UNFORCED_RECORDS = 512;
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final ScheduledExecutorService FLUSH_EXECUTOR
+        = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    //Attributes
+    private final Path logPath;
+    private final Node root = new Node("");
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private long logRecords;
+    private FileChannel log;
+    private int unforcedRecords;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Creates the address history.
+     * @param logPath Path of the history's log file
+     */
+    public EmailAddressHistory(@NotNull String logPath) {
+        this.logPath = Paths.get(logPath);
+    }
+
+    /**
+     * Loads the history from its log file, or from the old history file the
+     * first time, cutting off a record that was only partly written.
+     * @param legacyPath Path of the old history file of addresses
+     * @throws ClassNotFoundException Thrown if the old file's class is missing
+     * @throws IOException Thrown if error reading or writing the history
+     */
+    public synchronized void load(@NotNull String legacyPath)
+        throws ClassNotFoundException, IOException {
+        if (Files.exists(logPath)) {
+            replay();
+            if (isMostlyOld()) {
+                compact();
+            }
+        } else {
+            try {
+                String[] addresses = new SerializableFile<String[]>(
+                    legacyPath).deserialize();
+                long time = Files.getLastModifiedTime(Paths.get(legacyPath))
+                    .toMillis();
+                for (String address : addresses) {
+                    use(address, time);
+                }
+                compact();
+                Files.delete(Paths.get(legacyPath));
+            } catch (SerializableFileNotFoundException notFoundException) {
+                //Nothing used yet so the log is created on the first use
+            }
+        }
+    }
+
+    /**
+     * Adds a use of each of the given addresses to the history, appending it
+     * to the log file straight away and forcing it to the device with the
+     * next batch.
+     * @param emailAddresses Email addresses that have been used
+     * @throws IOException Thrown if error writing to the log file
+     */
+    public synchronized void add(EmailAddress @NotNull [] emailAddresses)
+        throws IOException {
+        if (emailAddresses.length == 0) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (EmailAddress emailAddress : emailAddresses) {
+                Entry entry = use(emailAddress.getAddress(), time);
+                output.writeUTF(entry.address);
+                output.writeDouble(entry.score);
+            }
+        }
+        append(bytes.toByteArray());
+        logRecords += emailAddresses.length;
+        unforcedRecords += emailAddresses.length;
+        if (unforcedRecords >= MAX_UNFORCED_RECORDS) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = FLUSH_EXECUTOR.schedule(this::flushLater,
+                FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Forces the appended uses to the device, rewriting the log file instead
+     * if it is mostly made up of older records.
+     * @throws IOException Thrown if error writing to the log file
+     */
+    public synchronized void flush() throws IOException {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (unforcedRecords == 0) {
+            return;
+        }
+        if (isMostlyOld()) {
+            compact();
+        } else {
+            getLog().force(false);
+        }
+        unforcedRecords = 0;
+    }
+
+    /**
+     * Finds the best ranked addresses that start with the given string.
+     * @param start Start of the email addresses to be found
+     * @return Email addresses that start with the given string (not equals)
+     */
+    public synchronized String @NotNull [] find(@NotNull String start) {
+        String key = start.toLowerCase(Locale.ROOT);
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            node = node.child(key.charAt(position));
+            if (node == null) {
+                return new String[0];
+            }
+            int length = Math.min(node.label.length(),
+                key.length() - position);
+            if (!key.regionMatches(position, node.label, 0, length)) {
+                return new String[0];
+            }
+            position += node.label.length();
+        }
+        ArrayList<String> addresses = new ArrayList<>();
+        for (Entry entry : node.best) {
+            if (addresses.size() < MAX_RESULTS && !entry.key.equals(key)) {
+                addresses.add(entry.address);
+            }
+        }
+        return addresses.toArray(new String[0]);
+    }
+
+    /**
+     * Forces the appended uses to the device and closes the history's log
+     * file.
+     * @throws IOException Thrown if error writing or closing the log file
+     */
+    public synchronized void close() throws IOException {
+        flush();
+        closeLog();
+    }
+
+    /**
+     * Forces the appended uses to the device from the flush timer.
+     */
+    private synchronized void flushLater() {
+        scheduledFlush = null;
+        try {
+            flush();
+        } catch (IOException ioException) {
+            ioException.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds a use of an address at a given time.
+     * @param address Email address that has been used
+     * @param time Time of the use in milliseconds
+     * @return Entry of the address
+     */
+    private @NotNull Entry use(@NotNull String address, long time) {
+        Entry entry = entry(address);
+        entry.score = addScores(entry.score, DECAY_RATE * time);
+        rank(entry);
+        return entry;
+    }
+
+    /**
+     * Sets the score of an address read back from the log file.
+     * @param address Email address
+     * @param score Score of the address
+     */
+    private void restore(@NotNull String address, double score) {
+        Entry entry = entry(address);
+        if (score > entry.score) {
+            entry.score = score;
+            rank(entry);
+        }
+    }
+
+    /**
+     * Gets the entry of an address, adding it to the trie if it is new.
+     * @param address Email address
+     * @return Entry of the address
+     */
+    private @NotNull Entry entry(@NotNull String address) {
+        String key = address.toLowerCase(Locale.ROOT);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(address, key);
+            entries.put(key, entry);
+            insert(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Inserts an entry into the trie, splitting an edge where the entry's key
+     * leaves it part way through.
+     * @param entry Entry to insert
+     */
+    private void insert(@NotNull Entry entry) {
+        String key = entry.key;
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            Node child = node.child(key.charAt(position));
+            if (child == null) {
+                child = new Node(key.substring(position));
+                node.addChild(child);
+                node = child;
+                break;
+            }
+            int common = 1;
+            while (common < child.label.length()
+                && position + common < key.length()
+                && child.label.charAt(common)
+                == key.charAt(position + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                Node split = new Node(child.label.substring(0, common));
+                split.best = child.best.clone();
+                node.replaceChild(split);
+                child.label = child.label.substring(common);
+                split.addChild(child);
+                child = split;
+            }
+            node = child;
+            position += common;
+        }
+    }
+
+    /**
+     * Moves an entry up the cached best addresses of every node on its path,
+     * which stays exact as a score only ever increases.
+     * @param entry Entry whose score has increased
+     */
+    private void rank(@NotNull Entry entry) {
+        Node node = root;
+        int position = 0;
+        root.rank(entry);
+        while (position < entry.key.length()) {
+            node = node.child(entry.key.charAt(position));
+            node.rank(entry);
+            position += node.label.length();
+        }
+    }
+
+    /**
+     * Appends records to the log file, cutting them off again if they are
+     * only partly written so the next records are not lost behind them.
+     * @param records Records to append
+     * @throws IOException Thrown if error writing to the log file
+     */
+    private void append(byte @NotNull [] records) throws IOException {
+        FileChannel channel = getLog();
+        long size = channel.size();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ioException) {
+            channel.truncate(size);
+            throw ioException;
+        }
+    }
+
+    /**
+     * Checks if the log file is mostly made up of older records of addresses,
+     * so it is worth rewriting.
+     * @return True if the log file is mostly older records
+     */
+    private boolean isMostlyOld() {
+        return logRecords >= MIN_COMPACTION_RECORDS
+            && logRecords > (long) COMPACTION_FACTOR * entries.size();
+    }
+
+    /**
+     * Replays the log file, cutting off a record that was only partly written.
+     * @throws IOException Thrown if error reading the log file
+     */
+    private void replay() throws IOException {
+        long validBytes = 0;
+        try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                String address = input.readUTF();
+                double score = input.readDouble();
+                restore(address, score);
+                logRecords++;
+                validBytes += Short.BYTES + utfLength(address) + Double.BYTES;
+            }
+        } catch (EOFException endOfFileException) {
+            if (validBytes < Files.size(logPath)) {
+                try (FileChannel channel = FileChannel.open(logPath,
+                    StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log file with one record per address.
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void compact() throws IOException {
+        closeLog();
+        Files.createDirectories(logPath.getParent());
+        Path tempPath = Paths.get(logPath + TEMP_EXTENSION);
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            for (Entry entry : entries.values()) {
+                output.writeUTF(entry.address);
+                output.writeDouble(entry.score);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tempPath,
+            StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        logRecords = entries.size();
+    }
+
+    /**
+     * Closes the log file's channel if it is open.
+     * @throws IOException Thrown if error closing the log file
+     */
+    private void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Gets the log file's channel, opening it if it is not open.
+     * @return Channel appending to the log file
+     * @throws IOException Thrown if error opening the log file
+     */
+    private @NotNull FileChannel getLog() throws IOException {
+        if (log == null) {
+            Files.createDirectories(logPath.getParent());
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return log;
+    }
+
+    /**
+     * Adds two scores kept as logarithms, so a score is the sum of its uses
+     * each weighted by how recent it is without the sum overflowing.
+     * @param score Score kept as a logarithm
+     * @param otherScore Other score kept as a logarithm
+     * @return Logarithm of the sum of the two scores
+     */
+    private static double addScores(double score, double otherScore) {
+        if (score == Double.NEGATIVE_INFINITY) {
+            return otherScore;
+        }
+        double max = Math.max(score, otherScore);
+        return max + Math.log1p(Math.exp(-Math.abs(score - otherScore)));
+    }
+
+    /**
+     * Gets the number of bytes a string takes in modified UTF-8.
+     * @param string String to measure
+     * @return Number of bytes of the string
+     */
+    private static int utfLength(@NotNull String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char character = string.charAt(i);
+            if (character >= 0x0001 && character <= 0x007F) {
+                length++;
+            } else if (character > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Represents an address in the history and its score.
+     */
+    private static final class Entry {
+
+        //Attributes
+        private final String address;
+        private final String key;
+        private double score = Double.NEGATIVE_INFINITY;
+
+        /**
+         * Creates the entry of an address.
+         * @param address Email address
+         * @param key Lower case email address
+         */
+        private Entry(@NotNull String address, @NotNull String key) {
+            this.address = address;
+            this.key = key;
+        }
+
+        /**
+         * Checks if the entry is ranked above another entry.
+         * @param other Entry to compare with
+         * @return True if the entry has a higher score
+         */
+        private boolean isAbove(@NotNull Entry other) {
+            return score > other.score || (score == other.score
+                && key.compareTo(other.key) < 0);
+        }
+
+    }
+
+    /**
+     * Represents a node of the trie, reached by an edge label of characters.
+     */
+    private static final class Node {
+
+        //Attributes
+        private String label;
+        private Node[] children = NO_NODES;
+        private Entry[] best = NO_ENTRIES;
+
+        /**
+         * Creates a node of the trie.
+         * @param label Characters of the edge leading to the node
+         */
+        private Node(@NotNull String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the child whose edge starts with the given character.
+         * @param character First character of the child's edge
+         * @return Child node, otherwise null
+         */
+        private Node child(char character) {
+            int index = childIndex(character);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * Adds a child, keeping the children ordered by first character.
+         * @param child Child to add
+         */
+        private void addChild(@NotNull Node child) {
+            int index = -childIndex(child.label.charAt(0)) - 1;
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1,
+                children.length - index);
+            children = newChildren;
+        }
+
+        /**
+         * Replaces the child whose edge starts with the same character.
+         * @param child Child to replace with
+         */
+        private void replaceChild(@NotNull Node child) {
+            children[childIndex(child.label.charAt(0))] = child;
+        }
+
+        /**
+         * Finds the index of the child whose edge starts with a character.
+         * @param character First character of the child's edge
+         * @return Index of the child, otherwise (-(insertion point) - 1)
+         */
+        private int childIndex(char character) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleCharacter = children[middle].label.charAt(0);
+                if (middleCharacter < character) {
+                    low = middle + 1;
+                } else if (middleCharacter > character) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Moves an entry whose score has increased into its place in the
+         * node's best entries.
+         * @param ranked Entry whose score has increased
+         */
+        private void rank(@NotNull Entry ranked) {
+            int index = Arrays.asList(best).indexOf(ranked);
+            if (index == -1) {
+                if (best.length < CACHED_RESULTS) {
+                    best = Arrays.copyOf(best, best.length + 1);
+                } else if (!ranked.isAbove(best[best.length - 1])) {
+                    return;
+                }
+                index = best.length - 1;
+            }
+            while (index > 0 && ranked.isAbove(best[index - 1])) {
+                best[index] = best[index - 1];
+                index--;
+            }
+            best[index] = ranked;
+        }
+
+    }
+
+}
@@ -0,0 +1,254 @@
+package email.address;
+
+import email.email.body.tag.EmailListTag;
+import email.email.body.tag.EmailTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Streams recipients and their tag values from a CSV or TSV file.
+ * The first row names the columns: an address column, an optional nickname
+ * column and one column per tag. List tag values are split on '|'.
+ * @author Jordan Jones
+ */
+public class EmailRecipientReader implements AutoCloseable {
+
+    //CONSTANTS
+    public static final String ADDRESS_COLUMN = "Address";
+    public static final String NICKNAME_COLUMN = "Nickname";
+    public static final String LIST_VALUE_DELIMITER = "|";
+    public static final String[] FILE_EXTENSIONS = {"*.csv", "*.tsv"};
+    private static final String TSV_EXTENSION = ".tsv";
+    private static final char CSV_DELIMITER = ',';
+    private static final char TSV_DELIMITER = '\t';
+    private static final char QUOTE = '"';
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    private static final int NO_COLUMN = -1;
+    private static final String MISSING_COLUMN_ERROR = "missing column %s";
+    private static final String UNKNOWN_COLUMN_ERROR = "unknown column %s";
+    private static final String COLUMN_COUNT_ERROR
+        = "expected %d columns but found %d";
+    private static final String UNCLOSED_QUOTE_ERROR = "unclosed quote";
+
+    //Attributes
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final EmailTag[] emailTags;
+    private final int[] tagColumns;
+    private int addressColumn = NO_COLUMN;
+    private int nicknameColumn = NO_COLUMN;
+    private int columnCount;
+    private long lineNumber = 1;
+    private long rowLineNumber = 1;
+    private final ArrayList<String> row = new ArrayList<>();
+    private final StringBuilder cell = new StringBuilder();
+
+    /**
+     * Opens a recipient file and reads its header row.
+     * @param filePath Path of the CSV or TSV file
+     * @param emailTags Tags that each recipient needs values for
+     * @throws InvalidRecipientFileException Thrown if the header is invalid
+     * @throws IOException Thrown if error reading the file
+     */
+    public EmailRecipientReader(@NotNull String filePath,
+        EmailTag @NotNull [] emailTags)
+        throws InvalidRecipientFileException, IOException {
+        this.reader = Files.newBufferedReader(Paths.get(filePath),
+            StandardCharsets.UTF_8);
+        this.delimiter = filePath.toLowerCase().endsWith(TSV_EXTENSION)
+            ? TSV_DELIMITER : CSV_DELIMITER;
+        this.emailTags = emailTags;
+        this.tagColumns = new int[emailTags.length];
+        Arrays.fill(tagColumns, NO_COLUMN);
+        try {
+            readHeader();
+        } catch (InvalidRecipientFileException | IOException exception) {
+            close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Reads the header row to find the column of each tag.
+     * @throws InvalidRecipientFileException Thrown if the header is invalid
+     * @throws IOException Thrown if error reading the file
+     */
+    private void readHeader()
+        throws InvalidRecipientFileException, IOException {
+        if (!readRow()) {
+            throw new InvalidRecipientFileException(rowLineNumber,
+                String.format(MISSING_COLUMN_ERROR, ADDRESS_COLUMN));
+        }
+        columnCount = row.size();
+        for (int column = 0; column < columnCount; column++) {
+            String name = row.get(column).replace(BYTE_ORDER_MARK, "").trim();
+            if (name.equalsIgnoreCase(ADDRESS_COLUMN)) {
+                addressColumn = column;
+            } else if (name.equalsIgnoreCase(NICKNAME_COLUMN)) {
+                nicknameColumn = column;
+            } else {
+                int tagIndex = Arrays.asList(emailTags)
+                    .indexOf(new EmailTag(name));
+                if (tagIndex == -1) {
+                    throw new InvalidRecipientFileException(rowLineNumber,
+                        String.format(UNKNOWN_COLUMN_ERROR, name));
+                }
+                tagColumns[tagIndex] = column;
+            }
+        }
+        if (addressColumn == NO_COLUMN) {
+            throw new InvalidRecipientFileException(rowLineNumber,
+                String.format(MISSING_COLUMN_ERROR, ADDRESS_COLUMN));
+        }
+        for (int i = 0; i < emailTags.length; i++) {
+            if (tagColumns[i] == NO_COLUMN) {
+                throw new InvalidRecipientFileException(rowLineNumber,
+                    String.format(MISSING_COLUMN_ERROR,
+                        emailTags[i].getName()));
+            }
+        }
+    }
+
+    /**
+     * Reads every recipient of a file without keeping them, so an invalid
+     * row is found before the email is sent to anyone.
+     * @param filePath Path of the CSV or TSV file
+     * @param emailTags Tags that each recipient needs values for
+     * @return Number of recipients in the file
+     * @throws EmptyTagValueException Thrown if an address' tag value is empty
+     * @throws InvalidEmailAddressException Thrown if an address is invalid
+     * @throws InvalidRecipientFileException Thrown if the file is invalid
+     * @throws IOException Thrown if error reading the file
+     */
+    public static long validate(@NotNull String filePath,
+        EmailTag @NotNull [] emailTags) throws EmptyTagValueException,
+        InvalidEmailAddressException, InvalidRecipientFileException,
+        IOException {
+        long recipientCount = 0;
+        try (EmailRecipientReader recipientReader
+                 = new EmailRecipientReader(filePath, emailTags)) {
+            EmailAddress emailAddress;
+            while ((emailAddress = recipientReader.next()) != null) {
+                for (EmailTag emailTag : emailTags) {
+                    for (String value : emailAddress.getTagValue(emailTag)) {
+                        if (value.isEmpty()) {
+                            throw new EmptyTagValueException(emailAddress,
+                                emailTag);
+                        }
+                    }
+                }
+                recipientCount++;
+            }
+        }
+        return recipientCount;
+    }
+
+    /**
+     * Reads the next recipient of the file.
+     * @return Next recipient with its tag values, otherwise null at the end
+     * @throws InvalidEmailAddressException Thrown if an address is invalid
+     * @throws InvalidRecipientFileException Thrown if a row is invalid
+     * @throws IOException Thrown if error reading the file
+     */
+    public EmailAddress next() throws InvalidEmailAddressException,
+        InvalidRecipientFileException, IOException {
+        if (!readRow()) {
+            return null;
+        }
+        if (row.size() != columnCount) {
+            throw new InvalidRecipientFileException(rowLineNumber,
+                String.format(COLUMN_COUNT_ERROR, columnCount, row.size()));
+        }
+        EmailAddress emailAddress = new EmailAddress(
+            row.get(addressColumn).trim());
+        if (nicknameColumn != NO_COLUMN) {
+            emailAddress.setNickname(row.get(nicknameColumn).trim());
+        }
+        emailAddress.setTags(emailTags);
+        for (int i = 0; i < emailTags.length; i++) {
+            String value = row.get(tagColumns[i]);
+            emailAddress.setTagValue(emailTags[i],
+                emailTags[i] instanceof EmailListTag
+                    ? value.split("\\" + LIST_VALUE_DELIMITER)
+                    : new String[]{value});
+        }
+        return emailAddress;
+    }
+
+    /**
+     * Reads the cells of the next non-blank row into the row list, keeping
+     * the line the row starts on.
+     * @return False if the end of the file has been reached
+     * @throws InvalidRecipientFileException Thrown if a quote is not closed
+     * @throws IOException Thrown if error reading the file
+     */
+    private boolean readRow()
+        throws InvalidRecipientFileException, IOException {
+        row.clear();
+        cell.setLength(0);
+        rowLineNumber = lineNumber;
+        boolean isQuoted = false;
+        boolean isRowEmpty = true;
+        int character;
+        while ((character = reader.read()) != -1) {
+            if (character == '\n') {
+                lineNumber++;
+            }
+            if (isQuoted) {
+                if (character != QUOTE) {
+                    cell.append((char) character);
+                } else {
+                    reader.mark(1);
+                    if (reader.read() == QUOTE) {
+                        cell.append(QUOTE);
+                    } else {
+                        reader.reset();
+                        isQuoted = false;
+                    }
+                }
+            } else if (character == QUOTE && cell.length() == 0) {
+                isQuoted = true;
+                isRowEmpty = false;
+            } else if (character == delimiter) {
+                row.add(cell.toString());
+                cell.setLength(0);
+                isRowEmpty = false;
+            } else if (character == '\n') {
+                if (!isRowEmpty || cell.length() > 0) {
+                    row.add(cell.toString());
+                    return true;
+                }
+                rowLineNumber = lineNumber;
+            } else if (character != '\r') {
+                cell.append((char) character);
+                isRowEmpty = false;
+            }
+        }
+        if (isQuoted) {
+            throw new InvalidRecipientFileException(rowLineNumber,
+                UNCLOSED_QUOTE_ERROR);
+        }
+        if (isRowEmpty && cell.length() == 0) {
+            return false;
+        }
+        row.add(cell.toString());
+        return true;
+    }
+
+    /**
+     * Closes the recipient file.
+     * @throws IOException Thrown if error closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,67 @@
+package email.address;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Represents the tag values of an address in a fixed tag order, so addresses
+ * with the same values can be grouped together.
+ * @author Jordan Jones
+ */
+public final class EmailTagValues {
+
+    //Attributes
+    private final String[][] tagValues;
+    private final int hashCode;
+
+    /**
+     * Creates the tag values of an address.
+     * @param tagValues Values of each tag in a fixed tag order
+     */
+    public EmailTagValues(String @NotNull [][] tagValues) {
+        this.tagValues = new String[tagValues.length][];
+        for (int i = 0; i < tagValues.length; i++) {
+            this.tagValues[i] = tagValues[i] == null
+                ? null : tagValues[i].clone();
+        }
+        this.hashCode = Arrays.deepHashCode(this.tagValues);
+    }
+
+    /**
+     * Checks if the given object has exactly the same tag values.
+     * @param o Object to compare with
+     * @return True if the tag values are the same
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EmailTagValues)) {
+            return false;
+        }
+        EmailTagValues that = (EmailTagValues) o;
+        return hashCode == that.hashCode
+            && Arrays.deepEquals(tagValues, that.tagValues);
+    }
+
+    /**
+     * Gets the hash code of the tag values.
+     * @return Hash code of the tag values
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Gets the tag values in a string format.
+     * @return Tag values in a string format
+     */
+    @Override
+    public String toString() {
+        return Arrays.deepToString(tagValues);
+    }
+
+}
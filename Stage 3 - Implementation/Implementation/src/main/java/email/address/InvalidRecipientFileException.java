@@ -0,0 +1,41 @@
+package email.address;
+
+/**
+ * Error thrown if a recipient file is not in the expected format.
+ * @author Jordan Jones
+ */
+public class InvalidRecipientFileException extends Exception {
+
+    //CONSTANTS
+    private static final String MESSAGE = "Recipient file line %d: %s";
+
+    //Attributes
+    private long lineNumber;
+
+    /**
+     * Creates the exception to be thrown.
+     * @param lineNumber Line of the file that is invalid
+     * @param problem Description of what is wrong with the line
+     */
+    public InvalidRecipientFileException(long lineNumber, String problem) {
+        super(String.format(MESSAGE, lineNumber, problem));
+        setLineNumber(lineNumber);
+    }
+
+    /**
+     * Sets the line of the file that is invalid.
+     * @param lineNumber Line of the file that is invalid
+     */
+    private void setLineNumber(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Gets the line of the file that is invalid.
+     * @return Line of the file that is invalid
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+}
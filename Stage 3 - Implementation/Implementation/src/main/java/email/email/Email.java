@@ -131,6 +131,18 @@ public class Email implements Serializable {
         return isRead;
     }
 
+    /**
+     * Gets a copy of the email with a summary of its body.
+     * @return Copy of the email with a summary of its body
+     */
+    public Email getSummary() {
+        if (getBody() == null || getBody().getIsSummary()) {
+            return this;
+        }
+        return new Email(getMessageId(), getHeader(),
+            getBody().getSummary(getHeader()), getIsRead());
+    }
+
     /**
      * Generates the message of the email for draft purposes.
      * @param emailAccount Email account that the message is to be sent from
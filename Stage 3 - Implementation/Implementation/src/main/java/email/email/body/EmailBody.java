@@ -7,6 +7,8 @@ import org.jetbrains.annotations.NotNull;
 import email.address.EmailAddress;
 import email.email.EmailHeader;
 import file.ExtendedFile;
+import org.jsoup.nodes.Document;
+import org.jsoup.Jsoup;
 
 /**
  * Represents an email body.
@@ -14,6 +16,9 @@ import file.ExtendedFile;
  */
 public class EmailBody implements Serializable {
 
+    //CONSTANTS
+    private static final int SNIPPET_LENGTH = 200;
+
     //Attributes
     private EmailContents contents;
     private ExtendedFile[] attachments;
@@ -108,6 +113,33 @@ public class EmailBody implements Serializable {
         return attachmentNumber;
     }
 
+    /**
+     * Gets if the body is a summary without its full contents or attachments.
+     * @return True if the body is a summary
+     */
+    public boolean getIsSummary() {
+        return getAttachments() == null;
+    }
+
+    /**
+     * Gets a summary of the body with a snippet of its text.
+     * @param header Header of the same email
+     * @return Summary of the body
+     */
+    public EmailBody getSummary(EmailHeader header) {
+        if (getIsSummary()) {
+            return this;
+        }
+        Document document = Jsoup.parse(getContents().getText());
+        document.select("title").remove();
+        String snippet = document.text().trim();
+        if (snippet.length() > SNIPPET_LENGTH) {
+            snippet = snippet.substring(0, SNIPPET_LENGTH);
+        }
+        return new EmailBody(header, new EmailContents(snippet),
+            getAttachmentNumber());
+    }
+
     /**
      * Saves the attachments locally.
      * @throws IOException Thrown if error with saving the file to the system
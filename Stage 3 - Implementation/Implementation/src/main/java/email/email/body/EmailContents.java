@@ -1,14 +1,10 @@
 package email.email.body;
 
-import email.email.body.tag.EmailListTag;
 import email.email.body.tag.EmailTag;
 import email.address.EmailAddress;
 import email.address.EmptyTagValueException;
-import util.Alphabet;
-import util.BulletPointType;
 
 import java.io.Serializable;
-import java.util.regex.Pattern;
 
 /**
  * Represents the contents of an email.
@@ -19,6 +15,7 @@ public class EmailContents implements Serializable {
     //Attributes
     private String text;
     private EmailTag[] emailTags;
+    private transient EmailTemplate template;
 
     /**
      * Creates the contents of an email.
@@ -70,6 +67,17 @@ public class EmailContents implements Serializable {
         return emailTags;
     }
 
+    /**
+     * Gets the contents compiled into a template, compiling it the first time.
+     * @return Contents compiled into a template
+     */
+    private synchronized EmailTemplate getTemplate() {
+        if (template == null) {
+            template = new EmailTemplate(getText(), getTags());
+        }
+        return template;
+    }
+
     /**
      * Gets the contents with its emailTags filled for the address.
      * @param emailAddress Email address to get emailTags for
@@ -78,47 +86,7 @@ public class EmailContents implements Serializable {
      */
     public String getFilledText(EmailAddress emailAddress)
         throws EmptyTagValueException {
-        String filledText = text;
-        for (EmailTag emailTag : getTags()) {
-            if (emailTag instanceof EmailListTag) {
-                String[] tagValues = emailAddress.getTagValue(emailTag);
-                StringBuilder bulletPoints = new StringBuilder();
-                EmailListTag emailListTag = ((EmailListTag) emailTag);
-                int i = 0;
-                Alphabet alphabet = new Alphabet(false);
-                for (String tagValue : tagValues) {
-                    if (tagValue == null || tagValue.equals("")) {
-                        throw new EmptyTagValueException(
-                            emailAddress, emailTag);
-                    }
-                    String value;
-                    if (emailListTag.getBulletPointType().equals(
-                        BulletPointType.NUMBER_BULLET_POINT)) {
-                        i++;
-                        value = i + ".";
-                    } else if (emailListTag.getBulletPointType().equals(
-                        BulletPointType.LETTER_BULLET_POINT)) {
-                        value = alphabet.letter(i) + ".";
-                        i++;
-                    } else {
-                        value = emailListTag.getBulletPointType().toString();
-                    }
-                    bulletPoints.append(value).append(" ")
-                        .append(tagValue).append("<br>");
-                }
-                filledText = filledText.replaceAll(Pattern.quote(
-                    emailTag.toString()), bulletPoints.substring(0,
-                    bulletPoints.length() - "<br>".length()));
-            } else {
-                String tagValue = emailAddress.getTagValue(emailTag)[0];
-                if (tagValue == null || tagValue.equals("")) {
-                    throw new EmptyTagValueException(emailAddress, emailTag);
-                }
-                filledText = filledText.replaceAll(
-                    Pattern.quote(emailTag.toString()), tagValue);
-            }
-        }
-        return filledText;
+        return getTemplate().fill(emailAddress);
     }
 
     /**
@@ -0,0 +1,155 @@
+package email.email.body;
+
+import email.address.EmailAddress;
+import email.address.EmptyTagValueException;
+import email.email.body.tag.EmailListTag;
+import email.email.body.tag.EmailTag;
+import org.jetbrains.annotations.NotNull;
+import util.Alphabet;
+import util.BulletPointType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Represents contents text compiled into literal segments and tag slots.
+ * @author Jordan Jones
+ */
+public class EmailTemplate {
+
+    //CONSTANTS
+    private static final String LINE_BREAK = "<br>";
+
+    //Attributes
+    private final EmailTag[] emailTags;
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalsLength;
+    private final StringBuilder filledText;
+
+    /**
+     * Compiles the text of some contents by finding every tag in one scan.
+     * @param text Text of the contents
+     * @param emailTags Tags of the contents
+     */
+    public EmailTemplate(@NotNull String text, EmailTag[] emailTags) {
+        this.emailTags = emailTags == null ? new EmailTag[0] : emailTags;
+        HashMap<String, Integer> tagIndexes = new HashMap<>();
+        int maxTagLength = 0;
+        for (int i = 0; i < this.emailTags.length; i++) {
+            String tag = this.emailTags[i].toString();
+            tagIndexes.putIfAbsent(tag, i);
+            maxTagLength = Math.max(maxTagLength, tag.length());
+        }
+        ArrayList<String> literals = new ArrayList<>();
+        ArrayList<Integer> slots = new ArrayList<>();
+        int literalStart = 0;
+        int tagStart = tagIndexes.isEmpty()
+            ? -1 : text.indexOf(EmailTag.TAG_START);
+        while (tagStart != -1) {
+            int tagEnd = findTagEnd(text, tagStart, maxTagLength);
+            Integer tagIndex = tagEnd == -1
+                ? null : tagIndexes.get(text.substring(tagStart, tagEnd));
+            if (tagIndex != null) {
+                literals.add(text.substring(literalStart, tagStart));
+                slots.add(tagIndex);
+                literalStart = tagEnd;
+                tagStart = text.indexOf(EmailTag.TAG_START, tagEnd);
+            } else {
+                tagStart = text.indexOf(EmailTag.TAG_START, tagStart + 1);
+            }
+        }
+        literals.add(text.substring(literalStart));
+        this.literals = literals.toArray(new String[0]);
+        this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.literalsLength = text.length();
+        this.filledText = new StringBuilder(text.length());
+    }
+
+    /**
+     * Finds the end of a tag that starts at the given index.
+     * @param text Text of the contents
+     * @param tagStart Index of the start of the tag
+     * @param maxTagLength Length of the longest tag of the contents
+     * @return Index after the end of the tag, otherwise -1 if it is not one
+     */
+    private static int findTagEnd(@NotNull String text, int tagStart,
+        int maxTagLength) {
+        int searchEnd = Math.min(text.length(), tagStart + maxTagLength)
+            - EmailTag.TAG_END.length();
+        for (int i = tagStart + EmailTag.TAG_START.length();
+             i <= searchEnd; i++) {
+            if (text.startsWith(EmailTag.TAG_END, i)) {
+                return i + EmailTag.TAG_END.length();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fills the tags of the template for the given address in one pass.
+     * @param emailAddress Email address to fill the tags for
+     * @return Text with the tags filled for the given address
+     * @throws EmptyTagValueException Thrown if an address' tag value is empty
+     */
+    public synchronized String fill(EmailAddress emailAddress)
+        throws EmptyTagValueException {
+        String[] tagValues = new String[emailTags.length];
+        int valuesLength = 0;
+        for (int i = 0; i < emailTags.length; i++) {
+            tagValues[i] = tagValue(emailAddress, emailTags[i]);
+            valuesLength += tagValues[i].length();
+        }
+        filledText.setLength(0);
+        filledText.ensureCapacity(literalsLength + valuesLength);
+        filledText.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            filledText.append(tagValues[slots[i]]).append(literals[i + 1]);
+        }
+        return filledText.toString();
+    }
+
+    /**
+     * Gets the value of a tag for the given address.
+     * @param emailAddress Email address to get the value for
+     * @param emailTag Tag to get the value of
+     * @return Value of the tag (bullet points if it is a list tag)
+     * @throws EmptyTagValueException Thrown if an address' tag value is empty
+     */
+    private static String tagValue(@NotNull EmailAddress emailAddress,
+        EmailTag emailTag) throws EmptyTagValueException {
+        String[] tagValues = emailAddress.getTagValue(emailTag);
+        if (!(emailTag instanceof EmailListTag)) {
+            if (tagValues[0] == null || tagValues[0].equals("")) {
+                throw new EmptyTagValueException(emailAddress, emailTag);
+            }
+            return tagValues[0];
+        }
+        BulletPointType bulletPointType
+            = ((EmailListTag) emailTag).getBulletPointType();
+        Alphabet alphabet = new Alphabet(false);
+        StringBuilder bulletPoints = new StringBuilder();
+        for (int i = 0; i < tagValues.length; i++) {
+            if (tagValues[i] == null || tagValues[i].equals("")) {
+                throw new EmptyTagValueException(emailAddress, emailTag);
+            }
+            if (i > 0) {
+                bulletPoints.append(LINE_BREAK);
+            }
+            if (bulletPointType.equals(BulletPointType.NUMBER_BULLET_POINT)) {
+                bulletPoints.append(i + 1).append(".");
+            } else if (bulletPointType.equals(
+                BulletPointType.LETTER_BULLET_POINT)) {
+                bulletPoints.append(alphabet.letter(i)).append(".");
+            } else {
+                bulletPoints.append(bulletPointType);
+            }
+            bulletPoints.append(" ").append(tagValues[i]);
+        }
+        if (bulletPoints.length() == 0) {
+            throw new EmptyTagValueException(emailAddress, emailTag);
+        }
+        return bulletPoints.toString();
+    }
+
+}
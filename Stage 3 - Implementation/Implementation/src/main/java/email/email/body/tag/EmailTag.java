@@ -18,6 +18,7 @@ public class EmailTag implements Serializable {
 
     //Attributes
     private String name;
+    private transient String baseName;
 
     /**
      * Creates a tag.
@@ -52,6 +53,17 @@ public class EmailTag implements Serializable {
         return name;
     }
 
+    /**
+     * Gets the name of the tag without the list identifier.
+     * @return Name of the tag without the list identifier
+     */
+    private String getBaseName() {
+        if (baseName == null) {
+            baseName = getName().split("\\(List\\)")[0];
+        }
+        return baseName;
+    }
+
     /**
      * Checks if the given object is the same as this tag.
      * @param o object to compare
@@ -67,8 +79,7 @@ public class EmailTag implements Serializable {
             return false;
         }
         EmailTag emailTag = (EmailTag) o;
-        return getName().split("\\(List\\)")[0].equals(
-            emailTag.getName().split("\\(List\\)")[0]);
+        return getBaseName().equals(emailTag.getBaseName());
     }
 
     /**
@@ -77,7 +88,7 @@ public class EmailTag implements Serializable {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(getName().split("\\(List\\)")[0]);
+        return Objects.hash(getBaseName());
     }
 
     /**
@@ -0,0 +1,101 @@
+package email.search;
+
+import email.EmailAccount;
+import email.EmailExecutor;
+import email.EmailInbox;
+import email.HostConnectionFailureException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Searches the saved emails with the local search index and the emails that
+ * are not saved yet with the servers, so an email can be found without
+ * syncing a whole mailbox first.
+ * @author Jordan Jones
+ */
+public class EmailSearch {
+
+    /**
+     * Searches the saved emails of an inbox and the emails of the inbox that
+     * are only on the server. Each is cut to the most results on its own, so
+     * the saved emails can't crowd out the server's, and the same email is
+     * only returned once.
+     * @param query Search query
+     * @param maxResults Most results of the saved emails and of the server
+     * @param emailAccountId Id of the email account the inbox is in
+     * @param emailInbox Inbox to search
+     * @return Saved emails best match first, then emails only on the server
+     * newest first
+     * @throws IOException Thrown if error reading the search index
+     */
+    public static @NotNull List<EmailSearchResult> search(
+        @NotNull EmailSearchQuery query, int maxResults, int emailAccountId,
+        @NotNull EmailInbox emailInbox) throws IOException {
+        CompletableFuture<List<EmailSearchResult>> serverSearch
+            = CompletableFuture.supplyAsync(
+                () -> searchServer(emailInbox, query, maxResults),
+                EmailExecutor.getExecutor());
+        LinkedHashMap<String, EmailSearchResult> results
+            = new LinkedHashMap<>();
+        for (EmailSearchResult result : EmailAccount.getSearchIndex().search(
+            query.getIndexQuery(), query.getSince(), emailAccountId,
+            emailInbox.getEmailInboxType(), maxResults)) {
+            results.putIfAbsent(key(result), result);
+        }
+        ArrayList<EmailSearchResult> serverResults = new ArrayList<>(
+            serverSearch.join());
+        serverResults.sort(Comparator.comparing(
+            EmailSearchResult::getReceivedDate,
+            Comparator.nullsLast(Comparator.<Date>reverseOrder())));
+        int serverCount = 0;
+        for (EmailSearchResult result : serverResults) {
+            if (serverCount == maxResults) {
+                break;
+            }
+            if (results.putIfAbsent(key(result), result) == null) {
+                serverCount++;
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Gets the key of a search result, which is the same for the same email
+     * in the same inbox of the same account.
+     * @param result Search result
+     * @return Key of the search result
+     */
+    private static @NotNull String key(@NotNull EmailSearchResult result) {
+        return result.getEmailAccountId() + "/" + result.getEmailInboxType()
+            + "/" + result.getMessageId();
+    }
+
+    /**
+     * Searches an inbox on the server, finding nothing if the server can't be
+     * reached so the saved emails are still found offline.
+     * @param emailInbox Inbox to search
+     * @param query Search query
+     * @param maxResults Most results to return
+     * @return Matching emails that are only on the server
+     */
+    private static @NotNull List<EmailSearchResult> searchServer(
+        @NotNull EmailInbox emailInbox, @NotNull EmailSearchQuery query,
+        int maxResults) {
+        try {
+            return emailInbox.search(query, maxResults);
+        } catch (HostConnectionFailureException connectionException) {
+            //No internet connection so only the saved emails are found
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+}
@@ -0,0 +1,827 @@
+package email.search;
+
+import email.EmailInbox;
+import email.address.EmailAddress;
+import email.email.Email;
+import email.email.EmailHeader;
+import file.ExtendedFile;
+import org.jetbrains.annotations.NotNull;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Inverted index of the words of every saved email of every account, so the
+ * emails can be searched without the server. Each word of the subject,
+ * addresses, body text and attachment names points to the emails it is in,
+ * weighted by where it is found. A search matches emails that contain every
+ * word of the query, or a word starting with it, ranked by how rare and how
+ * prominent the matched words are.
+ * The index is kept in memory and changes are appended to a log file that is
+ * replayed in the background when the app starts, and rewritten whenever most
+ * of it is about emails that have since been removed.
+ * @author Jordan Jones
+ */
+public class EmailSearchIndex {
+
+    //CONSTANTS
+    public static final int MAX_RESULTS = 50;
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int MAX_PREFIX_WORDS = 200;
+    private static final float SUBJECT_WEIGHT = 3;
+    private static final float ADDRESS_WEIGHT = 2;
+    private static final float ATTACHMENT_WEIGHT = 2;
+    private static final float BODY_WEIGHT = 1;
+    private static final double SATURATION = 1.2;
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+    private static final int MIN_COMPACTION_DOCUMENTS = 1024;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final byte DOCUMENT_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    private static final byte POSTINGS_RECORD = 3;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    //Attributes
+    private final Path logPath;
+    private final HashMap<String, Integer> documentIds = new HashMap<>();
+    private final ArrayList<IndexedEmail> documents = new ArrayList<>();
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private int liveDocuments;
+    private boolean isLoaded;
+    private FileChannel log;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * Email in the index.
+     */
+    private static class IndexedEmail {
+
+        //Attributes
+        private final int emailAccountId;
+        private final EmailInbox.EmailInboxType emailInboxType;
+        private final String messageId;
+        private final long receivedDate;
+
+        /**
+         * Creates an email of the index.
+         * @param emailAccountId Id of the email account the email is in
+         * @param emailInboxType Inbox type the email is in
+         * @param messageId Message id of the email
+         * @param receivedDate Received date in milliseconds (or NO_DATE)
+         */
+        private IndexedEmail(int emailAccountId,
+            @NotNull EmailInbox.EmailInboxType emailInboxType,
+            @NotNull String messageId, long receivedDate) {
+            this.emailAccountId = emailAccountId;
+            this.emailInboxType = emailInboxType;
+            this.messageId = messageId;
+            this.receivedDate = receivedDate;
+        }
+
+    }
+
+    /**
+     * Emails a word is in, in the order they were indexed, with the weight of
+     * the word in each. Removed emails are skipped until the index is
+     * rewritten.
+     */
+    private static class Postings {
+
+        //Attributes
+        private int[] documents = new int[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        /**
+         * Adds an email the word is in.
+         * @param document Id of the email in the index
+         * @param weight Weight of the word in the email
+         */
+        private void add(int document, float weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = document;
+            weights[size] = weight;
+            size++;
+        }
+
+    }
+
+    /**
+     * Creates the search index.
+     * @param logPath Path of the index's log file
+     */
+    public EmailSearchIndex(@NotNull String logPath) {
+        this.logPath = Paths.get(logPath);
+    }
+
+    /**
+     * Adds an email to the index, replacing it if it is already indexed.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param email Email with its full body, or a summary if that is all
+     * @throws IOException Thrown if error reading or writing the log file
+     */
+    public synchronized void add(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType,
+        @NotNull Email email) throws IOException {
+        load();
+        remove(emailAccountId, emailInboxType, email.getMessageId());
+        LinkedHashMap<String, Float> weights = weights(email);
+        Date receivedDate = email.getHeader().getReceivedDate();
+        IndexedEmail indexedEmail = new IndexedEmail(emailAccountId,
+            emailInboxType, email.getMessageId(),
+            receivedDate == null ? NO_DATE : receivedDate.getTime());
+        int document = documents.size();
+        addDocument(document, indexedEmail);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            writeDocument(output, document, indexedEmail);
+            output.writeInt(weights.size());
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeFloat(entry.getValue());
+                words.computeIfAbsent(entry.getKey(), word -> new Postings())
+                    .add(document, entry.getValue());
+            }
+        }
+        pend(DOCUMENT_RECORD, bytes.toByteArray());
+    }
+
+    /**
+     * Removes an email from the index.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param messageId Message id of the email
+     * @throws IOException Thrown if error reading or writing the log file
+     */
+    public synchronized void remove(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType, String messageId)
+        throws IOException {
+        load();
+        Integer document = documentIds.remove(
+            key(emailAccountId, emailInboxType, messageId));
+        if (document != null) {
+            documents.set(document, null);
+            liveDocuments--;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                output.writeInt(document);
+            }
+            pend(REMOVE_RECORD, bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Checks if an email is in the index.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param messageId Message id of the email
+     * @return True if the email is in the index
+     * @throws IOException Thrown if error reading the log file
+     */
+    public synchronized boolean contains(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType, String messageId)
+        throws IOException {
+        load();
+        return documentIds.containsKey(
+            key(emailAccountId, emailInboxType, messageId));
+    }
+
+    /**
+     * Finds the emails of every account and inbox that best match a query.
+     * @param query Words to search for, the last letters of each may be left
+     * out
+     * @param maxResults Most results to return
+     * @return Matching emails, best match first
+     * @throws IOException Thrown if error reading the log file
+     */
+    public @NotNull List<EmailSearchResult> search(@NotNull String query,
+        int maxResults) throws IOException {
+        return search(query, null, maxResults);
+    }
+
+    /**
+     * Finds the emails of every account and inbox received on or after a date
+     * that best match a query. A blank query matches every email, newest
+     * first, while a query with no words that can be searched for matches
+     * none.
+     * @param query Words to search for, the last letters of each may be left
+     * out
+     * @param since Date the emails must have been received on or after (null
+     * if any date)
+     * @param maxResults Most results to return
+     * @return Matching emails, best match first
+     * @throws IOException Thrown if error reading the log file
+     */
+    public synchronized @NotNull List<EmailSearchResult> search(
+        @NotNull String query, Date since, int maxResults)
+        throws IOException {
+        return search(query, since, indexedEmail -> true, maxResults);
+    }
+
+    /**
+     * Finds the emails of one inbox of an account received on or after a
+     * date that best match a query, leaving out the other inboxes before the
+     * results are cut to the most results so they can't crowd the inbox out.
+     * @param query Words to search for, the last letters of each may be left
+     * out
+     * @param since Date the emails must have been received on or after (null
+     * if any date)
+     * @param emailAccountId Id of the email account the inbox is in
+     * @param emailInboxType Inbox type to search
+     * @param maxResults Most results to return
+     * @return Matching emails of the inbox, best match first
+     * @throws IOException Thrown if error reading the log file
+     */
+    public synchronized @NotNull List<EmailSearchResult> search(
+        @NotNull String query, Date since, int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType, int maxResults)
+        throws IOException {
+        return search(query, since,
+            indexedEmail -> indexedEmail.emailAccountId == emailAccountId
+                && indexedEmail.emailInboxType == emailInboxType,
+            maxResults);
+    }
+
+    /**
+     * Finds the emails received on or after a date that best match a query,
+     * out of the emails in scope.
+     * @param query Words to search for, the last letters of each may be left
+     * out
+     * @param since Date the emails must have been received on or after (null
+     * if any date)
+     * @param scope Checks if an email is in scope of the search
+     * @param maxResults Most results to return
+     * @return Matching emails, best match first
+     * @throws IOException Thrown if error reading the log file
+     */
+    private @NotNull List<EmailSearchResult> search(@NotNull String query,
+        Date since, @NotNull Predicate<IndexedEmail> scope, int maxResults)
+        throws IOException {
+        load();
+        long sinceTime = since == null ? NO_DATE : since.getTime();
+        String[] queryWords = words(query).toArray(new String[0]);
+        if (query.isBlank()) {
+            ArrayList<Integer> candidates = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                if (documents.get(i) != null) {
+                    candidates.add(i);
+                }
+            }
+            return rank(candidates, new float[documents.size()], sinceTime,
+                scope, maxResults);
+        }
+        if (queryWords.length == 0 || maxResults <= 0) {
+            return new ArrayList<>();
+        }
+        int[] matched = new int[documents.size()];
+        float[] wordScores = new float[documents.size()];
+        float[] scores = new float[documents.size()];
+        ArrayList<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < queryWords.length; i++) {
+            int prefixWords = 0;
+            for (Map.Entry<String, Postings> entry : words.subMap(queryWords[i],
+                true, queryWords[i] + Character.MAX_VALUE, true).entrySet()) {
+                if (prefixWords++ == MAX_PREFIX_WORDS) {
+                    break;
+                }
+                double factor = entry.getKey().equals(queryWords[i])
+                    ? 1 : PREFIX_FACTOR;
+                match(entry.getValue(), i, queryWords.length, factor,
+                    matched, wordScores, scores, candidates);
+            }
+        }
+        return rank(candidates, scores, sinceTime, scope, maxResults);
+    }
+
+    /**
+     * Writes the changes waiting to be written to the log file, rewriting the
+     * log instead if most of its emails have been removed.
+     * @throws IOException Thrown if error writing the log file
+     */
+    public synchronized void flush() throws IOException {
+        if (isMostlyRemoved()) {
+            compact();
+        } else {
+            write();
+        }
+    }
+
+    /**
+     * Writes the changes waiting to be written to the end of the log file.
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void write() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        FileChannel channel = getLog();
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        pending.reset();
+    }
+
+    /**
+     * Writes the waiting changes and closes the log file.
+     * @throws IOException Thrown if error writing the log file
+     */
+    public synchronized void close() throws IOException {
+        write();
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Loads the index from its log file, unless it has already been loaded,
+     * rewriting the log if most of its emails have been removed. It is loaded
+     * the first time it is used if it has not been loaded already.
+     * @throws IOException Thrown if error reading or writing the log file
+     */
+    public synchronized void load() throws IOException {
+        if (isLoaded) {
+            return;
+        }
+        isLoaded = true;
+        if (Files.exists(logPath)) {
+            replay();
+        }
+        if (isMostlyRemoved()) {
+            compact();
+        }
+    }
+
+    /**
+     * Checks if most of the emails of the log file have been removed, so it
+     * is worth rewriting.
+     * @return True if most of the emails have been removed
+     */
+    private boolean isMostlyRemoved() {
+        return documents.size() >= MIN_COMPACTION_DOCUMENTS
+            && documents.size() > 2L * liveDocuments;
+    }
+
+    /**
+     * Scores the emails of a word matching a query word, keeping only the
+     * emails that matched every query word before it.
+     * @param postings Emails the word is in
+     * @param queryWord Position of the query word
+     * @param queryWords Number of query words
+     * @param factor Factor of the score for how well the word matches
+     * @param matched Number of query words each email has matched
+     * @param wordScores Score of each email for the current query word
+     * @param scores Total score of each email
+     * @param candidates Emails that have matched every query word
+     */
+    private void match(@NotNull Postings postings, int queryWord,
+        int queryWords, double factor, int @NotNull [] matched,
+        float @NotNull [] wordScores, float @NotNull [] scores,
+        @NotNull List<Integer> candidates) {
+        double frequency = postings.size;
+        double inverseFrequency = Math.log(1 + Math.max(0,
+            liveDocuments - frequency + 0.5) / (frequency + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int document = postings.documents[i];
+            if (documents.get(document) == null) {
+                continue;
+            }
+            double weight = postings.weights[i];
+            float score = (float) (factor * inverseFrequency * weight
+                * (SATURATION + 1) / (weight + SATURATION));
+            if (matched[document] == queryWord) {
+                matched[document]++;
+                wordScores[document] = score;
+                scores[document] += score;
+                if (matched[document] == queryWords) {
+                    candidates.add(document);
+                }
+            } else if (matched[document] == queryWord + 1
+                && score > wordScores[document]) {
+                scores[document] += score - wordScores[document];
+                wordScores[document] = score;
+            }
+        }
+    }
+
+    /**
+     * Ranks the emails that matched every query word, leaving out the emails
+     * received before a date or out of scope so they don't take the place of
+     * the others.
+     * @param candidates Emails that matched every query word
+     * @param scores Total score of each email
+     * @param since Time the emails must have been received on or after (or
+     * NO_DATE)
+     * @param scope Checks if an email is in scope of the search
+     * @param maxResults Most results to return
+     * @return Best matching emails, best match first
+     */
+    private @NotNull List<EmailSearchResult> rank(
+        @NotNull List<Integer> candidates, float @NotNull [] scores,
+        long since, @NotNull Predicate<IndexedEmail> scope, int maxResults) {
+        if (maxResults <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Integer> order = Comparator
+            .comparingDouble((Integer document) -> scores[document])
+            .thenComparingLong(document -> documents.get(document)
+                .receivedDate);
+        PriorityQueue<Integer> best = new PriorityQueue<>(order);
+        for (int document : candidates) {
+            IndexedEmail indexedEmail = documents.get(document);
+            if ((since != NO_DATE && indexedEmail.receivedDate < since)
+                || !scope.test(indexedEmail)) {
+                continue;
+            }
+            best.add(document);
+            if (best.size() > maxResults) {
+                best.poll();
+            }
+        }
+        ArrayList<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(order.reversed());
+        ArrayList<EmailSearchResult> results = new ArrayList<>();
+        for (int document : ranked) {
+            IndexedEmail indexedEmail = documents.get(document);
+            results.add(new EmailSearchResult(indexedEmail.emailAccountId,
+                indexedEmail.emailInboxType, indexedEmail.messageId,
+                indexedEmail.receivedDate == NO_DATE ? null
+                    : new Date(indexedEmail.receivedDate), scores[document]));
+        }
+        return results;
+    }
+
+    /**
+     * Gets the weight of each word of an email by where it is found.
+     * @param email Email to get the words of
+     * @return Weight of each word of the email
+     */
+    private static @NotNull LinkedHashMap<String, Float> weights(
+        @NotNull Email email) {
+        LinkedHashMap<String, Float> weights = new LinkedHashMap<>();
+        EmailHeader header = email.getHeader();
+        addWeights(weights, header.getSubject(), SUBJECT_WEIGHT);
+        for (EmailAddress emailAddress : header.getAllAddresses()) {
+            if (emailAddress != null) {
+                addWeights(weights, emailAddress.toString(), ADDRESS_WEIGHT);
+            }
+        }
+        if (email.getBody() != null) {
+            String text = email.getBody().getContents().getText();
+            if (text != null && !text.isEmpty()) {
+                Document document = Jsoup.parse(text);
+                document.select("title").remove();
+                addWeights(weights, document.text(), BODY_WEIGHT);
+            }
+            if (email.getBody().getAttachments() != null) {
+                for (ExtendedFile attachment
+                    : email.getBody().getAttachments()) {
+                    addWeights(weights, attachment.getName(),
+                        ATTACHMENT_WEIGHT);
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Adds the weight of each word of some text.
+     * @param weights Weight of each word
+     * @param text Text to add the words of
+     * @param weight Weight of each use of a word in the text
+     */
+    private static void addWeights(@NotNull Map<String, Float> weights,
+        String text, float weight) {
+        for (String word : words(text)) {
+            weights.merge(word, weight, Float::sum);
+        }
+    }
+
+    /**
+     * Splits text into lower case words, leaving out words that are too long
+     * to be searched for.
+     * @param text Text to split
+     * @return Words of the text
+     */
+    private static @NotNull List<String> words(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (matcher.end() - matcher.start() <= MAX_WORD_LENGTH) {
+                words.add(matcher.group());
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gets the key of an email in the index.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param messageId Message id of the email
+     * @return Key of the email
+     */
+    private static @NotNull String key(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType, String messageId) {
+        return emailAccountId + "/" + emailInboxType + "/" + messageId;
+    }
+
+    /**
+     * Adds an email to the list of emails of the index.
+     * @param document Id of the email in the index
+     * @param indexedEmail Email to add
+     */
+    private void addDocument(int document, @NotNull IndexedEmail indexedEmail) {
+        while (documents.size() <= document) {
+            documents.add(null);
+        }
+        documents.set(document, indexedEmail);
+        documentIds.put(key(indexedEmail.emailAccountId,
+            indexedEmail.emailInboxType, indexedEmail.messageId), document);
+        liveDocuments++;
+    }
+
+    /**
+     * Buffers a record to be written to the log file, writing the buffer once
+     * it is large.
+     * @param type Type of the record
+     * @param payload Payload of the record
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void pend(byte type, byte @NotNull [] payload) throws IOException {
+        writeRecord(pending, type, payload);
+        if (pending.size() >= MAX_PENDING_BYTES) {
+            flush();
+        }
+    }
+
+    /**
+     * Gets the log file, opening it to be appended to.
+     * @return Log file
+     * @throws IOException Thrown if error opening the log file
+     */
+    private @NotNull FileChannel getLog() throws IOException {
+        if (log == null) {
+            Files.createDirectories(logPath.getParent());
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return log;
+    }
+
+    /**
+     * Replays the records of the log file, cutting off a record that was only
+     * partly written.
+     * @throws IOException Thrown if error reading the log file
+     */
+    private void replay() throws IOException {
+        long fileBytes = Files.size(logPath);
+        long validBytes = 0;
+        try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException endOfFile) {
+                    break;
+                }
+                byte[] data;
+                try {
+                    int checksum = input.readInt();
+                    if (length <= 0 || length > fileBytes) {
+                        break;
+                    }
+                    data = new byte[length];
+                    input.readFully(data);
+                    if (checksum != checksum(data, 0, data.length)) {
+                        break;
+                    }
+                } catch (EOFException tornRecord) {
+                    break;
+                }
+                apply(data);
+                validBytes += RECORD_HEADER_BYTES + length;
+            }
+        }
+        if (validBytes < fileBytes) {
+            try (FileChannel channel = FileChannel.open(logPath,
+                StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Applies a replayed record to the index.
+     * @param data Type and payload of the record
+     * @throws IOException Thrown if error reading the record
+     */
+    private void apply(byte @NotNull [] data) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+            new ByteArrayInputStream(data, 1, data.length - 1))) {
+            switch (data[0]) {
+                case DOCUMENT_RECORD:
+                    int document = input.readInt();
+                    addDocument(document, new IndexedEmail(input.readInt(),
+                        EmailInbox.EmailInboxType.valueOf(input.readUTF()),
+                        input.readUTF(), input.readLong()));
+                    int documentWords = input.readInt();
+                    for (int i = 0; i < documentWords; i++) {
+                        words.computeIfAbsent(input.readUTF(),
+                            word -> new Postings())
+                            .add(document, input.readFloat());
+                    }
+                    break;
+                case REMOVE_RECORD:
+                    int removed = input.readInt();
+                    IndexedEmail indexedEmail = documents.get(removed);
+                    if (indexedEmail != null) {
+                        documentIds.remove(key(indexedEmail.emailAccountId,
+                            indexedEmail.emailInboxType,
+                            indexedEmail.messageId));
+                        documents.set(removed, null);
+                        liveDocuments--;
+                    }
+                    break;
+                case POSTINGS_RECORD:
+                    Postings postings = words.computeIfAbsent(
+                        input.readUTF(), word -> new Postings());
+                    int count = input.readInt();
+                    for (int i = 0; i < count; i++) {
+                        postings.add(input.readInt(), input.readFloat());
+                    }
+                    break;
+                default:
+                    //Unknown record from a newer version so it is skipped
+            }
+        }
+    }
+
+    /**
+     * Rewrites the index and its log file without the removed emails.
+     * @throws IOException Thrown if error writing the log file
+     */
+    private void compact() throws IOException {
+        write();
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        int[] newIds = new int[documents.size()];
+        ArrayList<IndexedEmail> liveEmails = new ArrayList<>(liveDocuments);
+        for (int i = 0; i < documents.size(); i++) {
+            newIds[i] = liveEmails.size();
+            if (documents.get(i) != null) {
+                liveEmails.add(documents.get(i));
+            }
+        }
+        Iterator<Postings> iterator = words.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            int size = 0;
+            for (int i = 0; i < postings.size; i++) {
+                if (documents.get(postings.documents[i]) != null) {
+                    postings.documents[size] = newIds[postings.documents[i]];
+                    postings.weights[size] = postings.weights[i];
+                    size++;
+                }
+            }
+            postings.size = size;
+            if (size == 0) {
+                iterator.remove();
+            }
+        }
+        documents.clear();
+        documentIds.clear();
+        liveDocuments = 0;
+        for (int i = 0; i < liveEmails.size(); i++) {
+            addDocument(i, liveEmails.get(i));
+        }
+        Path tempPath = Paths.get(logPath + TEMP_EXTENSION);
+        try (OutputStream output = new BufferedOutputStream(
+            Files.newOutputStream(tempPath))) {
+            for (int i = 0; i < documents.size(); i++) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream record = new DataOutputStream(bytes)) {
+                    writeDocument(record, i, documents.get(i));
+                    record.writeInt(0);
+                }
+                writeRecord(output, DOCUMENT_RECORD, bytes.toByteArray());
+            }
+            for (Map.Entry<String, Postings> entry : words.entrySet()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream record = new DataOutputStream(bytes)) {
+                    record.writeUTF(entry.getKey());
+                    record.writeInt(entry.getValue().size);
+                    for (int i = 0; i < entry.getValue().size; i++) {
+                        record.writeInt(entry.getValue().documents[i]);
+                        record.writeFloat(entry.getValue().weights[i]);
+                    }
+                }
+                writeRecord(output, POSTINGS_RECORD, bytes.toByteArray());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tempPath,
+            StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the details of an email of the index to a record.
+     * @param output Record to write to
+     * @param document Id of the email in the index
+     * @param indexedEmail Email of the index
+     * @throws IOException Thrown if error writing the record
+     */
+    private static void writeDocument(@NotNull DataOutputStream output,
+        int document, @NotNull IndexedEmail indexedEmail) throws IOException {
+        output.writeInt(document);
+        output.writeInt(indexedEmail.emailAccountId);
+        output.writeUTF(indexedEmail.emailInboxType.name());
+        output.writeUTF(indexedEmail.messageId);
+        output.writeLong(indexedEmail.receivedDate);
+    }
+
+    /**
+     * Writes a record with a length and checksum so torn writes are found.
+     * @param output Stream to write the record to
+     * @param type Type of the record
+     * @param payload Payload of the record
+     * @throws IOException Thrown if error writing the record
+     */
+    private static void writeRecord(@NotNull OutputStream output, byte type,
+        byte @NotNull [] payload) throws IOException {
+        byte[] data = new byte[1 + payload.length];
+        data[0] = type;
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        header.putInt(data.length);
+        header.putInt(checksum(data, 0, data.length));
+        output.write(header.array());
+        output.write(data);
+    }
+
+    /**
+     * Gets the checksum of part of some data.
+     * @param data Data to get the checksum of
+     * @param offset Start of the part
+     * @param length Length of the part
+     * @return Checksum of the part of the data
+     */
+    private static int checksum(byte @NotNull [] data, int offset,
+        int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+}
@@ -0,0 +1,158 @@
+package email.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.mail.search.AndTerm;
+import javax.mail.search.BodyTerm;
+import javax.mail.search.ComparisonTerm;
+import javax.mail.search.FromStringTerm;
+import javax.mail.search.OrTerm;
+import javax.mail.search.ReceivedDateTerm;
+import javax.mail.search.SearchTerm;
+import javax.mail.search.SubjectTerm;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search typed by the user, made of words to find anywhere in an email and
+ * optional "from:", "subject:" and "since:" parts, such as
+ * "from:jordan subject:report since:2023-01-31 budget". The same query is
+ * used with the local search index and, as an IMAP SEARCH, with the server.
+ * @author Jordan Jones
+ */
+public class EmailSearchQuery {
+
+    //CONSTANTS
+    private static final String FROM_PREFIX = "from:";
+    private static final String SUBJECT_PREFIX = "subject:";
+    private static final String SINCE_PREFIX = "since:";
+    private static final String DATE_ERROR = "since needs a date like "
+        + "2023-01-31";
+    private static final String EMPTY_ERROR = "there is nothing to search for";
+
+    //Attributes
+    private final List<String> words = new ArrayList<>();
+    private final List<String> from = new ArrayList<>();
+    private final List<String> subject = new ArrayList<>();
+    private Date since;
+
+    /**
+     * Creates a search query from what the user typed.
+     * @param query What the user typed
+     * @throws InvalidSearchQueryException Thrown if the query has no search
+     * or an invalid date
+     */
+    public EmailSearchQuery(@NotNull String query)
+        throws InvalidSearchQueryException {
+        for (String part : query.trim().split("\\s+")) {
+            String lowerPart = part.toLowerCase(Locale.ROOT);
+            if (lowerPart.startsWith(FROM_PREFIX)
+                && part.length() > FROM_PREFIX.length()) {
+                from.add(part.substring(FROM_PREFIX.length()));
+            } else if (lowerPart.startsWith(SUBJECT_PREFIX)
+                && part.length() > SUBJECT_PREFIX.length()) {
+                subject.add(part.substring(SUBJECT_PREFIX.length()));
+            } else if (lowerPart.startsWith(SINCE_PREFIX)
+                && part.length() > SINCE_PREFIX.length()) {
+                setSince(query, part.substring(SINCE_PREFIX.length()));
+            } else if (!part.isEmpty()) {
+                words.add(part);
+            }
+        }
+        if (words.isEmpty() && from.isEmpty() && subject.isEmpty()
+            && since == null) {
+            throw new InvalidSearchQueryException(query, EMPTY_ERROR);
+        }
+    }
+
+    /**
+     * Sets the date the emails must have been received on or after.
+     * @param query What the user typed
+     * @param date Date typed by the user
+     * @throws InvalidSearchQueryException Thrown if the date is invalid
+     */
+    private void setSince(@NotNull String query, @NotNull String date)
+        throws InvalidSearchQueryException {
+        try {
+            since = Date.from(LocalDate.parse(date)
+                .atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException parseException) {
+            throw new InvalidSearchQueryException(query, DATE_ERROR);
+        }
+    }
+
+    /**
+     * Gets the words to find anywhere in an email.
+     * @return Unmodifiable list of the words
+     */
+    public List<String> getWords() {
+        return Collections.unmodifiableList(words);
+    }
+
+    /**
+     * Gets the words to find in the sender of an email.
+     * @return Unmodifiable list of the words
+     */
+    public List<String> getFrom() {
+        return Collections.unmodifiableList(from);
+    }
+
+    /**
+     * Gets the words to find in the subject of an email.
+     * @return Unmodifiable list of the words
+     */
+    public List<String> getSubject() {
+        return Collections.unmodifiableList(subject);
+    }
+
+    /**
+     * Gets the date the emails must have been received on or after.
+     * @return Date the emails must have been received on or after (null if
+     * any date)
+     */
+    public Date getSince() {
+        return since;
+    }
+
+    /**
+     * Gets the query for the local search index, which does not know which
+     * part of an email a word is in so every word is searched for anywhere.
+     * @return Words of the query (blank if the query only has a date)
+     */
+    public @NotNull String getIndexQuery() {
+        ArrayList<String> indexWords = new ArrayList<>(words);
+        indexWords.addAll(from);
+        indexWords.addAll(subject);
+        return String.join(" ", indexWords);
+    }
+
+    /**
+     * Gets the query as an IMAP SEARCH so the server finds the emails.
+     * @return Search term of the query
+     */
+    public @NotNull SearchTerm toSearchTerm() {
+        ArrayList<SearchTerm> terms = new ArrayList<>();
+        for (String word : words) {
+            terms.add(new OrTerm(new SearchTerm[]{new FromStringTerm(word),
+                new SubjectTerm(word), new BodyTerm(word)}));
+        }
+        for (String word : from) {
+            terms.add(new FromStringTerm(word));
+        }
+        for (String word : subject) {
+            terms.add(new SubjectTerm(word));
+        }
+        if (since != null) {
+            terms.add(new ReceivedDateTerm(ComparisonTerm.GE, since));
+        }
+        return terms.size() == 1 ? terms.get(0)
+            : new AndTerm(terms.toArray(new SearchTerm[0]));
+    }
+
+}
@@ -0,0 +1,130 @@
+package email.search;
+
+import email.EmailInbox;
+import email.email.EmailHeader;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Date;
+
+/**
+ * Email found by a search, with the account and inbox it is in. Emails that
+ * are only on the server come with their header as they are not saved.
+ * @author Jordan Jones
+ */
+public class EmailSearchResult {
+
+    //Attributes
+    private final int emailAccountId;
+    private final EmailInbox.EmailInboxType emailInboxType;
+    private final String messageId;
+    private final Date receivedDate;
+    private final double score;
+    private final EmailHeader header;
+    private final boolean isRead;
+
+    /**
+     * Creates a search result.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param messageId Message id of the email
+     * @param receivedDate Received date of the email
+     * @param score How well the email matches the search
+     */
+    public EmailSearchResult(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType,
+        @NotNull String messageId, Date receivedDate, double score) {
+        this.emailAccountId = emailAccountId;
+        this.emailInboxType = emailInboxType;
+        this.messageId = messageId;
+        this.receivedDate = receivedDate;
+        this.score = score;
+        this.header = null;
+        this.isRead = false;
+    }
+
+    /**
+     * Creates a search result for an email that is only on the server.
+     * @param emailAccountId Id of the email account the email is in
+     * @param emailInboxType Inbox type the email is in
+     * @param messageId Message id of the email
+     * @param header Header of the email
+     * @param isRead True if the email has been read
+     */
+    public EmailSearchResult(int emailAccountId,
+        @NotNull EmailInbox.EmailInboxType emailInboxType,
+        @NotNull String messageId, @NotNull EmailHeader header,
+        boolean isRead) {
+        this.emailAccountId = emailAccountId;
+        this.emailInboxType = emailInboxType;
+        this.messageId = messageId;
+        this.receivedDate = header.getReceivedDate();
+        this.score = 0;
+        this.header = header;
+        this.isRead = isRead;
+    }
+
+    /**
+     * Gets the id of the email account the email is in.
+     * @return Id of the email account the email is in
+     */
+    public int getEmailAccountId() {
+        return emailAccountId;
+    }
+
+    /**
+     * Gets the inbox type the email is in.
+     * @return Inbox type the email is in
+     */
+    public EmailInbox.EmailInboxType getEmailInboxType() {
+        return emailInboxType;
+    }
+
+    /**
+     * Gets the message id of the email.
+     * @return Message id of the email
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Gets the received date of the email.
+     * @return Received date of the email
+     */
+    public Date getReceivedDate() {
+        return receivedDate;
+    }
+
+    /**
+     * Gets how well the email matches the search.
+     * @return How well the email matches the search
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the header of an email that is only on the server.
+     * @return Header of the email (null if the email is saved)
+     */
+    public EmailHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets if an email that is only on the server has been read.
+     * @return True if the email has been read (false if the email is saved)
+     */
+    public boolean getIsRead() {
+        return isRead;
+    }
+
+    /**
+     * Checks if the email is only on the server.
+     * @return True if the email is only on the server
+     */
+    public boolean isServerOnly() {
+        return header != null;
+    }
+
+}
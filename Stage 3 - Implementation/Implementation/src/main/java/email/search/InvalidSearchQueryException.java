@@ -0,0 +1,44 @@
+package email.search;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Error thrown if a search query can't be understood.
+ * @author Jordan Jones
+ */
+public class InvalidSearchQueryException extends Exception {
+
+    //CONSTANTS
+    private static final String MESSAGE = "%s is not a valid search, %s";
+
+    //Attributes
+    private String query;
+
+    /**
+     * Creates an invalid search query error.
+     * @param query Search query error is about
+     * @param reason Why the search query is invalid
+     */
+    public InvalidSearchQueryException(@NotNull String query,
+        @NotNull String reason) {
+        super(String.format(MESSAGE, query, reason));
+        setQuery(query);
+    }
+
+    /**
+     * Sets the search query of the error.
+     * @param query Search query of the error
+     */
+    private void setQuery(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Gets the search query of the error.
+     * @return Search query of the error
+     */
+    public String getQuery() {
+        return query;
+    }
+
+}
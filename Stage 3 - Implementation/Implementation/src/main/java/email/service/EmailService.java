@@ -1,6 +1,5 @@
 package email.service;
 
-import com.sun.mail.util.MailConnectException;
 import email.EmailAccount;
 import email.HostConnectionFailureException;
 import org.jetbrains.annotations.NotNull;
@@ -10,6 +9,7 @@ import javax.mail.Folder;
 import javax.mail.MessagingException;
 import javax.mail.Store;
 import java.util.HashMap;
+import java.util.Properties;
 
 /**
  * Represents an email service provider.
@@ -18,6 +18,8 @@ import java.util.HashMap;
 public class EmailService {
 
     //CONSTANTS
+    private static final String SMTP_PORT = "587";
+    private static final String STORE_PROTOCOL = "imaps";
     public static final HashMap<String, EmailService> EMAIL_SERVICES
         = new HashMap<>();
     static {
@@ -115,15 +117,7 @@ public class EmailService {
     public void setInboxNames(@NotNull EmailAccount emailAccount)
         throws HostConnectionFailureException, MessagingException,
         MissingEmailServiceInboxName {
-        Store store = emailAccount.getSession().getStore();
-        try {
-            store.connect(emailAccount.getEmailService()
-                    .getImapHostName(),
-                emailAccount.getEmailAddress().getAddress(),
-                emailAccount.getPassword());
-        } catch (MailConnectException mailConnectException) {
-            throw new HostConnectionFailureException();
-        }
+        Store store = emailAccount.getConnection().getStore();
         Folder[] folders = store.getDefaultFolder().list("*");
         StringBuilder folderNames = new StringBuilder();
         for (Folder folder : folders) {
@@ -229,6 +223,25 @@ public class EmailService {
         return imapHostName;
     }
 
+    /**
+     * Creates the java mail properties for connecting to the service.
+     * @return New java mail properties for the service's hosts
+     */
+    public Properties createProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", getSmtpHostName());
+        properties.setProperty("mail.smtp.port", SMTP_PORT);
+        properties.setProperty("mail.smtp.starttls.enable", "true");
+        properties.setProperty("mail.smtp.auth", "true");
+        properties.setProperty("mail.store.protocol", STORE_PROTOCOL);
+        properties.setProperty("mail.imaps.host", getImapHostName());
+        properties.setProperty("mail.imaps.partialfetch", "false");
+        //Fetching a body must not mark it as read as folders are open for
+        //writing while syncing, reading is marked by the view button itself
+        properties.setProperty("mail.imaps.peek", "true");
+        return properties;
+    }
+
     /**
      * Gets the default inbox name.
      * @return Default inbox name
@@ -1,14 +1,21 @@
 package file;
 
+import file.attachment.AttachmentStore;
 import file.directory.Directory;
 import org.apache.tika.Tika;
-import org.jboss.resource.adapter.jdbc.remote.SerializableInputStream;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Objects;
 
 /**
@@ -18,12 +25,14 @@ import java.util.Objects;
 public class ExtendedFile extends File {
 
     //CONSTANTS
-    private static final int BUFFER_SIZE_BYTES = 4096;
     public static final String SAVES_PATH = System.getProperty("user.home")
         + File.separator + ".jordan/saves/";
+    private static final String DATA_STAMP_ATTRIBUTE = "attachment-stamp";
+    private static final String DATA_STAMP = "%s/%d";
 
     //Attributes
-    private SerializableInputStream inputStream;
+    private String attachmentHash;
+    private long attachmentSize;
 
     /**
      * Creates an extended file object.
@@ -34,13 +43,17 @@ public class ExtendedFile extends File {
     }
 
     /**
-     * Creates an extended file object with a given input stream.
+     * Creates an extended file object whose data is kept in the attachment
+     * store until the file is created.
      * @param filePath Path of the file object
-     * @param inputStream Input stream for the file's data
+     * @param attachmentHash Hash of the file's data in the attachment store
+     * @param attachmentSize Size of the file's data in bytes
      */
-    public ExtendedFile(String filePath, SerializableInputStream inputStream) {
+    public ExtendedFile(String filePath, String attachmentHash,
+        long attachmentSize) {
         super(filePath);
-        setInputStream(inputStream);
+        setAttachmentHash(attachmentHash);
+        setAttachmentSize(attachmentSize);
     }
 
     /**
@@ -54,19 +67,35 @@ public class ExtendedFile extends File {
     }
 
     /**
-     * Sets the input stream.
-     * @param inputStream Input stream
+     * Sets the hash of the file's data in the attachment store.
+     * @param attachmentHash Hash of the file's data
      */
-    private void setInputStream(SerializableInputStream inputStream) {
-        this.inputStream = inputStream;
+    private void setAttachmentHash(String attachmentHash) {
+        this.attachmentHash = attachmentHash;
     }
 
     /**
-     * Gets the input stream.
-     * @return Input stream
+     * Sets the size of the file's data in the attachment store.
+     * @param attachmentSize Size of the file's data in bytes
      */
-    private SerializableInputStream getInputStream() {
-        return inputStream;
+    private void setAttachmentSize(long attachmentSize) {
+        this.attachmentSize = attachmentSize;
+    }
+
+    /**
+     * Gets the hash of the file's data in the attachment store.
+     * @return Hash of the file's data (null if not an attachment)
+     */
+    public String getAttachmentHash() {
+        return attachmentHash;
+    }
+
+    /**
+     * Gets the size of the file's data in the attachment store.
+     * @return Size of the file's data in bytes
+     */
+    public long getAttachmentSize() {
+        return attachmentSize;
     }
 
     /**
@@ -105,28 +134,113 @@ public class ExtendedFile extends File {
     }
 
     /**
-     * Creates the file on the file system.
+     * Creates the file on the file system. An attachment's data is
+     * transferred from the attachment store, unless the file already holds
+     * the same data.
      * @throws FileAlreadyExistsException Thrown if file already exists
      * @throws IOException Thrown if error with creating the file
      */
     public void create() throws IOException {
-        if (!exists()) {
-            super.createNewFile();
-            if (getInputStream() != null) {
-                FileOutputStream output = new FileOutputStream(getPath());
-                byte[] buffer = new byte[BUFFER_SIZE_BYTES];
-                int byteRead;
-                while ((byteRead = getInputStream().read(
-                    buffer, 0, BUFFER_SIZE_BYTES)) != -1) {
-                    output.write(buffer, 0, byteRead);
-                }
-                output.close();
+        if (getAttachmentHash() != null) {
+            Path attachmentPath
+                = AttachmentStore.getBlobPath(getAttachmentHash());
+            if (!exists() || !hasSameData()) {
+                transferFrom(attachmentPath);
+                stampData();
             }
+        } else if (!exists()) {
+            super.createNewFile();
         } else {
             throw new FileAlreadyExistsException(getAbsolutePath());
         }
     }
 
+    /**
+     * Transfers the data of another file into the file, letting the
+     * operating system copy between the channels where it can.
+     * @param sourcePath Path of the file to transfer the data from
+     * @throws IOException Thrown if error with transferring the data
+     */
+    private void transferFrom(@NotNull Path sourcePath) throws IOException {
+        try (FileChannel input = FileChannel.open(sourcePath,
+                StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = input.size();
+            long position = 0;
+            while (position < size) {
+                position += input.transferTo(position, size - position,
+                    output);
+            }
+        }
+    }
+
+    /**
+     * Checks if the file still holds the attachment's data from when it was
+     * last transferred, without reading the data. The stamp saved with the
+     * file holds the attachment's hash and the file's modified time, so
+     * another attachment's data or a change made since both make it differ.
+     * @return True if the file holds the attachment's data
+     * @throws IOException Thrown if error with reading the file's attributes
+     */
+    private boolean hasSameData() throws IOException {
+        if (length() != getAttachmentSize()) {
+            return false;
+        }
+        UserDefinedFileAttributeView attributeView = Files.getFileAttributeView(
+            toPath(), UserDefinedFileAttributeView.class);
+        if (attributeView == null) {
+            return false;
+        }
+        try {
+            if (!attributeView.list().contains(DATA_STAMP_ATTRIBUTE)) {
+                return false;
+            }
+            ByteBuffer stamp = ByteBuffer.allocate(
+                attributeView.size(DATA_STAMP_ATTRIBUTE));
+            attributeView.read(DATA_STAMP_ATTRIBUTE, stamp);
+            stamp.flip();
+            return StandardCharsets.UTF_8.decode(stamp).toString()
+                .equals(dataStamp());
+        } catch (FileSystemException
+            | UnsupportedOperationException exception) {
+            //File system can't hold the stamp so the data is transferred
+            return false;
+        }
+    }
+
+    /**
+     * Saves a stamp of the attachment's data with the file after it has been
+     * transferred, so it isn't transferred again while the file is unchanged.
+     * @throws IOException Thrown if error with reading the file's attributes
+     */
+    private void stampData() throws IOException {
+        UserDefinedFileAttributeView attributeView = Files.getFileAttributeView(
+            toPath(), UserDefinedFileAttributeView.class);
+        if (attributeView == null) {
+            return;
+        }
+        try {
+            attributeView.write(DATA_STAMP_ATTRIBUTE,
+                StandardCharsets.UTF_8.encode(dataStamp()));
+        } catch (FileSystemException
+            | UnsupportedOperationException exception) {
+            //File system can't hold the stamp so the data is transferred
+        }
+    }
+
+    /**
+     * Gets the stamp of the attachment's data in the file, made of its hash
+     * and the time the file was last modified.
+     * @return Stamp of the attachment's data in the file
+     * @throws IOException Thrown if error with reading the modified time
+     */
+    private @NotNull String dataStamp() throws IOException {
+        return String.format(DATA_STAMP, getAttachmentHash(),
+            Files.getLastModifiedTime(toPath()).toMillis());
+    }
+
     /**
      * Deletes the file off of the file system.
      * @throws FileCanNotDeleteException Thrown if file can't be deleted
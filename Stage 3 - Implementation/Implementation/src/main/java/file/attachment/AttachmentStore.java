@@ -0,0 +1,149 @@
+package file.attachment;
+
+import file.ExtendedFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Store of attachment contents kept once per unique content, named by the
+ * SHA-256 hash of the content. Contents no email body uses any more are
+ * swept away once they have not been used for a while.
+ * @author Jordan Jones
+ */
+public class AttachmentStore {
+
+    //CONSTANTS
+    public static final String ATTACHMENTS_PATH
+        = ExtendedFile.SAVES_PATH + "attachments";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TEMP_PREFIX = "incoming-";
+    private static final int SHARD_LENGTH = 2;
+
+    /**
+     * Streams the contents of an attachment into the store.
+     * @param filePath Path the attachment is saved to when it is opened
+     * @param inputStream Contents of the attachment
+     * @return Attachment file referencing the stored contents
+     * @throws IOException Thrown if error writing the contents
+     */
+    public static @NotNull ExtendedFile save(String filePath,
+        @NotNull InputStream inputStream) throws IOException {
+        Path directory = Paths.get(ATTACHMENTS_PATH);
+        Files.createDirectories(directory);
+        Path tempPath = Files.createTempFile(directory, TEMP_PREFIX, null);
+        try {
+            MessageDigest messageDigest = newMessageDigest();
+            long size;
+            try (DigestInputStream digestInput
+                = new DigestInputStream(inputStream, messageDigest)) {
+                size = Files.copy(digestInput, tempPath,
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = toHex(messageDigest.digest());
+            Path blobPath = getBlobPath(hash);
+            try {
+                //Marks the stored contents as used so they aren't swept
+                Files.setLastModifiedTime(blobPath,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (NoSuchFileException noSuchFileException) {
+                Files.createDirectories(blobPath.getParent());
+                try {
+                    Files.move(tempPath, blobPath,
+                        StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException alreadyExistsException) {
+                    //Same contents stored at the same time elsewhere
+                }
+            }
+            return new ExtendedFile(filePath, hash, size);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * Deletes the stored contents that are not in use and have not been
+     * stored or used since the given time, along with incoming contents left
+     * behind by the app stopping part way through storing them.
+     * @param usedHashes Hashes of the contents used by a saved email body
+     * @param unusedSinceMillis Time contents must not have been used since
+     * @return Number of files deleted
+     * @throws IOException Thrown if error reading or deleting the contents
+     */
+    public static int sweep(@NotNull Set<String> usedHashes,
+        long unusedSinceMillis) throws IOException {
+        Path directory = Paths.get(ATTACHMENTS_PATH);
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(Files::isRegularFile).toList();
+        }
+        int deletedCount = 0;
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            try {
+                if ((name.startsWith(TEMP_PREFIX)
+                    || !usedHashes.contains(name))
+                    && Files.getLastModifiedTime(path).toMillis()
+                    < unusedSinceMillis && Files.deleteIfExists(path)) {
+                    deletedCount++;
+                }
+            } catch (NoSuchFileException noSuchFileException) {
+                //Deleted since the directory was walked
+            }
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Gets the path of the stored contents with the given hash.
+     * @param hash SHA-256 hash of the contents
+     * @return Path of the stored contents
+     */
+    public static @NotNull Path getBlobPath(@NotNull String hash) {
+        return Paths.get(ATTACHMENTS_PATH, hash.substring(0, SHARD_LENGTH),
+            hash);
+    }
+
+    /**
+     * Creates a SHA-256 message digest.
+     * @return SHA-256 message digest
+     */
+    private static @NotNull MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+
+    /**
+     * Converts bytes to a lower case hexadecimal string.
+     * @param bytes Bytes to convert
+     * @return Hexadecimal string of the bytes
+     */
+    private static @NotNull String toHex(byte @NotNull [] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte hashByte : bytes) {
+            hex.append(String.format("%02x", hashByte));
+        }
+        return hex.toString();
+    }
+
+}
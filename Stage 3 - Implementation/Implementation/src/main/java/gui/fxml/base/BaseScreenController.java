@@ -2,6 +2,7 @@ package gui.fxml.base;
 
 import email.EmailAccount;
 import email.EmailInbox;
+import email.EmailSyncScheduler;
 import email.HostConnectionFailureException;
 import email.address.EmailAddress;
 import email.address.InvalidEmailAddressException;
@@ -316,6 +317,7 @@ public class BaseScreenController extends FXMLController {
         AccountBoxController controller = fxmlComponent.getController();
         controller.setController(emailAccount);
         getAccountBoxes().put(emailAccount, accountBox);
+        EmailSyncScheduler.addEmailAccount(emailAccount);
         EmailAccount.addToHistory(
             new EmailAddress[]{emailAccount.getEmailAddress()});
         return controller;
@@ -329,6 +331,7 @@ public class BaseScreenController extends FXMLController {
         ExtendedVBox accountBox = getAccountBoxes().get(emailAccount);
         getAccountsBox().getChildren().remove(accountBox);
         getAccountBoxes().remove(emailAccount);
+        EmailSyncScheduler.removeEmailAccount(emailAccount);
     }
 
     /**
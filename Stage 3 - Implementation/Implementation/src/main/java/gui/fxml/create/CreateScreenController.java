@@ -1,10 +1,10 @@
 package gui.fxml.create;
 
 import email.EmailAccount;
+import email.EmailExecutor;
 import email.EmailInbox;
 import email.HostConnectionFailureException;
 import email.address.EmailAddress;
-import email.address.EmptyTagValueException;
 import email.address.InvalidEmailAddressException;
 import email.email.Email;
 import email.email.EmailHeader;
@@ -24,6 +24,7 @@ import gui.fxml.FXMLComponent;
 import gui.fxml.FXMLController;
 import gui.fxml.FXMLScreen;
 import gui.fxml.inbox.ViewBoxController;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -81,6 +82,7 @@ public class CreateScreenController extends FXMLController {
     @FXML private VBox selectedFileBoxes;
     @FXML private Label errorLabel;
     @FXML private HBox buttons;
+    @FXML private Button sendButton;
     @FXML private Button cancelButton;
     @FXML private VBox historyPopup;
 
@@ -296,14 +298,13 @@ public class CreateScreenController extends FXMLController {
     }
 
     /**
-     * Sends the email based on the given details.
-     * @throws EmptyTagValueException Thrown if an address does not have a tag
+     * Sends the email based on the given details, off the JavaFX thread so
+     * the screen does not freeze while the host is contacted.
      * @throws IOException Thrown if error with inbox screen inbox and fxml
      * @throws MessagingException Thrown if error with java mail server
      */
     @FXML
-    private void onSendButton() throws EmptyTagValueException,
-        IOException, MessagingException {
+    private void onSendButton() throws IOException, MessagingException {
         try {
             getErrorLabel().setText("");
             if (!getRecipientsTextField().isEmpty()
@@ -327,28 +328,11 @@ public class CreateScreenController extends FXMLController {
                             }
                         });
                 } else {
-                    Main.getLoggedInAccount().sendEmail(getEmail());
-                    if (getEmail().getMessageId() == null) {
-                        Main.BASE_SCREEN.getController().clear();
-                    } else {
-                        Main.BASE_SCREEN.getController().loadScreen(
-                            Main.INBOX_SCREEN, () -> {
-                            try {
-                                Main.BASE_SCREEN.getController().inboxScreen(
-                                    EmailInbox.EmailInboxType.DRAFTS);
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        });
-                    }
+                    sendEmail(getEmail());
                 }
             } else {
                 getErrorLabel().setText(EMPTY_RECIPIENTS_ERROR);
             }
-        } catch (HostConnectionFailureException | MissingEmailServiceInboxName
-            exception) {
-            getErrorLabel().setText(new HostConnectionFailureException()
-                .getMessage());
         } catch (InvalidEmailAddressException invalidEmailAddressException) {
             getErrorLabel().setText(String.format(INVALID_ADDRESS_ERROR,
                 invalidEmailAddressException.getAddress(),
@@ -357,6 +341,68 @@ public class CreateScreenController extends FXMLController {
         }
     }
 
+    /**
+     * Sends an email on the email executor, then leaves the screen on the
+     * JavaFX thread, or shows the error and lets the email be sent again.
+     * @param email Email to send
+     */
+    private void sendEmail(@NotNull Email email) {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        getSendButton().setDisable(true);
+        EmailExecutor.execute(() -> {
+            try {
+                emailAccount.sendEmail(email);
+                Platform.runLater(() -> {
+                    try {
+                        onEmailSent(email);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                });
+            } catch (HostConnectionFailureException
+                | MissingEmailServiceInboxName exception) {
+                showSendError(new HostConnectionFailureException()
+                    .getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                showSendError(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Displays an error from sending the email on the JavaFX thread.
+     * @param error Error to display
+     */
+    private void showSendError(String error) {
+        Platform.runLater(() -> {
+            getErrorLabel().setText(error);
+            getSendButton().setDisable(false);
+        });
+    }
+
+    /**
+     * Leaves the screen after the email has been sent.
+     * @param email Email that has been sent
+     * @throws IOException Thrown if error with the base screen fxml
+     */
+    private void onEmailSent(@NotNull Email email) throws IOException {
+        getSendButton().setDisable(false);
+        if (email.getMessageId() == null) {
+            Main.BASE_SCREEN.getController().clear();
+        } else {
+            Main.BASE_SCREEN.getController().loadScreen(
+                Main.INBOX_SCREEN, () -> {
+                    try {
+                        Main.BASE_SCREEN.getController().inboxScreen(
+                            EmailInbox.EmailInboxType.DRAFTS);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                });
+        }
+    }
+
     /**
      * Creates the email as a draft email.
      * @throws IOException Thrown if error with inbox screen inbox and fxml
@@ -635,6 +681,14 @@ public class CreateScreenController extends FXMLController {
         return buttons;
     }
 
+    /**
+     * Gets the send button.
+     * @return Send button
+     */
+    private Button getSendButton() {
+        return sendButton;
+    }
+
     /**
      * Gets the history popup.
      * @return History popup
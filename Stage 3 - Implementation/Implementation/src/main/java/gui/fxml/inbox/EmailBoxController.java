@@ -1,6 +1,8 @@
 package gui.fxml.inbox;
 
 import email.BacklogAction;
+import email.EmailAccount;
+import email.EmailExecutor;
 import email.EmailInbox;
 import email.HostConnectionFailureException;
 import email.address.EmailAddress;
@@ -10,26 +12,25 @@ import file.FileCanNotDeleteException;
 import gui.Main;
 import gui.fxml.FXMLComponent;
 import gui.fxml.FXMLController;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import javafx.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import javax.mail.Message;
-import javax.mail.MessagingException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 
 /**
- * Controller for a draft email box.
+ * Controller for an email box, which is reused for a different email each
+ * time its cell of the inbox list is scrolled to another email.
  * @author Jordan Jones
  */
 public class EmailBoxController extends FXMLController {
@@ -38,9 +39,9 @@ public class EmailBoxController extends FXMLController {
     private static final int CONTENTS_LINE_LIMIT = 50;
     private static final String ATTACHMENTS = "%s Attachments";
     private static final String EMPTY_TEXT = "<none>";
+    private static final String BOLD_STYLE = "-fx-font-weight: bold;";
 
     //FXML Attributes
-    @FXML private HBox emailBox;
     @FXML private Label receivedDateLabel;
     @FXML private Label senderLabel;
     @FXML private Label recipientsLabel;
@@ -60,79 +61,99 @@ public class EmailBoxController extends FXMLController {
     private Email email;
 
     /**
-     * Goes the view screen.
-     * @throws FileCanNotDeleteException Thrown if a files can't be deleted
-     * @throws IOException Thrown if error with email's attachments
+     * Goes the view screen, loading the email's body and marking it as read
+     * on the server off the JavaFX thread.
      */
     @FXML
-    private void onViewButton() throws FileCanNotDeleteException, IOException {
-        if (!getEmail().getIsRead()) {
-            readEmail();
-            new Thread(() -> {
+    private void onViewButton() {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        EmailInbox emailInbox = getInboxScreenController().getEmailInbox();
+        Email email = getEmail();
+        if (!email.getIsRead()) {
+            setReadStyle(true);
+            EmailExecutor.execute(() -> {
                 try {
-                    getEmail().setIsRead(true);
-                    getInboxScreenController().getEmailInbox().save();
-                    getInboxScreenController().getEmailInbox()
-                        .readEmail(getEmail());
+                    email.setIsRead(true);
+                    emailInbox.saveReadStatus(email);
+                    emailInbox.readEmail(email);
                 } catch (HostConnectionFailureException exception) {
                     try {
                         new BacklogAction(BacklogAction.Action.READ,
-                            Main.getLoggedInAccount(),
-                            getInboxScreenController().getEmailInbox()
-                                .getEmailInboxType(), getEmail());
+                            emailAccount, emailInbox.getEmailInboxType(),
+                            email);
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
-            }).start();
+            });
         }
-        ObservableList<Node> viewBoxSpaceChildren
-            = getInboxScreenController().getViewBoxSpace().getChildren();
-        viewBoxSpaceChildren.clear();
-        FXMLComponent<ViewBoxController> viewBox
-            = new FXMLComponent<>("inbox/ViewBox");
-        viewBoxSpaceChildren.add(viewBox.load());
-        getInboxScreenController().setViewBoxController(
-            viewBox.getController());
-        viewBox.getController().setController(getEmail(),
-            getInboxScreenController().getEmailInbox().getEmailInboxType());
-        getEmail().getBody().saveAttachmentsLocally();
+        EmailExecutor.execute(() -> {
+            try {
+                emailInbox.loadBody(email);
+                email.getBody().saveAttachmentsLocally();
+                Platform.runLater(() -> {
+                    try {
+                        setViewBox(emailInbox.getEmailInboxType());
+                    } catch (FileCanNotDeleteException | IOException e) {
+                        e.printStackTrace();
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
     }
 
     /**
-     * Sets the email as spam.
+     * Sets the email as spam, moving it on the server off the JavaFX thread.
      * @throws IOException Thrown if error with the email box fxml
-     * @throws MessagingException Thrown if error with email server
      */
     @FXML
-    private void onSpamButton() throws IOException, MessagingException {
-        try {
-            Main.getLoggedInAccount().spamEmail(getEmail());
-        } catch (HostConnectionFailureException | MissingEmailServiceInboxName
-            exception) {
-            new BacklogAction(BacklogAction.Action.SPAM,
-                Main.getLoggedInAccount(), getEmail());
-        }
-        getInboxScreenController().getEmailBoxes().getChildren().remove(
-            getEmailBox());
-        getInboxScreenController().getEmailInbox().getEmails().remove(
-            new Pair<>(getEmail().getMessageId(),
-                getEmail().getHeader().getReceivedDate()));
-        getInboxScreenController().getEmailInbox().save();
-        getInboxScreenController().addNextEmailBox();
+    private void onSpamButton() throws IOException {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        Email email = getEmail();
+        EmailExecutor.execute(() -> {
+            try {
+                emailAccount.spamEmail(email);
+            } catch (HostConnectionFailureException
+                | MissingEmailServiceInboxName exception) {
+                backlogAction(BacklogAction.Action.SPAM, emailAccount, null,
+                    email);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        removeEmailBox();
     }
 
     /**
-     * Goes the edit screen.
-     * @throws IOException Thrown if error with email's attachments
+     * Goes the edit screen, loading the email's full body off the JavaFX
+     * thread first.
      */
     @FXML
-    private void onEditButton() throws IOException {
-        Main.BASE_SCREEN.getController().loadScreen(Main.CREATE_SCREEN, () -> {
+    private void onEditButton() {
+        EmailInbox emailInbox = getInboxScreenController().getEmailInbox();
+        Email email = getEmail();
+        EmailExecutor.execute(() -> {
             try {
-                Main.CREATE_SCREEN.getController().setController(getEmail());
+                emailInbox.loadBody(email);
+                Platform.runLater(() -> {
+                    try {
+                        Main.BASE_SCREEN.getController().loadScreen(
+                            Main.CREATE_SCREEN, () -> {
+                                try {
+                                    Main.CREATE_SCREEN.getController()
+                                        .setController(email);
+                                } catch (Exception e) {
+                                    e.printStackTrace();
+                                }
+                            });
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                });
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -140,73 +161,74 @@ public class EmailBoxController extends FXMLController {
     }
 
     /**
-     * Sets the email as not spam.
+     * Sets the email as not spam, moving it on the server off the JavaFX
+     * thread.
      * @throws IOException Thrown if error with the email box fxml
-     * @throws MessagingException Thrown if error with email server
      */
     @FXML
-    private void onNotSpamButton() throws IOException, MessagingException {
-        try {
-            Main.getLoggedInAccount().notSpamEmail(getEmail());
-        } catch (HostConnectionFailureException
-            | MissingEmailServiceInboxName exception) {
-            new BacklogAction(BacklogAction.Action.NOT_SPAM,
-                Main.getLoggedInAccount(), getEmail());
-        }
-        getInboxScreenController().getEmailBoxes().getChildren().remove(
-            getEmailBox());
-        getInboxScreenController().getEmailInbox().getEmails().remove(
-            new Pair<>(getEmail().getMessageId(),
-                getEmail().getHeader().getReceivedDate()));
-        getInboxScreenController().getEmailInbox().save();
-        getInboxScreenController().addNextEmailBox();
+    private void onNotSpamButton() throws IOException {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        Email email = getEmail();
+        EmailExecutor.execute(() -> {
+            try {
+                emailAccount.notSpamEmail(email);
+            } catch (HostConnectionFailureException
+                | MissingEmailServiceInboxName exception) {
+                backlogAction(BacklogAction.Action.NOT_SPAM, emailAccount,
+                    null, email);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        removeEmailBox();
     }
 
     /**
-     * Restores the email from being deleted.
+     * Restores the email from being deleted, moving it on the server off the
+     * JavaFX thread.
      * @throws IOException Thrown if error with the email box fxml
-     * @throws MessagingException Thrown if error with email server
      */
     @FXML
-    private void onRestoreButton() throws IOException, MessagingException {
-        try {
-            Main.getLoggedInAccount().restoreEmail(getEmail());
-        } catch (HostConnectionFailureException | MissingEmailServiceInboxName
-            exception) {
-            new BacklogAction(BacklogAction.Action.RESTORE,
-                Main.getLoggedInAccount(), getEmail());
-        }
-        getInboxScreenController().getEmailBoxes().getChildren().remove(
-            getEmailBox());
-        getInboxScreenController().getEmailInbox().getEmails().remove(
-            new Pair<>(getEmail().getMessageId(),
-                getEmail().getHeader().getReceivedDate()));
-        getInboxScreenController().getEmailInbox().save();
-        getInboxScreenController().addNextEmailBox();
+    private void onRestoreButton() throws IOException {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        Email email = getEmail();
+        EmailExecutor.execute(() -> {
+            try {
+                emailAccount.restoreEmail(email);
+            } catch (HostConnectionFailureException
+                | MissingEmailServiceInboxName exception) {
+                backlogAction(BacklogAction.Action.RESTORE, emailAccount,
+                    null, email);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        removeEmailBox();
     }
 
     /**
-     * Deletes the given email.
+     * Deletes the given email, deleting it on the server off the JavaFX
+     * thread.
      * @throws IOException Thrown if error with the email box fxml
-     * @throws MessagingException Thrown if error with the host's server
      */
     @FXML
-    private void onDeleteButton() throws IOException, MessagingException {
-        try {
-            Main.getLoggedInAccount().deleteEmail(getEmail(),
-                getInboxScreenController().getEmailInbox().getEmailInboxType());
-        } catch (HostConnectionFailureException | MissingEmailServiceInboxName
-            exception) {
-            new BacklogAction(BacklogAction.Action.DELETE,
-                Main.getLoggedInAccount(), getInboxScreenController()
-                .getEmailInbox().getEmailInboxType(), getEmail());
-        }
-        getInboxScreenController().getEmailBoxes().getChildren().remove(
-            getEmailBox());
-        getInboxScreenController().getEmailInbox().getEmails().remove(
-            new Pair<>(getEmail().getMessageId(),
-                getEmail().getHeader().getReceivedDate()));
-        getInboxScreenController().addNextEmailBox();
+    private void onDeleteButton() throws IOException {
+        EmailAccount emailAccount = Main.getLoggedInAccount();
+        EmailInbox.EmailInboxType emailInboxType
+            = getInboxScreenController().getEmailInbox().getEmailInboxType();
+        Email email = getEmail();
+        EmailExecutor.execute(() -> {
+            try {
+                emailAccount.deleteEmail(email, emailInboxType);
+            } catch (HostConnectionFailureException
+                | MissingEmailServiceInboxName exception) {
+                backlogAction(BacklogAction.Action.DELETE, emailAccount,
+                    emailInboxType, email);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        removeEmailBox();
         if (getInboxScreenController().getViewBoxController() != null) {
             if (getInboxScreenController().getViewBoxController().getEmail()
                 == getEmail()) {
@@ -218,13 +240,70 @@ public class EmailBoxController extends FXMLController {
     }
 
     /**
-     * Sets the controller's data.
-     * @param inboxScreenController Controller of the parent screen
-     * @param email Email to display the details of
+     * Backlogs a server action that could not reach the server.
+     * @param action Action to backlog
+     * @param emailAccount Email account the action is for
+     * @param emailInboxType Inbox type the email is in (null if not needed)
+     * @param email Email the action is for
      */
-    public void setController(InboxScreenController inboxScreenController,
+    private static void backlogAction(BacklogAction.Action action,
+        EmailAccount emailAccount, EmailInbox.EmailInboxType emailInboxType,
         Email email) {
+        try {
+            if (emailInboxType == null) {
+                new BacklogAction(action, emailAccount, email);
+            } else {
+                new BacklogAction(action, emailAccount, emailInboxType,
+                    email);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the email from the inbox screen and the inbox.
+     * @throws IOException Thrown if error with the inbox store
+     */
+    private void removeEmailBox() throws IOException {
+        getInboxScreenController().removeEmailBox(getEmail());
+    }
+
+    /**
+     * Shows the email in the view box.
+     * @param emailInboxType Inbox type the email is in
+     * @throws FileCanNotDeleteException Thrown if a files can't be deleted
+     * @throws IOException Thrown if error with the view box fxml
+     */
+    private void setViewBox(EmailInbox.EmailInboxType emailInboxType)
+        throws FileCanNotDeleteException, IOException {
+        ObservableList<Node> viewBoxSpaceChildren
+            = getInboxScreenController().getViewBoxSpace().getChildren();
+        viewBoxSpaceChildren.clear();
+        FXMLComponent<ViewBoxController> viewBox
+            = new FXMLComponent<>("inbox/ViewBox");
+        viewBoxSpaceChildren.add(viewBox.load());
+        getInboxScreenController().setViewBoxController(
+            viewBox.getController());
+        viewBox.getController().setController(getEmail(), emailInboxType);
+    }
+
+    /**
+     * Sets the controller's data, hiding the parts of the email box the inbox
+     * does not use.
+     * @param inboxScreenController Controller of the parent screen
+     */
+    public void setController(InboxScreenController inboxScreenController) {
         setInboxScreenController(inboxScreenController);
+        setSenderLabelVisibility();
+        setButtons();
+    }
+
+    /**
+     * Shows the details of an email in the email box.
+     * @param email Email to display the details of
+     */
+    public void showEmail(@NotNull Email email) {
         setEmail(email);
         setSenderLabel(email.getHeader().getSender());
         setReceivedDateLabel(email.getHeader().getReceivedDate());
@@ -237,10 +316,7 @@ public class EmailBoxController extends FXMLController {
         setSubjectLabel(email.getHeader().getSubject());
         setContentsLabel(email.getBody().getContents().getText());
         setAttachmentNumberLabel(email.getBody().getAttachmentNumber());
-        setButtons();
-        if (getEmail().getIsRead()) {
-            readEmail();
-        }
+        setReadStyle(email.getIsRead());
     }
 
     /**
@@ -263,21 +339,30 @@ public class EmailBoxController extends FXMLController {
     /**
      * Sets the sender label.
      * @param sender Sender of the email
-     * @throws EnumConstantNotPresentException Thrown if no code for given enum
      */
     private void setSenderLabel(EmailAddress sender) {
+        if (this.senderLabel.isVisible()) {
+            this.senderLabel.setText(sender.toString());
+        }
+    }
+
+    /**
+     * Hides the sender label in the inboxes of the user's own emails.
+     * @throws EnumConstantNotPresentException Thrown if no code for given enum
+     */
+    private void setSenderLabelVisibility() {
         EmailInbox.EmailInboxType emailInboxType
             = getInboxScreenController().getEmailInbox().getEmailInboxType();
         switch (emailInboxType) {
             case INBOX:
             case SPAM:
             case BIN:
-                this.senderLabel.setText(sender.toString());
+                //Do Nothing
                 break;
             case DRAFTS:
             case SENT:
-                ((VBox) this.senderLabel.getParent()).getChildren()
-                    .remove(this.senderLabel);
+                this.senderLabel.setVisible(false);
+                this.senderLabel.setManaged(false);
                 break;
             default:
                 throw new EnumConstantNotPresentException(
@@ -383,6 +468,8 @@ public class EmailBoxController extends FXMLController {
         if (attachmentNumber > 0) {
             this.attachmentNumberLabel.setText(
                 String.format(ATTACHMENTS, attachmentNumber));
+        } else {
+            this.attachmentNumberLabel.setText("");
         }
     }
 
@@ -419,14 +506,6 @@ public class EmailBoxController extends FXMLController {
         getButtons().getChildren().removeAll(remove);
     }
 
-    /**
-     * Gets the main pain.
-     * @return Main pane
-     */
-    private HBox getEmailBox() {
-        return emailBox;
-    }
-
     /**
      * Gets the Recipients label.
      * @return Recipients label
@@ -532,21 +611,18 @@ public class EmailBoxController extends FXMLController {
     }
 
     /**
-     * Changes the style of the input box to read.
+     * Changes the style of the email box to read or unread, as the box may
+     * have been showing an email with the other status.
+     * @param isRead True if the email has been read
      */
-    private void readEmail() {
-        getRecipientsLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
-        getCarbonCopiesLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
-        getBlindCarbonCopiesLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
-        getSubjectLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
-        getContentsLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
-        getAttachmentNumberLabel().setStyle(getAttachmentNumberLabel()
-            .getStyle().replace("-fx-font-weight: bold;", ""));
+    private void setReadStyle(boolean isRead) {
+        for (Label label : Arrays.asList(getRecipientsLabel(),
+            getCarbonCopiesLabel(), getBlindCarbonCopiesLabel(),
+            getSubjectLabel(), getContentsLabel(),
+            getAttachmentNumberLabel())) {
+            String style = label.getStyle().replace(BOLD_STYLE, "");
+            label.setStyle(isRead ? style : style + BOLD_STYLE);
+        }
     }
 
 }
@@ -0,0 +1,135 @@
+package gui.fxml.inbox;
+
+import email.EmailInbox;
+import email.email.Email;
+import javafx.collections.ObservableListBase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * List of the emails of an inbox for the list of email boxes, reading them
+ * straight from the inbox a page at a time instead of copying the inbox. The
+ * inbox is synced in the background, so the list only changes its size when
+ * it is told about a change on the JavaFX thread, and must only be used on
+ * that thread.
+ * @author Jordan Jones
+ */
+public class EmailInboxList extends ObservableListBase<Email> {
+
+    //CONSTANTS
+    private static final int PAGE_SIZE = 64;
+
+    //Attributes
+    private final EmailInbox emailInbox;
+    private final List<Email> page = new ArrayList<>();
+    private int pageFrom;
+    private int size;
+
+    /**
+     * Creates the list of the emails of an inbox.
+     * @param emailInbox Loaded inbox to list the emails of
+     */
+    public EmailInboxList(@NotNull EmailInbox emailInbox) {
+        this.emailInbox = emailInbox;
+        this.size = emailInbox.getSavedEmailCount();
+    }
+
+    /**
+     * Gets the email at a position, reading the page of emails around it from
+     * the inbox if it is not the last page read.
+     * @param index Position of the email
+     * @return Email at the position (null if it has just been deleted from
+     * the inbox)
+     * @throws IndexOutOfBoundsException Thrown if there is no such position
+     */
+    @Override
+    public Email get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index < pageFrom || index >= pageFrom + page.size()) {
+            pageFrom = index - index % PAGE_SIZE;
+            page.clear();
+            page.addAll(emailInbox.getSavedEmails(pageFrom,
+                pageFrom + PAGE_SIZE));
+        }
+        int pageIndex = index - pageFrom;
+        return pageIndex < page.size() ? page.get(pageIndex) : null;
+    }
+
+    /**
+     * Gets the number of emails the list has been told about.
+     * @return Number of emails
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the emails that have been added to the inbox where they are in
+     * date order.
+     * @param emails Emails added to the inbox
+     */
+    public void emailsAdded(Email @NotNull [] emails) {
+        ArrayList<Integer> indexes = new ArrayList<>();
+        for (Email email : emails) {
+            int index = emailInbox.getSavedEmailIndex(email);
+            if (index != -1) {
+                indexes.add(index);
+            }
+        }
+        indexes.sort(Comparator.naturalOrder());
+        page.clear();
+        beginChange();
+        for (int index : indexes) {
+            if (index <= size) {
+                nextAdd(index, index + 1);
+                size++;
+            }
+        }
+        endChange();
+        if (size != emailInbox.getSavedEmailCount()) {
+            emailsChanged();
+        }
+    }
+
+    /**
+     * Removes an email from the list and then from the inbox.
+     * @param email Email to remove
+     * @throws IOException Thrown if error with the inbox store
+     */
+    public void removeEmail(@NotNull Email email) throws IOException {
+        int index = emailInbox.getSavedEmailIndex(email);
+        emailInbox.removeEmail(email);
+        page.clear();
+        if (index != -1 && index < size) {
+            beginChange();
+            nextRemove(index, email);
+            size--;
+            endChange();
+        }
+    }
+
+    /**
+     * Reads the list again after the inbox changed in a way the list does not
+     * know the positions of, such as emails deleted on the server.
+     */
+    public void emailsChanged() {
+        int oldSize = size;
+        size = emailInbox.getSavedEmailCount();
+        page.clear();
+        if (oldSize == 0 && size == 0) {
+            return;
+        }
+        beginChange();
+        nextReplace(0, size, Collections.nCopies(oldSize, null));
+        endChange();
+    }
+
+}
@@ -1,73 +1,68 @@
 package gui.fxml.inbox;
 
+import email.EmailExecutor;
 import email.EmailInbox;
+import email.EmailInboxListener;
+import email.EmailInboxWatcher;
+import email.EmailSyncScheduler;
 import email.HostConnectionFailureException;
 import email.email.Email;
+import email.email.EmailHeader;
+import email.email.body.EmailBody;
+import email.email.body.EmailContents;
+import email.search.EmailSearch;
+import email.search.EmailSearchIndex;
+import email.search.EmailSearchQuery;
+import email.search.EmailSearchResult;
+import email.search.InvalidSearchQueryException;
 import gui.Main;
+import gui.components.ExtendedTextField;
 import gui.fxml.FXMLComponent;
 import gui.fxml.FXMLController;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
-import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.layout.HBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Controller for the drafts screen.
+ * Controller for the inbox screen. The emails are listed in a virtualized
+ * list that only creates the email boxes on screen and reuses them while
+ * scrolling, so any number of emails can be listed.
  * @author Jordan Jones
  */
-public class InboxScreenController extends FXMLController {
+public class InboxScreenController extends FXMLController
+    implements EmailInboxListener {
 
     //CONSTANTS
-    public static final int EMAILS_PER_PAGE = 5;
-    private static final int MAX_PAGE_BUTTONS = 5;
-    private static final int REFRESH_DELAY_MILLISECONDS = 1000;
+    private static final String EMAIL_BOX_STYLE
+        = "-fx-padding: 0; -fx-background-color: #ffffff;";
 
     //FXML Attributes
-    @FXML private VBox emailBoxes;
-    @FXML private Button leftButton;
-    @FXML private HBox pageButtons;
-    @FXML private Button rightButton;
+    @FXML private ListView<Email> emailBoxes;
     @FXML private Pane viewBoxSpace;
     @FXML private VBox sidebar;
     @FXML private Label loadLabel;
+    @FXML private ExtendedTextField searchTextField;
 
     //Attributes
     private EmailInbox emailInbox;
-    private int pageNumber = 1;
-    private HashMap<Email, HBox> emailHBoxes = new HashMap<>();
     private Service<Void> refreshService;
+    private EmailInboxWatcher emailInboxWatcher;
     private ViewBoxController viewBoxController;
-
-    /**
-     * Navigates to the previous set of emails.
-     * @throws IOException Thrown if error with an email box's fxml file
-     */
-    @FXML
-    private void onLeftButton() throws IOException {
-        setPageNumber(getPageNumber() - 1);
-        navigationalButton();
-    }
-
-    /**
-     * Navigates to the next set of emails.
-     * @throws IOException Thrown if error with an email box's fxml file
-     */
-    @FXML
-    private void onRightButton() throws IOException {
-        setPageNumber(getPageNumber() + 1);
-        navigationalButton();
-    }
+    private EmailInboxList emailInboxList;
 
     /**
      * Sets the controller's data.
@@ -81,98 +76,17 @@ public class InboxScreenController extends FXMLController {
         IOException {
         setEmailInbox(Main.getLoggedInAccount().getInbox(emailInboxType));
         setEmailBoxes();
-        setPageButtons();
-        setRightButton();
         setRefreshService();
     }
 
     /**
-     * Sets the email boxes.
-     * @throws IOException Thrown if error with an email box's fxml file
-     */
-    private void setEmailBoxes() throws IOException {
-        getEmailBoxes().getChildren().clear();
-        int from = ((getPageNumber() - 1) * EMAILS_PER_PAGE);
-        int to = Math.min(from + EMAILS_PER_PAGE, getEmailInbox().getEmails()
-            .size());
-        for (Email email : Arrays.copyOfRange(getEmailInbox().getEmails()
-            .values().toArray(new Email[0]), from, to)) {
-            setEmailBox(email);
-        }
-    }
-
-    /**
-     * Sets the left button at the bottom of the window.
-     */
-    private void setLeftButton() {
-        leftButton.setVisible(getPageNumber() != 1);
-    }
-
-    /**
-     * Sets the page buttons.
-     */
-    private void setPageButtons() {
-        pageButtons.getChildren().clear();
-        int from = Math.max(1, getPageNumber() - 2);
-        int to = Math.min(from + (MAX_PAGE_BUTTONS - 1), (int) Math.ceil(
-            getEmailInbox().getEmails().size() / (double) EMAILS_PER_PAGE));
-        for (int i = from; i <= to; i++) {
-            if (i != getPageNumber()) {
-                Button button = new Button(Integer.toString(i));
-                int finalI = i;
-                button.setOnAction(actionEvent -> {
-                    setPageNumber(finalI);
-                    try {
-                        navigationalButton();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                });
-                button.setOnMouseEntered(mouseEvent -> onHoverEnter());
-                button.setOnMouseExited(mouseEvent -> onHoverExit());
-                button.getStyleClass().add("btn-sm");
-                button.getStyleClass().add("btn-primary");
-                pageButtons.getChildren().add(button);
-            } else {
-                Label label = new Label(Integer.toString(i));
-                label.setId("pageNumber");
-                label.setTextFill(Color.WHITE);
-                label.setStyle("-fx-text-fill: #fff;  -fx-fill: #fff; "
-                    + "-fx-background-color: #f0ad4e; "
-                    + "-fx-border-color: #eea236;");
-                label.getStyleClass().add("btn-sm");
-                pageButtons.getChildren().add(label);
-            }
-
-        }
-    }
-
-    /**
-     * Sets the right buttons at the bottom of the window.
-     */
-    private void setRightButton() {
-        rightButton.setVisible(getEmailInbox().getEmails().size()
-            > (getPageNumber() * EMAILS_PER_PAGE));
-    }
-
-    /**
-     * Sets email box onto the list.
-     * @param email Email to create box for
-     * @throws IOException Thrown if error with the email box fxml
-     */
-    private void setEmailBox(@NotNull Email email) throws IOException {
-        getEmailBoxes().getChildren().add(emailBox(email));
-    }
-
-    /**
-     * Sets email box onto the list with a given index.
-     * @param index Index to place the email box
-     * @param email Email to create box for
-     * @throws IOException Thrown if error with the email box fxml
+     * Sets the list of email boxes, which shows the emails of the inbox in
+     * date order.
      */
-    private void setEmailBox(int index, @NotNull Email email)
-        throws IOException {
-        getEmailBoxes().getChildren().add(index, emailBox(email));
+    private void setEmailBoxes() {
+        this.emailInboxList = new EmailInboxList(getEmailInbox());
+        getEmailBoxes().setCellFactory(listView -> emailBoxCell());
+        getEmailBoxes().setItems(getEmailInboxList());
     }
 
     /**
@@ -188,57 +102,116 @@ public class InboxScreenController extends FXMLController {
     }
 
     /**
-     * Sets the page number of the screen.
-     * @param pageNumber Page number of the screen
-     */
-    private void setPageNumber(int pageNumber) {
-        this.pageNumber = pageNumber;
-    }
-
-    /**
-     * Sets the refresh service.
+     * Sets the refresh service, which waits for the sync scheduler to sync the
+     * inbox before the other inboxes and then watches it for changes.
      */
     private void setRefreshService() {
-        if (getEmailBoxes().getChildren().size() != 0) {
+        if (!getEmailBoxes().getItems().isEmpty()) {
             sidebar.getChildren().remove(loadLabel);
         }
+        this.emailInboxWatcher = new EmailInboxWatcher(getEmailInbox(), this);
+        CompletableFuture<Void> inboxSync
+            = EmailSyncScheduler.show(getEmailInbox(), this);
         this.refreshService = new Service<>() {
             @Override
             protected Task<Void> createTask() {
                 return new Task<>() {
                     @Override
-                    protected Void call() {
-                        while (!isCancelled()) {
-                            System.out.println(getEmailInbox().getEmailInboxType());
-                            try {
-                                Pair<Email[], String[]> update
-                                    = getEmailInbox().refresh();
-                                refreshServiceAdd(update.getKey());
-                                refreshServiceDelete(update.getValue());
-                                Platform.runLater(() -> {
-                                    if (sidebar.getChildren()
-                                        .contains(loadLabel)) {
-                                        sidebar.getChildren()
-                                            .remove(loadLabel);
-                                    }
-                                });
-                                Thread.sleep(REFRESH_DELAY_MILLISECONDS);
-                            } catch (InterruptedException exception) {
-                                return null;
-                            } catch (Exception e) {
-                                e.printStackTrace();
+                    protected Void call() throws ExecutionException {
+                        try {
+                            inboxSync.get();
+                        } catch (InterruptedException interruptedException) {
+                            return null;
+                        }
+                        Platform.runLater(() -> {
+                            if (sidebar.getChildren().contains(loadLabel)) {
+                                sidebar.getChildren().remove(loadLabel);
                             }
+                        });
+                        if (!isCancelled()) {
+                            getEmailInboxWatcher().watch();
                         }
-                        System.out.println(getEmailInbox().getEmailInboxType()
-                            + " END");
                         return null;
-                    };
+                    }
                 };
             }
         };
+        refreshService.setExecutor(EmailExecutor.getExecutor());
         refreshService.start();
     }
 
+    /**
+     * Searches the inbox's saved emails and server folder for what was typed
+     * in the search text field off the JavaFX thread, listing the matching
+     * emails instead of the inbox. Searching for nothing lists the inbox
+     * again.
+     */
+    @FXML
+    private void onSearchTextField() {
+        String text = getSearchTextField().getText();
+        if (text.isBlank()) {
+            getEmailBoxes().setItems(getEmailInboxList());
+            return;
+        }
+        EmailSearchQuery query;
+        try {
+            query = new EmailSearchQuery(text);
+        } catch (InvalidSearchQueryException invalidSearchQueryException) {
+            getSearchTextField().displayError(
+                invalidSearchQueryException.getMessage());
+            return;
+        }
+        int emailAccountId = Main.getLoggedInAccount().getId();
+        EmailInbox emailInbox = getEmailInbox();
+        EmailExecutor.execute(() -> {
+            try {
+                List<Email> emails = searchEmails(emailAccountId, emailInbox,
+                    query);
+                Platform.runLater(() -> {
+                    if (text.equals(getSearchTextField().getText())) {
+                        getEmailBoxes().setItems(
+                            FXCollections.observableArrayList(emails));
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Searches for the emails of an inbox. The matching emails that are only
+     * on the server are listed from their headers with a summary body, and
+     * their full body is only fetched when they are opened. Only the inbox on
+     * screen is searched, as its email boxes act on it.
+     * @param emailAccountId Id of the email account the inbox is in
+     * @param emailInbox Inbox to list the matching emails of
+     * @param query Search query
+     * @return Matching emails of the inbox, saved emails best match first
+     * then emails only on the server newest first
+     * @throws IOException Thrown if error reading the search index
+     */
+    private static @NotNull List<Email> searchEmails(int emailAccountId,
+        @NotNull EmailInbox emailInbox, @NotNull EmailSearchQuery query)
+        throws IOException {
+        ArrayList<Email> emails = new ArrayList<>();
+        for (EmailSearchResult result : EmailSearch.search(query,
+            EmailSearchIndex.MAX_RESULTS, emailAccountId, emailInbox)) {
+            if (result.isServerOnly()) {
+                EmailHeader header = result.getHeader();
+                emails.add(new Email(result.getMessageId(), header,
+                    new EmailBody(header, new EmailContents(""), 0),
+                    result.getIsRead()));
+            } else {
+                Email email = emailInbox.getSavedEmail(result.getMessageId());
+                if (email != null) {
+                    emails.add(email);
+                }
+            }
+        }
+        return emails;
+    }
+
     /**
      * Sets the current view box controller.
      * @param viewBoxController View box controller
@@ -248,13 +221,21 @@ public class InboxScreenController extends FXMLController {
     }
 
     /**
-     * Gets the email boxes.
-     * @return Email boxes
+     * Gets the list of email boxes.
+     * @return List of email boxes
      */
-    public VBox getEmailBoxes() {
+    public ListView<Email> getEmailBoxes() {
         return emailBoxes;
     }
 
+    /**
+     * Gets the search text field.
+     * @return Search text field
+     */
+    private ExtendedTextField getSearchTextField() {
+        return searchTextField;
+    }
+
     /**
      * Gets view box space.
      * @return View box space
@@ -272,22 +253,13 @@ public class InboxScreenController extends FXMLController {
     }
 
     /**
-     * Get page number.
-     * @return Page number
-     */
-    private int getPageNumber() {
-        return pageNumber;
-    }
-
-    /**
-     * Gets the email boxes.
-     * @return Email boxes
+     * Gets the list of the inbox's emails shown by the email boxes.
+     * @return List of the inbox's emails
      */
-    private HashMap<Email, HBox> getEmailHBoxes() {
-        return emailHBoxes;
+    private EmailInboxList getEmailInboxList() {
+        return emailInboxList;
     }
 
-
     /**
      * Gets the refresh service.
      * @return Refresh service
@@ -297,136 +269,131 @@ public class InboxScreenController extends FXMLController {
     }
 
     /**
-     * Gets the view box controller.
-     * @return View box controller
+     * Gets the watcher pushing the inbox changes.
+     * @return Watcher pushing the inbox changes
      */
-    public ViewBoxController getViewBoxController() {
-        return viewBoxController;
+    private EmailInboxWatcher getEmailInboxWatcher() {
+        return emailInboxWatcher;
     }
 
     /**
-     * Code to run when a navigational button is clicked.
-     * @throws IOException Thrown if error with an email box's fxml file
+     * Gets the view box controller.
+     * @return View box controller
      */
-    private void navigationalButton() throws IOException {
-        setLeftButton();
-        setPageButtons();
-        setRightButton();
-        setEmailBoxes();
+    public ViewBoxController getViewBoxController() {
+        return viewBoxController;
     }
 
     /**
-     * Creates an email box.
-     * @param email Email to create the email box for
-     * @return Email box
-     * @throws IOException Thrown if error with the email box fxml
+     * Creates a cell of the list of email boxes. The email box fxml is only
+     * loaded once per cell, as the cell is given a different email each time
+     * it is reused.
+     * @return Cell of the list of email boxes
      */
-    private HBox emailBox(@NotNull Email email) throws IOException {
-        HBox emailBox = getEmailHBoxes().get(email);
-        if (emailBox == null) {
-            FXMLComponent<EmailBoxController> emailBoxLoader
-                = new FXMLComponent<>("inbox/EmailBox");
-            emailBox = (HBox) emailBoxLoader.load();
-            emailBoxLoader.getController().setController(this, email);
-            getEmailHBoxes().put(email, emailBox);
+    private @NotNull ListCell<Email> emailBoxCell() {
+        FXMLComponent<EmailBoxController> emailBoxLoader
+            = new FXMLComponent<>("inbox/EmailBox");
+        Node emailBox = null;
+        try {
+            emailBox = emailBoxLoader.load();
+            emailBoxLoader.getController().setController(this);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return emailBox;
+        Node finalEmailBox = emailBox;
+        ListCell<Email> cell = new ListCell<>() {
+            @Override
+            protected void updateItem(Email item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null || finalEmailBox == null) {
+                    setGraphic(null);
+                } else {
+                    emailBoxLoader.getController().showEmail(item);
+                    setGraphic(finalEmailBox);
+                }
+            }
+        };
+        cell.setStyle(EMAIL_BOX_STYLE);
+        //Stops the email box widening the list instead of fitting it
+        cell.setPrefWidth(0);
+        return cell;
     }
 
     /**
-     * Adds the next email from the next page to the end of the email box list.
-     * @throws IOException Thrown if error with the email box fxml
+     * Removes an email from the list and from the inbox.
+     * @param email Email to remove
+     * @throws IOException Thrown if error with the inbox store
      */
-    public void addNextEmailBox() throws IOException {
-        if (getEmailInbox().getEmails().size()
-            >= EMAILS_PER_PAGE * getPageNumber()) {
-            setEmailBox(getEmailInbox().getEmails().values().toArray(
-                new Email[0])[(EMAILS_PER_PAGE * getPageNumber()) - 1]);
-            setRightButton();
-            setPageButtons();
-            setLeftButton();
+    public void removeEmailBox(@NotNull Email email) throws IOException {
+        if (getEmailBoxes().getItems() != getEmailInboxList()) {
+            //Listing search results rather than the inbox
+            getEmailBoxes().getItems().remove(email);
         }
+        getEmailInboxList().removeEmail(email);
     }
 
     /**
-     * Add section of the refresh service.
+     * Add section of the refresh service, putting each new email where it is
+     * in date order.
      * @param emails Emails to add to the email boxes
      */
     private void refreshServiceAdd(Email[] emails) {
         Platform.runLater(() -> {
-            try {
-                HashMap<Integer, Email> emailHashMap = new HashMap<>();
-                for (Email email : emails) {
-                    Pair<String, Date> pair = new Pair<>(email.getMessageId(),
-                        email.getHeader().getReceivedDate());
-                    int index = new ArrayList<>(getEmailInbox().getEmails()
-                        .keySet()).indexOf(pair);
-                    if (index >= ((getPageNumber() - 1) * EMAILS_PER_PAGE)
-                        && index < (getPageNumber() * EMAILS_PER_PAGE)) {
-                        index -= ((getPageNumber() - 1) * EMAILS_PER_PAGE);
-                        emailHashMap.put(index, email);
-                    }
-                }
-                for (int integer : emailHashMap.keySet()) {
-                    setEmailBox(integer, emailHashMap.get(
-                        integer));
-                }
-                while (getEmailBoxes().getChildren().size() > EMAILS_PER_PAGE) {
-                    getEmailBoxes().getChildren().remove(
-                        getEmailBoxes().getChildren().size() - 1);
-                }
-                setRightButton();
-                setPageButtons();
-                setLeftButton();
-            } catch (IOException e) {
-                e.printStackTrace();
+            getEmailInboxList().emailsAdded(emails);
+            if (!getEmailInboxList().isEmpty()) {
+                sidebar.getChildren().remove(loadLabel);
             }
         });
     }
 
     /**
-     * Delete section of the refresh service.
-     * @param deleteIds Ids of the emails to delete
+     * Delete section of the refresh service, which the inbox has already
+     * removed the emails from.
+     * @param deleteIds Ids of the deleted emails
      */
     private void refreshServiceDelete(String[] deleteIds) {
-        Platform.runLater(() -> {
-            try {
-                int replace = 0;
-                for (String deleteId : deleteIds) {
-                    for (Email email : getEmailHBoxes().keySet()) {
-                        if (email.getMessageId().equals(deleteId)) {
-                            HBox emailBox = getEmailHBoxes().get(email);
-                            getEmailHBoxes().remove(email);
-                            if (emailBox != null) {
-                                if (getEmailBoxes().getChildren().remove(
-                                    emailBox)) {
-                                    replace++;
-                                }
-                            }
-                            break;
-                        }
-                    }
-                }
-                int from = (getPageNumber() * EMAILS_PER_PAGE) - replace;
-                int to = Math.min(from + replace,
-                    getEmailInbox().getEmails().size());
-                for (int i = from; i < to; i++) {
-                    setEmailBox(getEmailInbox().getEmails().values().toArray(
-                        new Email[0])[i]);
-                }
-                setRightButton();
-                setPageButtons();
-                setLeftButton();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        });
+        if (deleteIds.length > 0) {
+            Platform.runLater(() -> getEmailInboxList().emailsChanged());
+        }
+    }
+
+    /**
+     * Adds the emails pushed from the server.
+     * @param emails Added emails
+     */
+    @Override
+    public void emailsAdded(Email[] emails) {
+        refreshServiceAdd(emails);
+    }
+
+    /**
+     * Deletes the emails pushed from the server.
+     * @param messageIds Message ids of the deleted emails
+     */
+    @Override
+    public void emailsDeleted(String[] messageIds) {
+        refreshServiceDelete(messageIds);
+    }
+
+    /**
+     * Redraws an email whose flags were changed on the server.
+     * @param email Changed email
+     */
+    @Override
+    public void emailChanged(Email email) {
+        Platform.runLater(() -> getEmailInboxList().emailsChanged());
     }
 
     /**
      * Cancels the refresh service.
      */
     public void refreshServiceCancel() {
+        if (getEmailInbox() != null) {
+            EmailSyncScheduler.hide(getEmailInbox(), this);
+        }
+        if (getEmailInboxWatcher() != null) {
+            getEmailInboxWatcher().stop();
+        }
         if (getRefreshService() != null) {
             getRefreshService().cancel();
         }
@@ -1,10 +1,15 @@
 package gui.fxml.tags;
 
 import com.sun.mail.smtp.SMTPSendFailedException;
+import email.EmailAccount;
+import email.EmailExecutor;
 import email.EmailInbox;
 import email.HostConnectionFailureException;
 import email.address.EmailAddress;
+import email.address.EmailRecipientReader;
 import email.address.EmptyTagValueException;
+import email.address.InvalidEmailAddressException;
+import email.address.InvalidRecipientFileException;
 import email.email.Email;
 import email.email.body.tag.EmailListTag;
 import email.email.body.tag.EmailTag;
@@ -13,17 +18,21 @@ import file.FileCanNotDeleteException;
 import gui.Main;
 import gui.fxml.FXMLComponent;
 import gui.fxml.FXMLController;
+import gui.fxml.FXMLScreen;
 import gui.fxml.base.AccountBoxController;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import org.jetbrains.annotations.NotNull;
 import javax.mail.Message;
-import javax.mail.MessagingException;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -36,6 +45,8 @@ public class TagsScreenController extends FXMLController {
     //CONSTANTS
     public static final String MISSING_TAG_VALUE_ERROR
         = "%s is missing a tag value";
+    private static final String RECIPIENT_FILE_DESCRIPTION
+        = "Recipients (CSV, TSV)";
     private static final String HOST_BAN_ERROR = "Host has temporarily banned"
         + " sending on the account, likely due to recent spam.";
 
@@ -43,6 +54,8 @@ public class TagsScreenController extends FXMLController {
     @FXML private ComboBox<EmailAddress> emailAddressComboBox;
     @FXML private VBox tagBoxes;
     @FXML private Label errorLabel;
+    @FXML private Button sendButton;
+    @FXML private Button sendFromFileButton;
 
     //Attributes
     private Email email;
@@ -82,14 +95,11 @@ public class TagsScreenController extends FXMLController {
     }
 
     /**
-     * Sends the email with the new email tag values.
-     * @throws EmptyTagValueException Thrown if sending email with no tag values
-     * @throws IOException Thrown if error email attachments and home fxml
-     * @throws MessagingException Thrown if error with java mail server
+     * Sends the email with the new email tag values, off the JavaFX thread so
+     * the screen does not freeze while the host is contacted.
      */
     @FXML
-    private void onSendButton() throws EmptyTagValueException, IOException,
-        MessagingException {
+    private void onSendButton() {
         getErrorLabel().setText("");
         boolean isSuccessful = true;
         for (EmailTag emailTag : getEmail().getBody().getContents().getTags()) {
@@ -130,28 +140,116 @@ public class TagsScreenController extends FXMLController {
                     }
                 }
             }
-            try {
-                Main.getLoggedInAccount().sendEmail(getEmail());
-                if (getEmail().getMessageId() == null) {
-                    Main.BASE_SCREEN.getController().clear();
-                } else {
-                    Main.BASE_SCREEN.getController().loadScreen(
-                        Main.INBOX_SCREEN, () -> {
-                            try {
-                                Main.BASE_SCREEN.getController().inboxScreen(
-                                    EmailInbox.EmailInboxType.DRAFTS);
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        });
+            EmailAccount emailAccount = Main.getLoggedInAccount();
+            Email email = getEmail();
+            setSendButtonsDisable(true);
+            EmailExecutor.execute(() -> {
+                try {
+                    emailAccount.sendEmail(email);
+                    Platform.runLater(() -> {
+                        try {
+                            onEmailSent();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    });
+                } catch (HostConnectionFailureException
+                    | MissingEmailServiceInboxName exception) {
+                    showSendError(
+                        new HostConnectionFailureException().getMessage());
+                } catch (SMTPSendFailedException smtpSendFailedException) {
+                    showSendError(HOST_BAN_ERROR);
+                } catch (EmptyTagValueException emptyTagValueException) {
+                    showSendError(emptyTagValueException.getMessage());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    showSendError(e.getMessage());
                 }
+            });
+        }
+    }
+
+    /**
+     * Sends the email to the recipients and tag values of a CSV or TSV file.
+     */
+    @FXML
+    private void onSendFromFileButton() {
+        getErrorLabel().setText("");
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+            RECIPIENT_FILE_DESCRIPTION, EmailRecipientReader.FILE_EXTENSIONS));
+        File recipientFile = fileChooser.showOpenDialog(
+            FXMLScreen.getPrimaryStage());
+        if (recipientFile == null) {
+            return;
+        }
+        setSendButtonsDisable(true);
+        EmailExecutor.execute(() -> {
+            try {
+                Main.getLoggedInAccount().sendEmail(getEmail(),
+                    recipientFile.getPath());
+                Platform.runLater(() -> {
+                    try {
+                        onEmailSent();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                });
             } catch (HostConnectionFailureException
                 | MissingEmailServiceInboxName exception) {
-                getErrorLabel().setText(new HostConnectionFailureException()
-                    .getMessage());
+                showSendError(
+                    new HostConnectionFailureException().getMessage());
             } catch (SMTPSendFailedException smtpSendFailedException) {
-                getErrorLabel().setText(HOST_BAN_ERROR);
+                showSendError(HOST_BAN_ERROR);
+            } catch (EmptyTagValueException | InvalidEmailAddressException
+                | InvalidRecipientFileException exception) {
+                showSendError(exception.getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                showSendError(e.getMessage());
             }
+        });
+    }
+
+    /**
+     * Displays an error from sending the email on the JavaFX thread.
+     * @param error Error to display
+     */
+    private void showSendError(String error) {
+        Platform.runLater(() -> {
+            getErrorLabel().setText(error);
+            setSendButtonsDisable(false);
+        });
+    }
+
+    /**
+     * Disables or enables both send buttons, so the email is only sent once
+     * at a time.
+     * @param isDisabled True if the send buttons are disabled
+     */
+    private void setSendButtonsDisable(boolean isDisabled) {
+        getSendButton().setDisable(isDisabled);
+        getSendFromFileButton().setDisable(isDisabled);
+    }
+
+    /**
+     * Leaves the screen after the email has been sent.
+     * @throws IOException Thrown if error with the base screen fxml
+     */
+    private void onEmailSent() throws IOException {
+        setSendButtonsDisable(false);
+        if (getEmail().getMessageId() == null) {
+            Main.BASE_SCREEN.getController().clear();
+        } else {
+            Main.BASE_SCREEN.getController().loadScreen(
+                Main.INBOX_SCREEN, () -> {
+                    try {
+                        Main.BASE_SCREEN.getController().inboxScreen(
+                            EmailInbox.EmailInboxType.DRAFTS);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                });
         }
     }
 
@@ -287,6 +385,22 @@ public class TagsScreenController extends FXMLController {
         return errorLabel;
     }
 
+    /**
+     * Gets the send button.
+     * @return Send button
+     */
+    private Button getSendButton() {
+        return sendButton;
+    }
+
+    /**
+     * Gets the send from file button.
+     * @return Send from file button
+     */
+    private Button getSendFromFileButton() {
+        return sendFromFileButton;
+    }
+
     /**
      * Gets the email.
      * @return Email
@@ -0,0 +1,174 @@
+package email;
+
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Test Suite for the write-ahead log of the backlog actions.
+ * @author Jordan Jones
+ */
+public class BacklogActionLogTestSuite {
+
+    //CONSTANTS
+    private static final int COMPACTION_ACTIONS = 300;
+    private static final int WAITING_ACTIONS = 10;
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if replaying the log gives the actions that were not
+     * acknowledged, in order and with all of their details, every time it is
+     * replayed.
+     * @throws IOException Thrown if error with the log file
+     */
+    @Test
+    void replay() throws IOException {
+        BacklogActionLog backlogLog = backlogLog();
+        BacklogAction read = action(BacklogAction.Action.READ,
+            EmailInbox.EmailInboxType.INBOX, "a");
+        BacklogAction spam = action(BacklogAction.Action.SPAM, null, "b");
+        BacklogAction delete = action(BacklogAction.Action.DELETE,
+            EmailInbox.EmailInboxType.BIN, "c");
+        backlogLog.add(read);
+        backlogLog.add(spam);
+        backlogLog.add(delete);
+        backlogLog.acknowledge(read);
+        backlogLog.close();
+        List<BacklogAction> loaded = new ArrayList<>(backlogLog().load());
+        Assertions.assertThat(describe(loaded)).containsExactly(
+            "SPAM/1/null/b", "DELETE/1/BIN/c");
+        Assertions.assertThat(describe(backlogLog().load()))
+            .isEqualTo(describe(loaded));
+    }
+
+    /**
+     * Tests if a record that was only partly written is cut off, and if the
+     * log can be added to afterwards.
+     * @throws IOException Thrown if error with the log file
+     */
+    @Test
+    void replayAfterTornRecord() throws IOException {
+        BacklogActionLog backlogLog = backlogLog();
+        backlogLog.add(action(BacklogAction.Action.READ,
+            EmailInbox.EmailInboxType.INBOX, "a"));
+        backlogLog.close();
+        long logBytes = Files.size(logPath());
+        Files.write(logPath(), new byte[]{0, 0, 0, 40, 7, 7, 7},
+            StandardOpenOption.APPEND);
+        backlogLog = backlogLog();
+        Assertions.assertThat(describe(backlogLog.load()))
+            .containsExactly("READ/1/INBOX/a");
+        Assertions.assertThat(Files.size(logPath())).isEqualTo(logBytes);
+        BacklogAction restore = action(BacklogAction.Action.RESTORE,
+            EmailInbox.EmailInboxType.BIN, "b");
+        backlogLog.add(restore);
+        backlogLog.close();
+        List<BacklogAction> loaded = new ArrayList<>(backlogLog().load());
+        Assertions.assertThat(describe(loaded)).containsExactly(
+            "READ/1/INBOX/a", "RESTORE/1/BIN/b");
+        Assertions.assertThat(loaded.get(1).getSequence())
+            .isGreaterThan(loaded.get(0).getSequence());
+    }
+
+    /**
+     * Tests if a record whose checksum does not match is cut off with the
+     * records after it.
+     * @throws IOException Thrown if error with the log file
+     */
+    @Test
+    void replayAfterCorruptRecord() throws IOException {
+        BacklogActionLog backlogLog = backlogLog();
+        backlogLog.add(action(BacklogAction.Action.READ,
+            EmailInbox.EmailInboxType.INBOX, "a"));
+        backlogLog.add(action(BacklogAction.Action.READ,
+            EmailInbox.EmailInboxType.INBOX, "b"));
+        backlogLog.close();
+        byte[] bytes = Files.readAllBytes(logPath());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(logPath(), bytes);
+        Assertions.assertThat(describe(backlogLog().load()))
+            .containsExactly("READ/1/INBOX/a");
+    }
+
+    /**
+     * Tests if the log file is rewritten once most of it is acknowledged
+     * actions, keeping the actions that are still waiting.
+     * @throws IOException Thrown if error with the log file
+     */
+    @Test
+    void compact() throws IOException {
+        BacklogActionLog backlogLog = backlogLog();
+        ArrayList<BacklogAction> actions = new ArrayList<>();
+        for (int i = 0; i < COMPACTION_ACTIONS; i++) {
+            BacklogAction backlogAction = action(BacklogAction.Action.DELETE,
+                EmailInbox.EmailInboxType.INBOX, "e" + i);
+            backlogLog.add(backlogAction);
+            actions.add(backlogAction);
+        }
+        long logBytes = Files.size(logPath());
+        for (int i = WAITING_ACTIONS; i < COMPACTION_ACTIONS; i++) {
+            backlogLog.acknowledge(actions.get(i));
+        }
+        backlogLog.close();
+        Assertions.assertThat(Files.size(logPath())).isLessThan(logBytes);
+        Assertions.assertThat(describe(backlogLog().load()))
+            .hasSize(WAITING_ACTIONS).first().isEqualTo("DELETE/1/INBOX/e0");
+    }
+
+    /**
+     * Creates a backlog action log in the test directory.
+     * @return Backlog action log
+     */
+    private @NotNull BacklogActionLog backlogLog() {
+        return new BacklogActionLog(logPath().toString());
+    }
+
+    /**
+     * Gets the path of the log file.
+     * @return Path of the log file
+     */
+    private @NotNull Path logPath() {
+        return directory.resolve("backlog.log");
+    }
+
+    /**
+     * Creates a backlog action of the first account.
+     * @param action Action being backlogged
+     * @param emailInboxType Email inbox type (null if none)
+     * @param messageId Message id of the email
+     * @return Backlog action
+     */
+    private static @NotNull BacklogAction action(BacklogAction.Action action,
+        EmailInbox.EmailInboxType emailInboxType, String messageId) {
+        return new BacklogAction(action, 1, emailInboxType, messageId);
+    }
+
+    /**
+     * Describes each backlog action by its details.
+     * @param backlogActions Backlog actions
+     * @return Details of each action in order
+     */
+    private static @NotNull List<String> describe(
+        @NotNull Collection<BacklogAction> backlogActions) {
+        ArrayList<String> descriptions = new ArrayList<>();
+        for (BacklogAction backlogAction : backlogActions) {
+            descriptions.add(backlogAction.getAction() + "/"
+                + backlogAction.getEmailAccountId() + "/"
+                + backlogAction.getEmailInboxType() + "/"
+                + backlogAction.getMessageId());
+        }
+        return descriptions;
+    }
+
+}
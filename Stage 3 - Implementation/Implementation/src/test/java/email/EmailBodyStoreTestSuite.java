@@ -0,0 +1,89 @@
+package email;
+
+import email.address.EmailAddress;
+import email.email.EmailHeader;
+import email.email.body.EmailBody;
+import email.email.body.EmailContents;
+import file.ExtendedFile;
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.mail.Message;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * Test Suite for the local store of the full bodies of an inbox's emails.
+ * @author Jordan Jones
+ */
+public class EmailBodyStoreTestSuite {
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if the attachment contents used by the bodies of every inbox are
+     * found, skipping deleted bodies, partly written bodies and files that
+     * aren't bodies.
+     * @throws Exception Thrown if error with a body file
+     */
+    @Test
+    void findAttachmentHashes() throws Exception {
+        EmailBodyStore inbox = bodyStore("1/inboxes/inbox");
+        EmailBodyStore sent = bodyStore("2/inboxes/sent");
+        inbox.save("a", body(new ExtendedFile("a.txt", "aa", 1),
+            new ExtendedFile("b.txt", "bb", 1)));
+        inbox.save("b", body(new ExtendedFile("c.txt", "cc", 1)));
+        sent.save("c", body(new ExtendedFile("a.txt", "aa", 1),
+            new ExtendedFile("d.txt")));
+        sent.save("d", body(new ExtendedFile("e.txt", "ee", 1)));
+        sent.delete("d");
+        Files.write(directory.resolve("2/inboxes/sent/"
+            + EmailBodyStore.DIRECTORY_NAME + "/torn.ser"), new byte[]{1});
+        Files.write(directory.resolve("1/inboxes/inbox/other.ser"),
+            new byte[]{1});
+        Assertions.assertThat(EmailBodyStore.findAttachmentHashes(
+            directory.toString())).containsExactlyInAnyOrder("aa", "bb", "cc");
+    }
+
+    /**
+     * Tests if no attachment contents are found without any saved bodies.
+     * @throws Exception Thrown if error with the directory
+     */
+    @Test
+    void findAttachmentHashesEmpty() throws Exception {
+        Assertions.assertThat(EmailBodyStore.findAttachmentHashes(
+            directory.resolve("missing").toString())).isEmpty();
+    }
+
+    /**
+     * Creates the body store of an inbox in the test directory.
+     * @param inboxPath Path of the inbox in the test directory
+     * @return Body store of the inbox
+     */
+    private @NotNull EmailBodyStore bodyStore(@NotNull String inboxPath) {
+        return new EmailBodyStore(directory.resolve(inboxPath)
+            .resolve(EmailBodyStore.DIRECTORY_NAME).toString());
+    }
+
+    /**
+     * Creates a full email body with attachments.
+     * @param attachments Attachments of the body
+     * @return Full email body
+     */
+    private static @NotNull EmailBody body(ExtendedFile... attachments) {
+        HashMap<Message.RecipientType, EmailAddress[]> recipients
+            = new HashMap<>();
+        recipients.put(Message.RecipientType.TO, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.CC, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.BCC, new EmailAddress[0]);
+        EmailHeader header = new EmailHeader(null, recipients, new Date(0),
+            "subject");
+        return new EmailBody(header, new EmailContents(""), attachments);
+    }
+
+}
@@ -0,0 +1,176 @@
+package email;
+
+import email.address.EmailAddress;
+import email.email.Email;
+import email.email.EmailHeader;
+import email.email.body.EmailBody;
+import email.email.body.EmailContents;
+import file.ExtendedFile;
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.Message;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Test Suite for the index of an inbox's emails.
+ * @author Jordan Jones
+ */
+public class EmailInboxIndexTestSuite {
+
+    /**
+     * Tests if adding an email with the same message id replaces it, moving
+     * it to its new date.
+     */
+    @Test
+    void putReplacesSameId() {
+        EmailInboxIndex emails = new EmailInboxIndex();
+        Email oldEmail = email("a", 1000L);
+        emails.put(oldEmail);
+        emails.put(email("b", 2000L));
+        Email newEmail = email("a", 3000L);
+        Assertions.assertThat(emails.put(newEmail)).isSameAs(oldEmail);
+        Assertions.assertThat(emails.size()).isEqualTo(2);
+        Assertions.assertThat(emails.get("a")).isSameAs(newEmail);
+        Assertions.assertThat(ids(emails.values())).containsExactly("a", "b");
+    }
+
+    /**
+     * Tests if the emails are found by position and their positions are
+     * found, newest first.
+     */
+    @Test
+    void getAndIndexOf() {
+        EmailInboxIndex emails = index(100);
+        for (int i = 0; i < 100; i++) {
+            Email email = emails.get(i);
+            Assertions.assertThat(email.getMessageId())
+                .isEqualTo("e" + (99 - i));
+            Assertions.assertThat(emails.indexOf(email)).isEqualTo(i);
+        }
+        Assertions.assertThat(emails.indexOf(email("missing", 0L)))
+            .isEqualTo(-1);
+        Assertions.assertThatThrownBy(() -> emails.get(100))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+        Assertions.assertThatThrownBy(() -> emails.get(-1))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    /**
+     * Tests if a range of emails is found at the start, the end and with no
+     * emails in it.
+     */
+    @Test
+    void rangeEdges() {
+        EmailInboxIndex emails = index(10);
+        Assertions.assertThat(ids(emails.range(0, 3)))
+            .containsExactly("e9", "e8", "e7");
+        Assertions.assertThat(ids(emails.range(8, 10)))
+            .containsExactly("e1", "e0");
+        Assertions.assertThat(emails.range(10, 10)).isEmpty();
+        Assertions.assertThat(ids(emails.range(0, 10))).hasSize(10);
+        Assertions.assertThatThrownBy(() -> emails.range(5, 11))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+        Assertions.assertThatThrownBy(() -> emails.range(3, 2))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    /**
+     * Tests if emails received at the same time are ordered by message id,
+     * and emails without a date are last.
+     */
+    @Test
+    void equalDatesOrderedById() {
+        EmailInboxIndex emails = new EmailInboxIndex();
+        emails.put(email("c", 1000L));
+        emails.put(email("none", null));
+        emails.put(email("a", 1000L));
+        emails.put(email("b", 1000L));
+        emails.put(email("new", 2000L));
+        Assertions.assertThat(ids(emails.values()))
+            .containsExactly("new", "a", "b", "c", "none");
+    }
+
+    /**
+     * Tests if removing an email keeps the other emails in order.
+     */
+    @Test
+    void remove() {
+        EmailInboxIndex emails = index(5);
+        Assertions.assertThat(emails.remove("e2").getMessageId())
+            .isEqualTo("e2");
+        Assertions.assertThat(emails.remove("e2")).isNull();
+        Assertions.assertThat(emails.containsId("e2")).isFalse();
+        Assertions.assertThat(ids(emails.values()))
+            .containsExactly("e4", "e3", "e1", "e0");
+    }
+
+    /**
+     * Tests if an iterator fails once the index is changed, rather than
+     * skipping or repeating emails.
+     */
+    @Test
+    void iteratorFailsAfterChange() {
+        EmailInboxIndex emails = index(5);
+        Iterator<Email> iterator = emails.values().iterator();
+        iterator.next();
+        emails.put(email("new", 10000L));
+        Assertions.assertThatThrownBy(iterator::next)
+            .isInstanceOf(ConcurrentModificationException.class);
+        Iterator<Email> removeIterator = emails.values().iterator();
+        emails.remove("e0");
+        Assertions.assertThatThrownBy(removeIterator::next)
+            .isInstanceOf(ConcurrentModificationException.class);
+    }
+
+    /**
+     * Creates an index of emails received a second apart.
+     * @param size Number of emails
+     * @return Index of the emails
+     */
+    private static @NotNull EmailInboxIndex index(int size) {
+        EmailInboxIndex emails = new EmailInboxIndex();
+        for (int i = 0; i < size; i++) {
+            emails.put(email("e" + i, i * 1000L));
+        }
+        return emails;
+    }
+
+    /**
+     * Creates an email.
+     * @param messageId Message id of the email
+     * @param receivedDate Received date in milliseconds (null if none)
+     * @return Email
+     */
+    private static @NotNull Email email(String messageId, Long receivedDate) {
+        HashMap<Message.RecipientType, EmailAddress[]> recipients
+            = new HashMap<>();
+        recipients.put(Message.RecipientType.TO, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.CC, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.BCC, new EmailAddress[0]);
+        EmailHeader header = new EmailHeader(null, recipients,
+            receivedDate == null ? null : new Date(receivedDate), messageId);
+        return new Email(messageId, header, new EmailBody(header,
+            new EmailContents(""), new ExtendedFile[0]), false);
+    }
+
+    /**
+     * Gets the message ids of emails.
+     * @param emails Emails
+     * @return Message ids of the emails in order
+     */
+    private static @NotNull List<String> ids(@NotNull Iterable<Email> emails) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Email email : emails) {
+            ids.add(email.getMessageId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,70 @@
+package email;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test Suite for how far an inbox has been synced with its server folder.
+ * @author Jordan Jones
+ */
+public class EmailInboxSyncStateTestSuite {
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if the UIDs of message ids are found without changing the message
+     * ids being searched for.
+     */
+    @Test
+    void findUids() {
+        EmailInboxSyncState syncState = new EmailInboxSyncState();
+        syncState.addMessage(1, "a");
+        syncState.addMessage(2, "b");
+        syncState.addMessage(3, "c");
+        Set<String> searchIds = new HashSet<>(List.of("a", "c", "missing"));
+        Assertions.assertThat(syncState.findUids(searchIds))
+            .containsEntry("a", 1L).containsEntry("c", 3L).hasSize(2);
+        Assertions.assertThat(searchIds).hasSize(3);
+    }
+
+    /**
+     * Tests if a removed or reset message is no longer found.
+     */
+    @Test
+    void findUidsAfterRemove() {
+        EmailInboxSyncState syncState = new EmailInboxSyncState();
+        syncState.addMessage(1, "a");
+        syncState.addMessage(2, "b");
+        Assertions.assertThat(syncState.removeMessage(1)).isEqualTo("a");
+        Assertions.assertThat(syncState.findUids(List.of("a", "b")))
+            .containsOnlyKeys("b");
+        syncState.reset(5);
+        Assertions.assertThat(syncState.findUids(List.of("b"))).isEmpty();
+    }
+
+    /**
+     * Tests if the UIDs of message ids are found after the sync state is
+     * saved and loaded.
+     * @throws Exception Thrown if error with the sync state file
+     */
+    @Test
+    void findUidsAfterLoad() throws Exception {
+        String filePath = directory.resolve("sync.ser").toString();
+        EmailInboxSyncState syncState = new EmailInboxSyncState();
+        syncState.reset(5);
+        syncState.addMessage(7, "a");
+        syncState.save(filePath);
+        EmailInboxSyncState loaded = EmailInboxSyncState.load(filePath);
+        Assertions.assertThat(loaded.isValid(5)).isTrue();
+        Assertions.assertThat(loaded.findUids(List.of("a")))
+            .containsEntry("a", 7L);
+    }
+
+}
@@ -0,0 +1,193 @@
+package email.address;
+
+import file.serializable.SerializableFile;
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Test Suite for the history of the email addresses used with the system.
+ * @author Jordan Jones
+ */
+public class EmailAddressHistoryTestSuite {
+
+    //CONSTANTS
+    private static final int MANY_ADDRESSES = 25;
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if only the addresses starting with a string are found, with the
+     * most used first, including where edges of the trie have been split.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void findByPrefixRanked() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "abc@example.com");
+        add(history, "abd@example.com");
+        add(history, "abd@example.com");
+        add(history, "ab@example.org");
+        add(history, "zed@example.com");
+        Assertions.assertThat(history.find("ab")).containsExactly(
+            "abd@example.com", "ab@example.org", "abc@example.com");
+        Assertions.assertThat(history.find("abc"))
+            .containsExactly("abc@example.com");
+        Assertions.assertThat(history.find("abe")).isEmpty();
+        Assertions.assertThat(history.find("y")).isEmpty();
+    }
+
+    /**
+     * Tests if addresses used in any case are one address, found whatever the
+     * case of the string.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void findIgnoresCase() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "Jordan@Example.com");
+        add(history, "jordan@example.com");
+        Assertions.assertThat(history.find("jor"))
+            .containsExactly("jordan@example.com");
+        Assertions.assertThat(history.find("JORDAN@e"))
+            .containsExactly("jordan@example.com");
+    }
+
+    /**
+     * Tests if the address equal to the string is left out of the results.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void findExcludesExactAddress() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "jordan@example.com");
+        add(history, "jordan@example.com.au");
+        Assertions.assertThat(history.find("Jordan@Example.com"))
+            .containsExactly("jordan@example.com.au");
+    }
+
+    /**
+     * Tests if no more than the most results are found, even when the exact
+     * address is left out.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void findMaxResults() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "user@example.co");
+        for (int i = 0; i < MANY_ADDRESSES; i++) {
+            add(history, "user@example.co" + i);
+        }
+        Assertions.assertThat(history.find("user@example.co"))
+            .hasSize(EmailAddressHistory.MAX_RESULTS)
+            .doesNotContain("user@example.co");
+    }
+
+    /**
+     * Tests if the history is replayed from its log file after being closed,
+     * keeping the ranking, and if every use is in the log file before it is
+     * closed.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void replayAfterClose() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "alice@example.com");
+        add(history, "amy@example.com");
+        add(history, "amy@example.com");
+        Assertions.assertThat(Files.size(logPath())).isGreaterThan(0);
+        history.close();
+        EmailAddressHistory loaded = history();
+        Assertions.assertThat(loaded.find("a")).containsExactly(
+            "amy@example.com", "alice@example.com");
+        add(loaded, "alice@example.com");
+        add(loaded, "alice@example.com");
+        loaded.close();
+        Assertions.assertThat(history().find("a")).containsExactly(
+            "alice@example.com", "amy@example.com");
+    }
+
+    /**
+     * Tests if a record that was only partly written is cut off, and if the
+     * history can be added to afterwards.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void replayAfterTornRecord() throws Exception {
+        EmailAddressHistory history = history();
+        add(history, "alice@example.com");
+        history.close();
+        long logBytes = Files.size(logPath());
+        Files.write(logPath(), new byte[]{0, 17, 'b', 'o', 'b'},
+            StandardOpenOption.APPEND);
+        history = history();
+        Assertions.assertThat(history.find("")).containsExactly(
+            "alice@example.com");
+        Assertions.assertThat(Files.size(logPath())).isEqualTo(logBytes);
+        add(history, "bob@example.com");
+        history.close();
+        Assertions.assertThat(history().find("")).containsExactlyInAnyOrder(
+            "alice@example.com", "bob@example.com");
+    }
+
+    /**
+     * Tests if the old history file is moved into the log file the first time
+     * the history is loaded.
+     * @throws Exception Thrown if error with the history or an address
+     */
+    @Test
+    void loadLegacyFile() throws Exception {
+        new SerializableFile<String[]>(legacyPath().toString())
+            .serialize(new String[]{"old@example.com"});
+        Assertions.assertThat(history().find("old"))
+            .containsExactly("old@example.com");
+        Assertions.assertThat(legacyPath()).doesNotExist();
+        Assertions.assertThat(logPath()).exists();
+    }
+
+    /**
+     * Creates an address history in the test directory and loads it.
+     * @return Loaded address history
+     * @throws Exception Thrown if error loading the history
+     */
+    private @NotNull EmailAddressHistory history() throws Exception {
+        EmailAddressHistory history = new EmailAddressHistory(
+            logPath().toString());
+        history.load(legacyPath().toString());
+        return history;
+    }
+
+    /**
+     * Gets the path of the history's log file.
+     * @return Path of the log file
+     */
+    private @NotNull Path logPath() {
+        return directory.resolve("history.log");
+    }
+
+    /**
+     * Gets the path of the old history file.
+     * @return Path of the old history file
+     */
+    private @NotNull Path legacyPath() {
+        return directory.resolve("history.ser");
+    }
+
+    /**
+     * Adds a use of an address to a history.
+     * @param history Address history
+     * @param address Email address that has been used
+     * @throws Exception Thrown if error with the history or the address
+     */
+    private static void add(@NotNull EmailAddressHistory history,
+        @NotNull String address) throws Exception {
+        history.add(new EmailAddress[]{new EmailAddress(address)});
+    }
+
+}
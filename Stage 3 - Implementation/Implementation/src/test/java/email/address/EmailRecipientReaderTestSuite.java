@@ -0,0 +1,192 @@
+package email.address;
+
+import email.email.body.tag.EmailListTag;
+import email.email.body.tag.EmailTag;
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test Suite for streaming recipients and their tag values from a CSV or TSV
+ * file.
+ * @author Jordan Jones
+ */
+public class EmailRecipientReaderTestSuite {
+
+    //CONSTANTS
+    private static final EmailTag NAME_TAG = new EmailTag("Name");
+    private static final EmailTag ITEMS_TAG = new EmailListTag("Items");
+    private static final EmailTag[] NAME_TAGS = {NAME_TAG};
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if quoted cells keep their delimiters, line breaks and escaped
+     * quotes.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readQuotedCells() throws Exception {
+        try (EmailRecipientReader reader = reader("recipients.csv",
+            "Address,Nickname,Name\n"
+                + "a@example.com,\"Smith, Jo\",\"Jo \"\"JJ\"\"\nSmith\"\n",
+            NAME_TAGS)) {
+            EmailAddress emailAddress = reader.next();
+            Assertions.assertThat(emailAddress.getAddress())
+                .isEqualTo("a@example.com");
+            Assertions.assertThat(emailAddress.getNickname())
+                .isEqualTo("Smith, Jo");
+            Assertions.assertThat(emailAddress.getTagValue(NAME_TAG))
+                .containsExactly("Jo \"JJ\"\nSmith");
+            Assertions.assertThat(reader.next()).isNull();
+        }
+    }
+
+    /**
+     * Tests if CRLF line endings, blank lines and a byte order mark before
+     * the header are skipped.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readCrlfBlankLinesAndByteOrderMark() throws Exception {
+        try (EmailRecipientReader reader = reader("recipients.csv",
+            "\uFEFFAddress,Name\r\n\r\na@example.com,Jo\r\n\r\n"
+                + "b@example.com,Sam\r\n\r\n", NAME_TAGS)) {
+            Assertions.assertThat(reader.next().getTagValue(NAME_TAG))
+                .containsExactly("Jo");
+            Assertions.assertThat(reader.next().getTagValue(NAME_TAG))
+                .containsExactly("Sam");
+            Assertions.assertThat(reader.next()).isNull();
+        }
+    }
+
+    /**
+     * Tests if list tag values are split on '|' and TSV files are split on
+     * tabs.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readListValuesFromTsv() throws Exception {
+        try (EmailRecipientReader reader = reader("recipients.tsv",
+            "Items\tAddress\napples|pears, plums\ta@example.com\n",
+            new EmailTag[]{ITEMS_TAG})) {
+            Assertions.assertThat(reader.next().getTagValue(ITEMS_TAG))
+                .containsExactly("apples", "pears, plums");
+        }
+    }
+
+    /**
+     * Tests if a quote that is never closed is reported at the line it was
+     * opened on.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readUnclosedQuote() throws Exception {
+        try (EmailRecipientReader reader = reader("recipients.csv",
+            "Address,Name\na@example.com,Jo\nb@example.com,\"Sam\n",
+            NAME_TAGS)) {
+            reader.next();
+            Assertions.assertThatThrownBy(reader::next)
+                .isInstanceOf(InvalidRecipientFileException.class)
+                .extracting("lineNumber").isEqualTo(3L);
+        }
+    }
+
+    /**
+     * Tests if a row with a different number of cells to the header is
+     * reported at its line.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readColumnCountMismatch() throws Exception {
+        try (EmailRecipientReader reader = reader("recipients.csv",
+            "Address,Name\n\na@example.com,Jo,extra\n", NAME_TAGS)) {
+            Assertions.assertThatThrownBy(reader::next)
+                .isInstanceOf(InvalidRecipientFileException.class)
+                .extracting("lineNumber").isEqualTo(3L);
+        }
+    }
+
+    /**
+     * Tests if a header without an address column or a tag's column is
+     * rejected.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void readInvalidHeader() throws Exception {
+        write("missing.csv", "Name\nJo\n");
+        Assertions.assertThatThrownBy(() -> new EmailRecipientReader(
+            path("missing.csv"), NAME_TAGS))
+            .isInstanceOf(InvalidRecipientFileException.class);
+        write("untagged.csv", "Address\na@example.com\n");
+        Assertions.assertThatThrownBy(() -> new EmailRecipientReader(
+            path("untagged.csv"), NAME_TAGS))
+            .isInstanceOf(InvalidRecipientFileException.class);
+    }
+
+    /**
+     * Tests if every recipient is counted, and if an invalid row after the
+     * first is found, when validating a file.
+     * @throws Exception Thrown if error with the recipient file
+     */
+    @Test
+    void validate() throws Exception {
+        write("valid.csv", "Address,Name\na@example.com,Jo\nb@example.com,"
+            + "Sam\n");
+        Assertions.assertThat(EmailRecipientReader.validate(
+            path("valid.csv"), NAME_TAGS)).isEqualTo(2);
+        write("empty.csv", "Address,Name\na@example.com,Jo\nb@example.com,"
+            + "\n");
+        Assertions.assertThatThrownBy(() -> EmailRecipientReader.validate(
+            path("empty.csv"), NAME_TAGS))
+            .isInstanceOf(EmptyTagValueException.class);
+        write("address.csv", "Address,Name\na@example.com,Jo\nnot an address,"
+            + "Sam\n");
+        Assertions.assertThatThrownBy(() -> EmailRecipientReader.validate(
+            path("address.csv"), NAME_TAGS))
+            .isInstanceOf(InvalidEmailAddressException.class);
+    }
+
+    /**
+     * Writes a recipient file to the test directory and opens it.
+     * @param fileName Name of the recipient file
+     * @param contents Contents of the recipient file
+     * @param emailTags Tags that each recipient needs values for
+     * @return Reader of the recipient file
+     * @throws Exception Thrown if error with the recipient file
+     */
+    private @NotNull EmailRecipientReader reader(@NotNull String fileName,
+        @NotNull String contents, EmailTag @NotNull [] emailTags)
+        throws Exception {
+        write(fileName, contents);
+        return new EmailRecipientReader(path(fileName), emailTags);
+    }
+
+    /**
+     * Writes a recipient file to the test directory.
+     * @param fileName Name of the recipient file
+     * @param contents Contents of the recipient file
+     * @throws Exception Thrown if error writing the file
+     */
+    private void write(@NotNull String fileName, @NotNull String contents)
+        throws Exception {
+        Files.writeString(directory.resolve(fileName), contents,
+            StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the path of a recipient file in the test directory.
+     * @param fileName Name of the recipient file
+     * @return Path of the recipient file
+     */
+    private @NotNull String path(@NotNull String fileName) {
+        return directory.resolve(fileName).toString();
+    }
+
+}
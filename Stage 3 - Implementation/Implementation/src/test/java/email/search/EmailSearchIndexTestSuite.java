@@ -0,0 +1,248 @@
+package email.search;
+
+import email.EmailInbox;
+import email.address.EmailAddress;
+import email.address.InvalidEmailAddressException;
+import email.email.Email;
+import email.email.EmailHeader;
+import email.email.body.EmailBody;
+import email.email.body.EmailContents;
+import file.ExtendedFile;
+import org.assertj.core.api.Assertions;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.mail.Message;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Test Suite for the search index of the saved emails.
+ * @author Jordan Jones
+ */
+public class EmailSearchIndexTestSuite {
+
+    //CONSTANTS
+    private static final EmailInbox.EmailInboxType INBOX
+        = EmailInbox.EmailInboxType.INBOX;
+    private static final int ACCOUNT_ID = 1;
+    private static final int COMPACTION_EMAILS = 3000;
+    private static final int KEPT_EMAILS = 100;
+
+    //Attributes
+    @TempDir Path directory;
+
+    /**
+     * Tests if a word in the subject ranks an email above the same word in
+     * the body of another email.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void searchRanksSubjectFirst() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        searchIndex.add(ACCOUNT_ID, INBOX, email("body", "Lunch",
+            "Notes about the report", 2000));
+        searchIndex.add(ACCOUNT_ID, INBOX, email("subject",
+            "Quarterly report", "Numbers attached", 1000));
+        Assertions.assertThat(ids(searchIndex.search("report", 10)))
+            .containsExactly("subject", "body");
+    }
+
+    /**
+     * Tests if the last letters of each word of a search can be left out and
+     * if every word must match.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void searchMatchesPrefixOfEveryWord() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        searchIndex.add(ACCOUNT_ID, INBOX, email("a", "Quarterly report",
+            "<html><title>ignored</title><body>Budget</body></html>", 1000));
+        searchIndex.add(ACCOUNT_ID, INBOX, email("b", "Lunch",
+            "About the report", 2000));
+        Assertions.assertThat(ids(searchIndex.search("rep budg", 10)))
+            .containsExactly("a");
+        Assertions.assertThat(ids(searchIndex.search("ignored", 10)))
+            .isEmpty();
+    }
+
+    /**
+     * Tests if removed emails are not found and if adding an email again
+     * replaces it.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void removeAndReplace() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        searchIndex.add(ACCOUNT_ID, INBOX, email("a", "Report", "old", 1000));
+        searchIndex.add(ACCOUNT_ID, INBOX, email("b", "Report", "old", 2000));
+        searchIndex.remove(ACCOUNT_ID, INBOX, "a");
+        searchIndex.add(ACCOUNT_ID, INBOX, email("b", "Lunch", "new", 2000));
+        Assertions.assertThat(searchIndex.search("report", 10)).isEmpty();
+        Assertions.assertThat(ids(searchIndex.search("new", 10)))
+            .containsExactly("b");
+        Assertions.assertThat(searchIndex.contains(ACCOUNT_ID, INBOX, "a"))
+            .isFalse();
+    }
+
+    /**
+     * Tests if emails received before a date are left out before the results
+     * are cut to the most results, and if a blank search lists the newest
+     * emails.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void searchSinceDate() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        for (int i = 0; i < 100; i++) {
+            searchIndex.add(ACCOUNT_ID, INBOX, email("e" + i, "Report",
+                "text", i * 1000L));
+        }
+        Assertions.assertThat(ids(searchIndex.search("report",
+            new Date(97000), 10))).containsExactlyInAnyOrder("e97", "e98",
+            "e99");
+        Assertions.assertThat(ids(searchIndex.search(" ", new Date(97000),
+            10))).containsExactly("e99", "e98", "e97");
+        Assertions.assertThat(searchIndex.search("?!", null, 10)).isEmpty();
+    }
+
+    /**
+     * Tests if searching one inbox leaves out the other inboxes and accounts
+     * before the results are cut, and finds the same email in each inbox.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void searchOneInbox() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        for (int i = 0; i < 20; i++) {
+            searchIndex.add(ACCOUNT_ID, EmailInbox.EmailInboxType.SENT,
+                email("sent" + i, "Report report", "report", 5000 + i));
+            searchIndex.add(ACCOUNT_ID + 1, INBOX, email("other" + i,
+                "Report report", "report", 5000 + i));
+        }
+        searchIndex.add(ACCOUNT_ID, INBOX, email("shared", "Report", "text",
+            1000));
+        searchIndex.add(ACCOUNT_ID, EmailInbox.EmailInboxType.SENT,
+            email("shared", "Report", "text", 1000));
+        Assertions.assertThat(ids(searchIndex.search("report", null,
+            ACCOUNT_ID, INBOX, 5))).containsExactly("shared");
+        Assertions.assertThat(ids(searchIndex.search("", null, ACCOUNT_ID + 1,
+            INBOX, 5))).hasSize(5).allMatch(id -> id.startsWith("other"));
+    }
+
+    /**
+     * Tests if the index is replayed from its log file, cutting off a record
+     * that was only partly written.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void replayAfterTornRecord() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        searchIndex.add(ACCOUNT_ID, INBOX, email("a", "Pizza", "text", 1000));
+        searchIndex.add(ACCOUNT_ID, INBOX, email("b", "Hello", "text", 2000));
+        searchIndex.remove(ACCOUNT_ID, INBOX, "b");
+        searchIndex.close();
+        long logBytes = Files.size(logPath());
+        Files.write(logPath(), new byte[]{0, 0, 0, 50, 1, 2},
+            StandardOpenOption.APPEND);
+        searchIndex = searchIndex();
+        Assertions.assertThat(ids(searchIndex.search("pizza", 10)))
+            .containsExactly("a");
+        Assertions.assertThat(searchIndex.search("hello", 10)).isEmpty();
+        Assertions.assertThat(Files.size(logPath())).isEqualTo(logBytes);
+        searchIndex.add(ACCOUNT_ID, INBOX, email("c", "Pasta", "text", 3000));
+        searchIndex.close();
+        Assertions.assertThat(ids(searchIndex().search("pasta", 10)))
+            .containsExactly("c");
+    }
+
+    /**
+     * Tests if the log file is rewritten during a session once most of its
+     * emails have been removed, keeping the emails that are left.
+     * @throws Exception Thrown if error with the index or an email
+     */
+    @Test
+    void compactDuringSession() throws Exception {
+        EmailSearchIndex searchIndex = searchIndex();
+        for (int i = 0; i < COMPACTION_EMAILS; i++) {
+            searchIndex.add(ACCOUNT_ID, INBOX, email("e" + i, "word" + i,
+                "common", i));
+        }
+        searchIndex.flush();
+        long logBytes = Files.size(logPath());
+        for (int i = KEPT_EMAILS; i < COMPACTION_EMAILS; i++) {
+            searchIndex.remove(ACCOUNT_ID, INBOX, "e" + i);
+        }
+        searchIndex.flush();
+        Assertions.assertThat(Files.size(logPath())).isLessThan(logBytes / 2);
+        Assertions.assertThat(searchIndex.search("common", COMPACTION_EMAILS))
+            .hasSize(KEPT_EMAILS);
+        searchIndex.add(ACCOUNT_ID, INBOX, email("new", "fresh", "common", 0));
+        searchIndex.close();
+        searchIndex = searchIndex();
+        Assertions.assertThat(searchIndex.search("common", COMPACTION_EMAILS))
+            .hasSize(KEPT_EMAILS + 1);
+        Assertions.assertThat(ids(searchIndex.search("word99", 10)))
+            .containsExactly("e99");
+    }
+
+    /**
+     * Creates a search index with its log file in the test directory.
+     * @return Search index
+     */
+    private @NotNull EmailSearchIndex searchIndex() {
+        return new EmailSearchIndex(logPath().toString());
+    }
+
+    /**
+     * Gets the path of the search index's log file.
+     * @return Path of the log file
+     */
+    private @NotNull Path logPath() {
+        return directory.resolve("search.log");
+    }
+
+    /**
+     * Creates an email to index.
+     * @param messageId Message id of the email
+     * @param subject Subject of the email
+     * @param text Text of the email's body
+     * @param receivedDate Received date in milliseconds
+     * @return Email to index
+     * @throws InvalidEmailAddressException Thrown if error with the sender
+     */
+    private static @NotNull Email email(String messageId, String subject,
+        String text, long receivedDate) throws InvalidEmailAddressException {
+        HashMap<Message.RecipientType, EmailAddress[]> recipients
+            = new HashMap<>();
+        recipients.put(Message.RecipientType.TO, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.CC, new EmailAddress[0]);
+        recipients.put(Message.RecipientType.BCC, new EmailAddress[0]);
+        EmailHeader header = new EmailHeader(
+            new EmailAddress("sender@example.com"), recipients,
+            new Date(receivedDate), subject);
+        return new Email(messageId, header, new EmailBody(header,
+            new EmailContents(text), new ExtendedFile[0]), false);
+    }
+
+    /**
+     * Gets the message ids of search results.
+     * @param results Search results
+     * @return Message ids of the results in order
+     */
+    private static @NotNull List<String> ids(
+        @NotNull List<EmailSearchResult> results) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (EmailSearchResult result : results) {
+            ids.add(result.getMessageId());
+        }
+        return ids;
+    }
+
+}
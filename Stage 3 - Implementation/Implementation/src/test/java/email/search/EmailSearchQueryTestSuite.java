@@ -0,0 +1,88 @@
+package email.search;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.search.AndTerm;
+import javax.mail.search.FromStringTerm;
+import javax.mail.search.OrTerm;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Test Suite for the search queries typed by the user.
+ * @author Jordan Jones
+ */
+public class EmailSearchQueryTestSuite {
+
+    /**
+     * Tests if each part of a query is read.
+     * @throws InvalidSearchQueryException Thrown if the query is invalid
+     */
+    @Test
+    void parseParts() throws InvalidSearchQueryException {
+        EmailSearchQuery query = new EmailSearchQuery(
+            "  budget From:jordan subject:report since:2023-01-31 q3 ");
+        Assertions.assertThat(query.getWords()).containsExactly("budget",
+            "q3");
+        Assertions.assertThat(query.getFrom()).containsExactly("jordan");
+        Assertions.assertThat(query.getSubject()).containsExactly("report");
+        Assertions.assertThat(query.getSince()).isEqualTo(Date.from(
+            LocalDate.of(2023, 1, 31).atStartOfDay(ZoneId.systemDefault())
+                .toInstant()));
+        Assertions.assertThat(query.getIndexQuery())
+            .isEqualTo("budget q3 jordan report");
+    }
+
+    /**
+     * Tests if a prefix with nothing after it is searched for as a word.
+     * @throws InvalidSearchQueryException Thrown if the query is invalid
+     */
+    @Test
+    void parseEmptyPrefix() throws InvalidSearchQueryException {
+        EmailSearchQuery query = new EmailSearchQuery("from:");
+        Assertions.assertThat(query.getWords()).containsExactly("from:");
+        Assertions.assertThat(query.getFrom()).isEmpty();
+    }
+
+    /**
+     * Tests if a query with only a date gives a blank index query.
+     * @throws InvalidSearchQueryException Thrown if the query is invalid
+     */
+    @Test
+    void parseDateOnly() throws InvalidSearchQueryException {
+        EmailSearchQuery query = new EmailSearchQuery("since:2023-01-31");
+        Assertions.assertThat(query.getSince()).isNotNull();
+        Assertions.assertThat(query.getIndexQuery()).isBlank();
+    }
+
+    /**
+     * Tests if an empty query or an invalid date is an invalid query.
+     */
+    @Test
+    void parseInvalid() {
+        Assertions.assertThatThrownBy(() -> new EmailSearchQuery("   "))
+            .isInstanceOf(InvalidSearchQueryException.class);
+        Assertions.assertThatThrownBy(() -> new EmailSearchQuery(
+            "report since:yesterday"))
+            .isInstanceOf(InvalidSearchQueryException.class)
+            .hasMessageContaining("since needs a date");
+    }
+
+    /**
+     * Tests if the query becomes the IMAP SEARCH of every part.
+     * @throws InvalidSearchQueryException Thrown if the query is invalid
+     */
+    @Test
+    void toSearchTerm() throws InvalidSearchQueryException {
+        Assertions.assertThat(new EmailSearchQuery("report").toSearchTerm())
+            .isInstanceOf(OrTerm.class);
+        Assertions.assertThat(new EmailSearchQuery("from:jordan")
+            .toSearchTerm()).isInstanceOf(FromStringTerm.class);
+        AndTerm term = (AndTerm) new EmailSearchQuery(
+            "report from:jordan since:2023-01-31").toSearchTerm();
+        Assertions.assertThat(term.getTerms()).hasSize(3);
+    }
+
+}
@@ -14,6 +14,7 @@ import file.FileCanNotDeleteException;
 import file.directory.Directory;
 import gui.Main;
 import gui.fxml.FXMLScreen;
+import javafx.scene.control.Button;
 import javafx.stage.Stage;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.MethodOrderer;
@@ -21,6 +22,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.testfx.api.FxRobot;
 import org.testfx.framework.junit5.ApplicationExtension;
+import org.testfx.util.WaitForAsyncUtils;
 
 import javax.mail.MessagingException;
 import java.io.IOException;
@@ -73,6 +75,8 @@ public class ScreenTestSuite {
         = new EmailTag[]{EMAIL_TAG, EMAIL_LIST_TAG};
     protected static final String FILES_DIRECTORY = "src/test/resources";
     protected static final int WAIT_TIME = 1000;
+    protected static final int SEND_WAIT_TIME = 100;
+    protected static final int MAX_SEND_WAITS = 600;
 
     //Attributes
     private Stage stage;
@@ -160,6 +164,23 @@ public class ScreenTestSuite {
         setStage(stage);
     }
 
+    /**
+     * Clicks a button and waits for an email being sent off the JavaFX thread
+     * to be sent, which enables the send button again.
+     * @param robot Robot that uses the program
+     * @param buttonId Button that is being clicked
+     * @param sendButtonId Send button that is disabled while sending
+     */
+    protected void clickAndWaitForSend(@NotNull FxRobot robot,
+        String buttonId, String sendButtonId) {
+        Button sendButton = robot.lookup(sendButtonId).queryAs(Button.class);
+        robot.clickOn(buttonId);
+        for (int i = 0; i < MAX_SEND_WAITS && sendButton.isDisabled(); i++) {
+            robot.sleep(SEND_WAIT_TIME);
+        }
+        WaitForAsyncUtils.waitForFxEvents();
+    }
+
     /**
      * Code to run after test has finished.
      * @param robot Robot that the program uses
@@ -133,7 +133,7 @@ public class CreateScreenTestSuite extends ScreenTestSuite {
      */
     protected void sendButtonNoTags(@NotNull FxRobot robot, String buttonId) {
         inputValues(robot);
-        robot.clickOn(buttonId);
+        clickAndWaitForSend(robot, buttonId, SEND_BUTTON_ID);
     }
 
     /**
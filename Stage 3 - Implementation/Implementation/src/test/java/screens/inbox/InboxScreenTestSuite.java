@@ -6,12 +6,12 @@ import email.HostConnectionFailureException;
 import file.FileCanNotDeleteException;
 import file.directory.Directory;
 import gui.Main;
+import gui.components.ExtendedTextField;
+import gui.fxml.inbox.EmailInboxList;
 import gui.fxml.FXMLScreen;
-import gui.fxml.inbox.InboxScreenController;
-import javafx.scene.control.Button;
-import javafx.scene.control.Label;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.input.KeyCode;
 import javafx.stage.Stage;
 import org.assertj.core.api.Assertions;
 import org.jetbrains.annotations.NotNull;
@@ -34,11 +34,9 @@ public class InboxScreenTestSuite extends ScreenTestSuite {
     protected static final String BUTTONS_ID = "#buttons";
     private static final String VIEW_BUTTON = "#viewButton";
     private static final String DELETE_BUTTON = "#deleteButton";
-    private static final String LEFT_BUTTON_ID = "#leftButton";
-    private static final String RIGHT_BUTTON_ID = "#rightButton";
-    private static final String PAGE_BUTTONS_ID = "#pageButtons";
-    private static final String CURRENT_PAGE_ID = "#pageNumber";
     private static final String VIEW_BOX_ID = "#viewBox";
+    private static final String CELL_CLASS = ".list-cell";
+    private static final String SEARCH_TEXT_FIELD = "#searchTextField";
 
     //CONSTANTS
     private static final int WAIT_FOR_EMAILS_TIME = 1000;
@@ -63,69 +61,72 @@ public class InboxScreenTestSuite extends ScreenTestSuite {
     @Test
     void onDeleteButton(@NotNull FxRobot robot) {
         waitForEmails(robot);
+        int emailCount = emailCount(robot);
         robot.clickOn(DELETE_BUTTON);
-        Assertions.assertThat(robot.lookup(EMAIL_BOXES_ID).queryAs(VBox.class)
-            .getChildren().size()).isEqualTo(
-            InboxScreenController.EMAILS_PER_PAGE);
+        Assertions.assertThat(emailCount(robot)).isEqualTo(emailCount - 1);
     }
 
     /**
-     * FUNCTIONAL 1-12+37-38 + NON-FUNCTIONAL 1-6+9-10
-     * Tests if the left arrow button works correctly.
+     * FUNCTIONAL 1-12+37-39 + NON-FUNCTIONAL 1-6+9-12
+     * Tests if scrolling to the last email shows it while only creating the
+     * email boxes on screen.
      * @param robot Robot that uses the program
      */
     @Test
-    void onRightLeftButtons(@NotNull FxRobot robot) {
-
-        //Right Button
+    void onScroll(@NotNull FxRobot robot) {
         waitForEmails(robot);
-        Assertions.assertThat(robot.lookup(LEFT_BUTTON_ID).queryAs(Button.class)
-            .isVisible()).isEqualTo(false);
-        robot.clickOn(RIGHT_BUTTON_ID);
-        Assertions.assertThat(robot.lookup(CURRENT_PAGE_ID).queryAs(Label.class)
-            .getText()).isEqualTo("2");
-        Assertions.assertThat(robot.lookup(RIGHT_BUTTON_ID)
-            .queryAs(Button.class).isVisible()).isEqualTo(true);
-        Assertions.assertThat(robot.lookup(LEFT_BUTTON_ID).queryAs(Button.class)
-            .isVisible()).isEqualTo(true);
-        robot.clickOn(RIGHT_BUTTON_ID);
-        Assertions.assertThat(robot.lookup(CURRENT_PAGE_ID).queryAs(Label.class)
-            .getText()).isEqualTo("3");
-
-        //Left Button
-        Assertions.assertThat(robot.lookup(RIGHT_BUTTON_ID)
-            .queryAs(Button.class).isVisible()).isEqualTo(false);
-        robot.clickOn(LEFT_BUTTON_ID);
-        Assertions.assertThat(robot.lookup(CURRENT_PAGE_ID).queryAs(Label.class)
-            .getText()).isEqualTo("2");
-        Assertions.assertThat(robot.lookup(RIGHT_BUTTON_ID)
-            .queryAs(Button.class).isVisible()).isEqualTo(true);
-        Assertions.assertThat(robot.lookup(LEFT_BUTTON_ID).queryAs(Button.class)
-            .isVisible()).isEqualTo(true);
-        robot.clickOn(LEFT_BUTTON_ID);
-        Assertions.assertThat(robot.lookup(CURRENT_PAGE_ID).queryAs(Label.class)
-            .getText()).isEqualTo("1");
-
-        //Final
-        Assertions.assertThat(robot.lookup(RIGHT_BUTTON_ID)
-            .queryAs(Button.class).isVisible()).isEqualTo(true);
-        Assertions.assertThat(robot.lookup(LEFT_BUTTON_ID).queryAs(Button.class)
-            .isVisible()).isEqualTo(false);
+        ListView<?> emailBoxes = robot.lookup(EMAIL_BOXES_ID)
+            .queryAs(ListView.class);
+        int emailCount = emailCount(robot);
+        robot.interact(() -> emailBoxes.scrollTo(emailCount - 1));
+        robot.sleep(WAIT_FOR_EMAILS_TIME);
+        Object lastEmail = emailBoxes.getItems().get(emailCount - 1);
+        Assertions.assertThat(robot.lookup(CELL_CLASS).queryAllAs(
+            ListCell.class)).anyMatch(cell -> cell.getItem() == lastEmail);
+        Assertions.assertThat(robot.lookup(EMAIL_BOX_ID).queryAll().size())
+            .isLessThan(emailCount);
+    }
 
+    /**
+     * FUNCTIONAL 1-12 + NON-FUNCTIONAL 1-6
+     * Tests if searching lists the matching emails and if searching for
+     * nothing lists the inbox again.
+     * @param robot Robot that uses the program
+     */
+    @Test
+    void onSearch(@NotNull FxRobot robot) {
+        waitForEmails(robot);
+        ListView<?> emailBoxes = robot.lookup(EMAIL_BOXES_ID)
+            .queryAs(ListView.class);
+        int emailCount = emailCount(robot);
+        robot.clickOn(SEARCH_TEXT_FIELD).write("since:1970-01-01")
+            .type(KeyCode.ENTER);
+        while (emailBoxes.getItems() instanceof EmailInboxList) {
+            robot.sleep(WAIT_FOR_EMAILS_TIME);
+        }
+        Assertions.assertThat(emailCount(robot)).isPositive();
+        robot.interact(() -> robot.lookup(SEARCH_TEXT_FIELD)
+            .queryAs(ExtendedTextField.class).clear());
+        robot.clickOn(SEARCH_TEXT_FIELD).type(KeyCode.ENTER);
+        Assertions.assertThat(emailCount(robot)).isEqualTo(emailCount);
     }
 
     /**
-     * FUNCTIONAL 1-12+39 + NON-FUNCTIONAL 1-6+11-12
-     * Tests if the page buttons work correctly.
+     * FUNCTIONAL 1-12 + NON-FUNCTIONAL 1-6
+     * Tests if an invalid search shows why it is invalid and keeps listing
+     * the inbox.
      * @param robot Robot that uses the program
      */
     @Test
-    void onPageButtons(@NotNull FxRobot robot) {
+    void onSearchInvalid(@NotNull FxRobot robot) {
         waitForEmails(robot);
-        robot.interact(() -> ((Button) robot.lookup(PAGE_BUTTONS_ID)
-            .queryAs(HBox.class).getChildren().get(2)).fire());
-        Assertions.assertThat(robot.lookup(CURRENT_PAGE_ID).queryAs(Label.class)
-            .getText()).isEqualTo("3");
+        int emailCount = emailCount(robot);
+        robot.clickOn(SEARCH_TEXT_FIELD).write("since:yesterday")
+            .type(KeyCode.ENTER);
+        Assertions.assertThat(robot.lookup(SEARCH_TEXT_FIELD)
+            .queryAs(ExtendedTextField.class).getPromptText())
+            .contains("since needs a date");
+        Assertions.assertThat(emailCount(robot)).isEqualTo(emailCount);
     }
 
     /**
@@ -163,10 +164,19 @@ public class InboxScreenTestSuite extends ScreenTestSuite {
      * @param robot Robot that uses the program
      */
     protected void waitForEmails(@NotNull FxRobot robot) {
-        VBox emailBoxes = robot.lookup(EMAIL_BOXES_ID).queryAs(VBox.class);
-        while (emailBoxes.getChildren().size() < 1) {
+        while (emailCount(robot) < 1) {
             robot.sleep(WAIT_FOR_EMAILS_TIME);
         }
     }
 
+    /**
+     * Gets the number of emails in the list of email boxes.
+     * @param robot Robot that uses the program
+     * @return Number of emails in the list of email boxes
+     */
+    protected int emailCount(@NotNull FxRobot robot) {
+        return robot.lookup(EMAIL_BOXES_ID).queryAs(ListView.class)
+            .getItems().size();
+    }
+
 }
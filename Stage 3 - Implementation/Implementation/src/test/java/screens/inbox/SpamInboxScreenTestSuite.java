@@ -1,7 +1,6 @@
 package screens.inbox;
 
 import email.EmailInbox;
-import gui.fxml.inbox.InboxScreenController;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.assertj.core.api.Assertions;
@@ -48,12 +47,11 @@ public class SpamInboxScreenTestSuite extends InboxScreenTestSuite {
     @Test
     void onNotSpamButton(@NotNull FxRobot robot) {
         waitForEmails(robot);
+        int emailCount = emailCount(robot);
         Assertions.assertThat(robot.lookup(BUTTONS_ID).queryAs(VBox.class)
             .getChildren().size()).isEqualTo(2);
         robot.clickOn(NOT_SPAM_BUTTON);
-        Assertions.assertThat(robot.lookup(EMAIL_BOXES_ID).queryAs(VBox.class)
-            .getChildren().size()).isEqualTo(
-            InboxScreenController.EMAILS_PER_PAGE);
+        Assertions.assertThat(emailCount(robot)).isEqualTo(emailCount - 1);
     }
 
 }
@@ -353,7 +353,7 @@ public class TagsScreenTestSuite extends ScreenTestSuite {
             .get(0)).getChildren().get(0)).setText(LIST_TAG_VALUE_1);
 
         //Send
-        robot.clickOn(SEND_BUTTON_ID);
+        clickAndWaitForSend(robot, SEND_BUTTON_ID, SEND_BUTTON_ID);
 
     }
 